@@ -0,0 +1,68 @@
+package com.legal.benchmark;
+
+import com.legal.entity.KnowledgeBase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试数据：以固定种子由法律领域词汇拼出问答、上下文与答案，保证多次运行结果可比
+ */
+public final class BenchmarkData {
+    
+    private static final String[] LAWS = {"民法典", "刑法", "劳动合同法", "公司法", "民事诉讼法", "刑事诉讼法",
+            "行政处罚法", "消费者权益保护法", "道路交通安全法", "婚姻家庭编", "合同编", "侵权责任编"};
+    
+    private static final String[] SUBJECTS = {"劳动合同", "租赁合同", "借款", "离婚财产分割", "交通事故赔偿",
+            "工伤认定", "房屋买卖", "股权转让", "诉讼时效", "正当防卫", "盗窃罪", "合同违约", "抚养权", "继承",
+            "经济补偿金", "定金", "担保", "知识产权", "行政复议", "网络购物退货"};
+    
+    private static final String[] ASPECTS = {"如何认定", "需要承担什么责任", "有哪些法律规定", "怎么计算",
+            "诉讼程序是什么", "需要准备哪些证据", "有效期是多久", "能否撤销", "如何维权", "赔偿标准是多少"};
+    
+    private static final String[] CLAUSES = {"当事人应当按照约定全面履行自己的义务", "因过错侵害他人民事权益造成损害的应当承担侵权责任",
+            "向人民法院请求保护民事权利的诉讼时效期间为三年", "用人单位违反本法规定解除劳动合同的应当依照本法规定支付赔偿金",
+            "为了使国家、公共利益、本人或者他人的人身、财产和其他权利免受正在进行的不法侵害而采取的制止行为",
+            "以非法占有为目的窃取他人财物数额较大的处三年以下有期徒刑", "夫妻在婚姻关系存续期间所得的财产为夫妻的共同财产",
+            "当事人一方不履行合同义务或者履行合同义务不符合约定的应当承担继续履行、采取补救措施或者赔偿损失等违约责任"};
+    
+    private BenchmarkData() {
+    }
+    
+    public static String question(Random random) {
+        return "关于" + pick(random, SUBJECTS) + "，根据《" + pick(random, LAWS) + "》" + pick(random, ASPECTS) + "？";
+    }
+    
+    public static String paragraph(Random random, int clauses) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < clauses; i++) {
+            sb.append("根据《").append(pick(random, LAWS)).append("》第").append(1 + random.nextInt(1200)).append("条，")
+                    .append(pick(random, CLAUSES)).append("。");
+        }
+        return sb.toString();
+    }
+    
+    public static List<KnowledgeBase> knowledge(int size, long seed) {
+        Random random = new Random(seed);
+        List<KnowledgeBase> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            KnowledgeBase kb = new KnowledgeBase();
+            kb.setId((long) i + 1);
+            kb.setQuestion(question(random));
+            kb.setAnswer(paragraph(random, 3 + random.nextInt(4)));
+            kb.setTags(pick(random, SUBJECTS) + "," + pick(random, LAWS));
+            list.add(kb);
+        }
+        return list;
+    }
+    
+    public static String entitiesJson() {
+        return "{\"laws\":[\"中华人民共和国劳动合同法\",\"民法典\"],\"crimes\":[],"
+                + "\"organizations\":[\"劳动争议仲裁委员会\",\"人民法院\"],\"concepts\":[\"经济补偿金\",\"违法解除\",\"诉讼时效\"]}";
+    }
+    
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
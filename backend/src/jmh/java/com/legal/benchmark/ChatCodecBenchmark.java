@@ -0,0 +1,136 @@
+package com.legal.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.legal.util.ChatCompletionParser;
+import com.legal.util.ChatRequestTemplate;
+import com.legal.util.ConversationMemory;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeepSeek请求与响应的编解码：原先的fastjson对象树 + 字符串方式，对比请求体模板直接写入与响应流式解析
+ * 请求体写入okio缓冲（与写入连接相同的路径），响应从字节流解析；加 -prof gc 可对比每次调用的分配量
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatCodecBenchmark {
+    
+    private static final String MODEL = "deepseek-chat";
+    private static final String PROMPT_HEAD = "你是一位专业的法律咨询AI助手，具有丰富的法律知识和司法实践经验。"
+            + "你的任务是回答用户的法律问题，提供准确、专业、易懂的法律建议。\n\n回答要求："
+            + "1. 回答要准确、专业，基于中国法律法规2. 语言要通俗易懂，避免过于专业的术语"
+            + "3. 如果涉及具体法条，要明确指出法条名称和条号4. 如果是案例分析，要提供相关案例参考"
+            + "5. 如果问题不够明确，要主动询问以获取更多信息\n\n";
+    private static final String CONTEXT_HEADER = "相关知识上下文：\n";
+    private static final String CONTEXT_FOOTER = "\n\n";
+    private static final String PROMPT_TAIL = "请根据以上要求回答用户的问题。";
+    private static final MediaType JSON_TYPE = MediaType.get("application/json");
+    
+    /**
+     * 上下文的法条句数：20句约2KB，200句约20KB（未限制上下文预算时的常见规模）
+     */
+    @Param({"20", "200"})
+    public int contextClauses;
+    
+    private ChatRequestTemplate template;
+    private String question;
+    private String context;
+    private byte[] response;
+    private final Buffer buffer = new Buffer();
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        template = new ChatRequestTemplate(MODEL, PROMPT_HEAD, "此前对话摘要：\n", CONTEXT_HEADER, CONTEXT_FOOTER,
+                PROMPT_TAIL, 0.7, 2000);
+        question = BenchmarkData.question(random);
+        context = BenchmarkData.paragraph(random, contextClauses);
+        
+        JSONObject message = new JSONObject();
+        message.put("role", "assistant");
+        message.put("content", BenchmarkData.paragraph(random, 16) + "\n\n" + BenchmarkData.paragraph(random, 16));
+        JSONObject choice = new JSONObject();
+        choice.put("index", 0);
+        choice.put("message", message);
+        choice.put("logprobs", null);
+        choice.put("finish_reason", "stop");
+        JSONObject usage = new JSONObject();
+        usage.put("prompt_tokens", 1200);
+        usage.put("completion_tokens", 640);
+        usage.put("total_tokens", 1840);
+        JSONObject body = new JSONObject();
+        body.put("id", "chatcmpl-0f1e2d3c");
+        body.put("object", "chat.completion");
+        body.put("created", 1735689600);
+        body.put("model", MODEL);
+        body.put("choices", new JSONArray(choice));
+        body.put("usage", usage);
+        body.put("system_fingerprint", "fp_benchmark");
+        response = body.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 原实现：拼接系统提示词、构建对象树、序列化为字符串再编码写出
+     */
+    @Benchmark
+    public long treeRequest() throws IOException {
+        StringBuilder prompt = new StringBuilder(PROMPT_HEAD);
+        prompt.append(CONTEXT_HEADER).append(context).append(CONTEXT_FOOTER).append(PROMPT_TAIL);
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("model", MODEL);
+        JSONArray messages = new JSONArray();
+        JSONObject systemMessage = new JSONObject();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", prompt.toString());
+        messages.add(systemMessage);
+        JSONObject userMessage = new JSONObject();
+        userMessage.put("role", "user");
+        userMessage.put("content", question);
+        messages.add(userMessage);
+        requestBody.put("messages", messages);
+        requestBody.put("temperature", 0.7);
+        requestBody.put("max_tokens", 2000);
+        return write(RequestBody.create(requestBody.toJSONString(), JSON_TYPE));
+    }
+    
+    @Benchmark
+    public long templateRequest() throws IOException {
+        return write(template.body(question, context, ConversationMemory.History.EMPTY, false));
+    }
+    
+    /**
+     * 原实现：body().string() 读成字符串后解析为对象树
+     */
+    @Benchmark
+    public String treeResponse() {
+        JSONObject json = JSON.parseObject(new String(response, StandardCharsets.UTF_8));
+        json.getJSONObject("usage").getLongValue("prompt_tokens");
+        return json.getJSONArray("choices").getJSONObject(0).getJSONObject("message").getString("content");
+    }
+    
+    @Benchmark
+    public String streamingResponse() throws IOException {
+        return ChatCompletionParser.parse(new ByteArrayInputStream(response)).getContent();
+    }
+    
+    private long write(RequestBody body) throws IOException {
+        body.writeTo(buffer);
+        long size = buffer.size();
+        buffer.clear();
+        return size;
+    }
+}
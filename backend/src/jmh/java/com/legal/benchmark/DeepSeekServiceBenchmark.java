@@ -0,0 +1,62 @@
+package com.legal.benchmark;
+
+import com.legal.service.DeepSeekService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeepSeekService中不涉及网络调用的热点：实体JSON解析、可信度评估（请求与响应的编解码见 ChatCodecBenchmark）
+ * 实体解析为私有方法，通过方法句柄调用（static final句柄可被JIT内联）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeepSeekServiceBenchmark {
+    
+    private static final MethodHandle PARSE_ENTITIES = handle("parseEntities");
+    
+    private DeepSeekService service;
+    private String question;
+    private String answer;
+    private String entitiesJson;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        service = new DeepSeekService();
+        question = BenchmarkData.question(random);
+        answer = BenchmarkData.paragraph(random, 8);
+        entitiesJson = BenchmarkData.entitiesJson();
+    }
+    
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Map<String, List<String>> parseEntities() throws Throwable {
+        return (Map<String, List<String>>) PARSE_ENTITIES.invokeExact(service, entitiesJson);
+    }
+    
+    @Benchmark
+    public Double evaluateConfidence() {
+        return service.evaluateConfidence(question, answer);
+    }
+    
+    private static MethodHandle handle(String name) {
+        try {
+            Method method = DeepSeekService.class.getDeclaredMethod(name, String.class);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
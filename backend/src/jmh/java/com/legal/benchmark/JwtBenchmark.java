@@ -0,0 +1,44 @@
+package com.legal.benchmark;
+
+import com.legal.dto.JwtPrincipal;
+import com.legal.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token验证：完整的HS512解析校验与认证过滤器使用的已验证缓存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+    
+    private JwtUtil jwtUtil;
+    private String token;
+    
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "legal-qa-system-secret-key-2024");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86400000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 10000L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken("user1", 2L);
+    }
+    
+    @Benchmark
+    public Claims parseClaims() {
+        return jwtUtil.getClaimsFromToken(token);
+    }
+    
+    @Benchmark
+    public JwtPrincipal verifyCached() {
+        return jwtUtil.verify(token);
+    }
+}
@@ -0,0 +1,189 @@
+package com.legal.benchmark;
+
+import com.legal.entity.KnowledgeBase;
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalConcept;
+import com.legal.service.AnswerCacheService;
+import com.legal.service.EntityRetrievalService;
+import com.legal.service.QaMetricsService;
+import com.legal.service.QuestionAnswerService;
+import com.legal.util.HnswIndex;
+import com.legal.util.InvertedIndex;
+import com.legal.util.QuestionNormalizer;
+import com.legal.util.TextVectorizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 知识检索：在内存数据集上分别测量BM25倒排检索、HNSW向量检索、RRF融合，
+ * 以及 QuestionAnswerService.retrieveKnowledge 按词元预算的上下文拼装（法条较长，会触发按句截取）
+ * 与线上一致采用默认配置：向量256维、M=16、efConstruction=100、efSearch=64、最少命中比例0.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KnowledgeRetrievalBenchmark {
+    
+    private static final int RRF_K = 60;
+    private static final int LIMIT = 3;
+    private static final int QUERY_COUNT = 64;
+    
+    private static final MethodHandle RETRIEVE_KNOWLEDGE;
+    private static final Constructor<EntityRetrievalService.EntityLookup> LOOKUP_CONSTRUCTOR;
+    
+    static {
+        try {
+            Method method = QuestionAnswerService.class.getDeclaredMethod("retrieveKnowledge", String.class,
+                    List.class, EntityRetrievalService.EntityLookup.class, AnswerCacheService.CachedAnswer.class);
+            method.setAccessible(true);
+            RETRIEVE_KNOWLEDGE = MethodHandles.lookup().unreflect(method);
+            LOOKUP_CONSTRUCTOR = EntityRetrievalService.EntityLookup.class
+                    .getDeclaredConstructor(List.class, List.class);
+            LOOKUP_CONSTRUCTOR.setAccessible(true);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    @Param({"20000"})
+    public int knowledgeSize;
+    
+    private Map<Long, KnowledgeBase> knowledge;
+    private InvertedIndex invertedIndex;
+    private HnswIndex hnswIndex;
+    private TextVectorizer vectorizer;
+    private QuestionAnswerService questionAnswerService;
+    private EntityRetrievalService.EntityLookup lookup;
+    
+    private String[] queries;
+    private List<List<String>> queryTokens;
+    private float[][] queryVectors;
+    private int cursor;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        List<KnowledgeBase> dataset = BenchmarkData.knowledge(knowledgeSize, 7);
+        knowledge = new HashMap<>();
+        invertedIndex = new InvertedIndex();
+        vectorizer = new TextVectorizer(256);
+        vectorizer.fit(dataset.stream().map(KnowledgeBase::getQuestion).collect(Collectors.toList()));
+        hnswIndex = new HnswIndex(256, 16, 100);
+        for (KnowledgeBase kb : dataset) {
+            knowledge.put(kb.getId(), kb);
+            invertedIndex.put(kb.getId(), tokenize(kb.getQuestion() + " " + kb.getAnswer()));
+            hnswIndex.add(kb.getId(), vectorizer.vectorize(kb.getQuestion()));
+        }
+        
+        Random random = new Random(11);
+        queries = new String[QUERY_COUNT];
+        queryTokens = new ArrayList<>(QUERY_COUNT);
+        queryVectors = new float[QUERY_COUNT][];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = BenchmarkData.question(random);
+            queryTokens.add(tokenize(queries[i]));
+            queryVectors[i] = vectorizer.vectorize(queries[i]);
+        }
+        
+        questionAnswerService = new QuestionAnswerService();
+        setField(questionAnswerService, "contextMaxTokens", 2000);
+        setField(questionAnswerService, "contextSnippetMaxTokens", 400);
+        setField(questionAnswerService, "contextOverlapThreshold", 0.8);
+        QaMetricsService qaMetricsService = new QaMetricsService();
+        setField(qaMetricsService, "meterRegistry", new SimpleMeterRegistry());
+        qaMetricsService.init();
+        setField(questionAnswerService, "qaMetricsService", qaMetricsService);
+        lookup = LOOKUP_CONSTRUCTOR.newInstance(Arrays.asList("劳动合同法", "民法典"), Collections.singletonList("诉讼时效"));
+        for (String law : lookup.getLaws()) {
+            List<LegalArticle> articles = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                LegalArticle article = new LegalArticle();
+                article.setId((long) (law.hashCode() & 0xffff) * 10 + i);
+                article.setTitle(law);
+                article.setArticleNumber(String.valueOf(40 + i));
+                article.setContent(BenchmarkData.paragraph(random, 8));
+                articles.add(article);
+            }
+            lookup.getArticlesByLaw().put(law, articles);
+        }
+        LegalConcept concept = new LegalConcept();
+        concept.setId(1L);
+        concept.setName("诉讼时效");
+        concept.setDefinition(BenchmarkData.paragraph(random, 1));
+        lookup.getConceptsByName().put(concept.getName(), concept);
+    }
+    
+    @Benchmark
+    public InvertedIndex.SearchResult keywordSearch() {
+        List<String> tokens = queryTokens.get(next());
+        return invertedIndex.search(tokens, LIMIT, minShouldMatch(tokens));
+    }
+    
+    @Benchmark
+    public List<HnswIndex.Neighbour> semanticSearch() {
+        return hnswIndex.search(queryVectors[next()], LIMIT, 64);
+    }
+    
+    /**
+     * 与线上检索链路一致：两路召回后按倒数排名融合，再拼装提示词上下文
+     */
+    @Benchmark
+    public String retrieveKnowledge() throws Throwable {
+        int i = next();
+        List<String> tokens = queryTokens.get(i);
+        Map<Long, Double> fused = new HashMap<>();
+        List<InvertedIndex.ScoredDoc> keywordHits = invertedIndex.search(tokens, LIMIT, minShouldMatch(tokens)).getHits();
+        for (int rank = 0; rank < keywordHits.size(); rank++) {
+            fused.merge(keywordHits.get(rank).getId(), 1.0 / (RRF_K + rank + 1), Double::sum);
+        }
+        List<HnswIndex.Neighbour> semanticHits = hnswIndex.search(vectorizer.vectorize(queries[i]), LIMIT, 64);
+        for (int rank = 0; rank < semanticHits.size(); rank++) {
+            fused.merge(semanticHits.get(rank).getId(), 1.0 / (RRF_K + rank + 1), Double::sum);
+        }
+        List<KnowledgeBase> similarQAs = fused.keySet().stream()
+                .sorted((a, b) -> Double.compare(fused.get(b), fused.get(a)))
+                .limit(LIMIT)
+                .map(knowledge::get)
+                .collect(Collectors.toList());
+        return (String) RETRIEVE_KNOWLEDGE.invokeExact(questionAnswerService, queries[i], similarQAs, lookup,
+                new AnswerCacheService.CachedAnswer());
+    }
+    
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+    
+    private int next() {
+        cursor = (cursor + 1) % QUERY_COUNT;
+        return cursor;
+    }
+    
+    /**
+     * 与SearchIndexService一致的二元组分词（不含词典整词）
+     */
+    private static List<String> tokenize(String text) {
+        String normalized = QuestionNormalizer.normalize(text);
+        List<String> tokens = new ArrayList<>(normalized.length());
+        for (int i = 0; i + 1 < normalized.length(); i++) {
+            tokens.add(normalized.substring(i, i + 2));
+        }
+        return tokens;
+    }
+    
+    private static int minShouldMatch(List<String> tokens) {
+        return Math.max(1, (int) Math.ceil(new HashSet<>(tokens).size() * 0.3));
+    }
+}
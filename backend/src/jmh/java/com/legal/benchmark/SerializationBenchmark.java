@@ -0,0 +1,91 @@
+package com.legal.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalCase;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 提问结果的序列化：写入线程对实体、相关法条与案例的fastjson序列化，
+ * 以及Spring MVC以Jackson输出 processQuestion 返回结果
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    
+    private Map<String, List<String>> entities;
+    private List<String> relatedLawNames;
+    private List<String> relatedCaseTitles;
+    private Map<String, Object> result;
+    private ObjectMapper objectMapper;
+    
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Random random = new Random(42);
+        entities = (Map<String, List<String>>) (Map<?, ?>) JSON.parseObject(BenchmarkData.entitiesJson());
+        List<LegalArticle> laws = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            LegalArticle article = new LegalArticle();
+            article.setId((long) i + 1);
+            article.setTitle("中华人民共和国劳动合同法");
+            article.setArticleNumber(String.valueOf(40 + i));
+            article.setContent(BenchmarkData.paragraph(random, 2));
+            article.setLawType("劳动法");
+            article.setIsValid(true);
+            article.setCreateTime(LocalDateTime.now());
+            laws.add(article);
+        }
+        List<LegalCase> cases = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            LegalCase legalCase = new LegalCase();
+            legalCase.setId((long) i + 1);
+            legalCase.setTitle("某公司违法解除劳动合同纠纷案" + i);
+            legalCase.setCaseType("劳动争议");
+            legalCase.setContent(BenchmarkData.paragraph(random, 6));
+            legalCase.setDisputePoint(BenchmarkData.paragraph(random, 1));
+            legalCase.setJudgmentResult(BenchmarkData.paragraph(random, 1));
+            legalCase.setCreateTime(LocalDateTime.now());
+            cases.add(legalCase);
+        }
+        relatedLawNames = laws.stream().map(la -> la.getTitle() + "第" + la.getArticleNumber() + "条")
+                .collect(Collectors.toList());
+        relatedCaseTitles = cases.stream().map(LegalCase::getTitle).collect(Collectors.toList());
+        
+        result = new HashMap<>();
+        result.put("id", 1L);
+        result.put("question", BenchmarkData.question(random));
+        result.put("answer", BenchmarkData.paragraph(random, 10));
+        result.put("questionType", "法条查询");
+        result.put("confidenceScore", 0.9);
+        result.put("entities", entities);
+        result.put("relatedLaws", laws);
+        result.put("relatedCases", cases);
+        result.put("sessionId", "session_1700000000000_1234");
+        
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    }
+    
+    @Benchmark
+    public int persistedJsonColumns() {
+        return JSON.toJSONString(entities).length()
+                + JSON.toJSONString(relatedLawNames).length()
+                + JSON.toJSONString(relatedCaseTitles).length();
+    }
+    
+    @Benchmark
+    public byte[] responseBody() throws Exception {
+        return objectMapper.writeValueAsBytes(result);
+    }
+}
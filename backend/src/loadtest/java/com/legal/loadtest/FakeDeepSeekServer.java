@@ -0,0 +1,260 @@
+package com.legal.loadtest;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的DeepSeek聊天补全接口：按配置的延迟分布与错误率应答，
+ * 支持普通响应与SSE流式响应，并按提示词区分分类、实体识别与答案生成
+ */
+@Slf4j
+public class FakeDeepSeekServer implements AutoCloseable {
+    
+    private static final String PATH = "/v1/chat/completions";
+    
+    private static final String[] CATEGORIES = {"法条查询", "概念定义", "程序咨询", "案例分析", "其他"};
+    
+    private final LatencyModel latency;
+    private final double errorRate;
+    private final int[] errorCodes;
+    private final int streamChunkChars;
+    
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    
+    private HttpServer server;
+    private ExecutorService executor;
+    
+    public FakeDeepSeekServer(LatencyModel latency, double errorRate, int[] errorCodes, int streamChunkChars) {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.errorCodes = errorCodes;
+        this.streamChunkChars = streamChunkChars;
+    }
+    
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // 延迟通过阻塞睡眠模拟，每个请求占用一个线程
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "fake-deepseek");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        server.start();
+        log.info("模拟DeepSeek接口已启动: {}，延迟分布 {}，错误率 {}", getUrl(), latency, errorRate);
+    }
+    
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("latency", latency.toString());
+        stats.put("errorRate", errorRate);
+        stats.put("requests", requests.get());
+        stats.put("streamed", streamed.get());
+        stats.put("failed", failed.get());
+        stats.put("bytesIn", bytesIn.get());
+        stats.put("bytesOut", bytesOut.get());
+        return stats;
+    }
+    
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            byte[] body = readAll(exchange.getRequestBody());
+            bytesIn.addAndGet(body.length);
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"error\":{\"message\":\"method not allowed\"}}");
+                return;
+            }
+            JSONObject request = JSON.parseObject(new String(body, StandardCharsets.UTF_8));
+            JSONArray messages = request.getJSONArray("messages");
+            String userMessage = messages.getJSONObject(messages.size() - 1).getString("content");
+            boolean stream = request.getBooleanValue("stream");
+            
+            Random random = ThreadLocalRandom.current();
+            long delay = latency.sampleMillis(random);
+            if (random.nextDouble() < errorRate) {
+                failed.incrementAndGet();
+                sleep(delay / 2);
+                send(exchange, errorCodes[random.nextInt(errorCodes.length)],
+                        "{\"error\":{\"message\":\"simulated failure\",\"type\":\"server_error\"}}");
+                return;
+            }
+            
+            String content = reply(userMessage, random);
+            int promptTokens = estimateTokens(messages);
+            if (stream) {
+                streamed.incrementAndGet();
+                stream(exchange, content, delay, promptTokens);
+            } else {
+                sleep(delay);
+                send(exchange, 200, completion(content, promptTokens));
+            }
+        } catch (RuntimeException e) {
+            log.warn("模拟接口处理失败", e);
+            send(exchange, 400, "{\"error\":{\"message\":\"bad request\"}}");
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * 按提示词类型生成应答：分类返回类别名，实体识别返回JSON，其余返回一段答案
+     */
+    private String reply(String userMessage, Random random) {
+        if (userMessage.startsWith("请对以下法律问题进行分类")) {
+            return CATEGORIES[random.nextInt(CATEGORIES.length)];
+        }
+        if (userMessage.startsWith("请从以下法律问题中识别实体")) {
+            return "{\"laws\":[\"民法典\"],\"crimes\":[],\"organizations\":[\"人民法院\"],\"concepts\":[\"诉讼时效\"]}";
+        }
+        StringBuilder answer = new StringBuilder();
+        answer.append("您好，关于您提出的问题：").append(userMessage).append("\n\n");
+        answer.append("根据《中华人民共和国民法典》第").append(100 + random.nextInt(1100)).append("条的规定，");
+        answer.append("当事人应当遵循诚信原则，按照约定全面履行自己的义务。");
+        answer.append("一方不履行合同义务或者履行合同义务不符合约定的，应当承担继续履行、采取补救措施或者赔偿损失等违约责任。\n\n");
+        answer.append("建议您：1. 收集并保存相关证据，如合同、聊天记录、转账凭证等；");
+        answer.append("2. 先与对方协商解决；3. 协商不成的，可以向有管辖权的人民法院提起诉讼，注意三年的诉讼时效期间。");
+        return answer.toString();
+    }
+    
+    private String completion(String content, int promptTokens) {
+        JSONObject message = new JSONObject();
+        message.put("role", "assistant");
+        message.put("content", content);
+        JSONObject choice = new JSONObject();
+        choice.put("index", 0);
+        choice.put("message", message);
+        choice.put("finish_reason", "stop");
+        JSONArray choices = new JSONArray();
+        choices.add(choice);
+        
+        JSONObject response = new JSONObject();
+        response.put("id", "chatcmpl-" + requests.get());
+        response.put("object", "chat.completion");
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", "deepseek-chat");
+        response.put("choices", choices);
+        response.put("usage", usage(promptTokens, content.length()));
+        return response.toJSONString();
+    }
+    
+    /**
+     * 流式应答：按固定字数切分，将采样到的总延迟平均分摊到各个分片之间
+     */
+    private void stream(HttpExchange exchange, String content, long delay, int promptTokens) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int chunks = (content.length() + streamChunkChars - 1) / streamChunkChars;
+        long pause = chunks == 0 ? delay : delay / chunks;
+        for (int i = 0; i < content.length(); i += streamChunkChars) {
+            sleep(pause);
+            JSONObject delta = new JSONObject();
+            delta.put("content", content.substring(i, Math.min(content.length(), i + streamChunkChars)));
+            JSONObject choice = new JSONObject();
+            choice.put("index", 0);
+            choice.put("delta", delta);
+            JSONArray choices = new JSONArray();
+            choices.add(choice);
+            JSONObject chunk = new JSONObject();
+            chunk.put("choices", choices);
+            if (i + streamChunkChars >= content.length()) {
+                chunk.put("usage", usage(promptTokens, content.length()));
+            }
+            writeEvent(out, chunk.toJSONString());
+        }
+        writeEvent(out, "[DONE]");
+    }
+    
+    private JSONObject usage(int promptTokens, int completionTokens) {
+        JSONObject usage = new JSONObject();
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return usage;
+    }
+    
+    /**
+     * 粗略按一字一词元估算
+     */
+    private int estimateTokens(JSONArray messages) {
+        int tokens = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            String content = messages.getJSONObject(i).getString("content");
+            tokens += content == null ? 0 : content.length();
+        }
+        return tokens;
+    }
+    
+    private void writeEvent(OutputStream out, String data) throws IOException {
+        byte[] bytes = ("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.flush();
+        bytesOut.addAndGet(bytes.length);
+    }
+    
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        bytesOut.addAndGet(bytes.length);
+    }
+    
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+    
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
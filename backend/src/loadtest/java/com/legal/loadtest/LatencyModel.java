@@ -0,0 +1,56 @@
+package com.legal.loadtest;
+
+import java.util.Random;
+
+/**
+ * 模拟接口的延迟分布，格式：
+ * fixed:毫秒 | uniform:最小毫秒:最大毫秒 | lognormal:中位数毫秒:sigma
+ */
+public abstract class LatencyModel {
+    
+    public abstract long sampleMillis(Random random);
+    
+    public static LatencyModel parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    long fixed = Long.parseLong(parts[1]);
+                    return of(spec, random -> fixed);
+                case "uniform":
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    if (max < min) {
+                        throw new IllegalArgumentException("延迟分布上界小于下界: " + spec);
+                    }
+                    return of(spec, random -> min + (long) (random.nextDouble() * (max - min)));
+                case "lognormal":
+                    double median = Double.parseDouble(parts[1]);
+                    double sigma = Double.parseDouble(parts[2]);
+                    return of(spec, random -> Math.round(median * Math.exp(sigma * random.nextGaussian())));
+                default:
+                    throw new IllegalArgumentException("未知的延迟分布: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("延迟分布格式错误: " + spec, e);
+        }
+    }
+    
+    private static LatencyModel of(String spec, Sampler sampler) {
+        return new LatencyModel() {
+            @Override
+            public long sampleMillis(Random random) {
+                return Math.max(0, sampler.sample(random));
+            }
+            
+            @Override
+            public String toString() {
+                return spec;
+            }
+        };
+    }
+    
+    private interface Sampler {
+        long sample(Random random);
+    }
+}
@@ -0,0 +1,68 @@
+package com.legal.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个接口的延迟与错误记录，结束后排序求分位数
+ */
+public class LatencyRecorder {
+    
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+    
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public synchronized void record(long nanos, boolean success) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        if (!success) {
+            errors++;
+        }
+    }
+    
+    public synchronized Map<String, Object> report(double seconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("requests", count);
+        report.put("errors", errors);
+        report.put("throughput", round(count / seconds));
+        report.put("meanMs", count == 0 ? 0 : round(sum / 1e6 / count));
+        report.put("p50Ms", percentile(sorted, 0.50));
+        report.put("p95Ms", percentile(sorted, 0.95));
+        report.put("p99Ms", percentile(sorted, 0.99));
+        report.put("maxMs", count == 0 ? 0 : round(sorted[count - 1] / 1e6));
+        return report;
+    }
+    
+    /**
+     * 最近秩法求分位数
+     */
+    private static double percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(q * sorted.length);
+        return round(sorted[Math.max(0, rank - 1)] / 1e6);
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
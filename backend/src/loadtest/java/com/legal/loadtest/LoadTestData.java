@@ -0,0 +1,130 @@
+package com.legal.loadtest;
+
+import com.alibaba.fastjson2.JSON;
+import com.legal.entity.KnowledgeBase;
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalCase;
+import com.legal.entity.LegalConcept;
+import com.legal.service.BulkImportService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * 压测数据：以固定种子生成法条、案例、概念与知识库，经批量导入接口写入内嵌数据库
+ * 导入完成后词典、倒排索引与语义索引随之重建，与线上导入路径一致
+ */
+@Slf4j
+public class LoadTestData {
+    
+    static final String[] LAWS = {"民法典", "刑法", "劳动合同法", "公司法", "民事诉讼法", "刑事诉讼法",
+            "行政处罚法", "消费者权益保护法", "道路交通安全法", "劳动法", "合同法", "婚姻法"};
+    
+    static final String[] SUBJECTS = {"劳动合同", "租赁合同", "借款", "离婚财产分割", "交通事故赔偿",
+            "工伤认定", "房屋买卖", "股权转让", "诉讼时效", "正当防卫", "盗窃罪", "合同违约", "抚养权", "继承",
+            "经济补偿金", "定金", "担保", "知识产权", "行政复议", "网络购物退货"};
+    
+    static final String[] ASPECTS = {"如何认定", "需要承担什么责任", "有哪些法律规定", "怎么计算",
+            "诉讼程序是什么", "需要准备哪些证据", "有效期是多久", "能否撤销", "如何维权", "赔偿标准是多少"};
+    
+    private static final String[] CLAUSES = {"当事人应当按照约定全面履行自己的义务", "因过错侵害他人民事权益造成损害的应当承担侵权责任",
+            "向人民法院请求保护民事权利的诉讼时效期间为三年", "用人单位违反本法规定解除劳动合同的应当依照本法规定支付赔偿金",
+            "以非法占有为目的窃取他人财物数额较大的处三年以下有期徒刑", "夫妻在婚姻关系存续期间所得的财产为夫妻的共同财产",
+            "当事人一方不履行合同义务或者履行合同义务不符合约定的应当承担违约责任", "劳动者在本单位连续工作满十年的可以订立无固定期限劳动合同"};
+    
+    private static final String[] CASE_TYPES = {"劳动争议", "买卖合同纠纷", "民间借贷纠纷", "离婚纠纷", "机动车交通事故责任纠纷",
+            "盗窃罪", "故意伤害罪", "房屋租赁合同纠纷"};
+    
+    private final Random random;
+    
+    public LoadTestData(long seed) {
+        this.random = new Random(seed);
+    }
+    
+    public String question() {
+        return "关于" + pick(SUBJECTS) + "，根据《" + pick(LAWS) + "》" + pick(ASPECTS) + "？";
+    }
+    
+    public String keyword() {
+        return random.nextBoolean() ? pick(SUBJECTS) : pick(LAWS);
+    }
+    
+    public void seed(BulkImportService importService, int articles, int cases, int concepts, int knowledge)
+            throws IOException {
+        load(importService, "articles", articles, i -> {
+            LegalArticle article = new LegalArticle();
+            article.setTitle(LAWS[i % LAWS.length]);
+            article.setArticleNumber(String.valueOf(1 + i / LAWS.length));
+            article.setContent(paragraph(2));
+            article.setLawType(pick(LAWS));
+            article.setIsValid(true);
+            return article;
+        });
+        load(importService, "cases", cases, i -> {
+            LegalCase legalCase = new LegalCase();
+            legalCase.setTitle(pick(SUBJECTS) + "纠纷案（" + (i + 1) + "）");
+            legalCase.setCaseType(pick(CASE_TYPES));
+            legalCase.setContent(paragraph(6));
+            legalCase.setCourtName("某市中级人民法院");
+            legalCase.setDisputePoint(paragraph(1));
+            legalCase.setJudgmentResult(paragraph(1));
+            legalCase.setLawType(pick(LAWS));
+            return legalCase;
+        });
+        load(importService, "concepts", concepts, i -> {
+            LegalConcept concept = new LegalConcept();
+            concept.setName(i < SUBJECTS.length ? SUBJECTS[i] : SUBJECTS[i % SUBJECTS.length] + (i / SUBJECTS.length));
+            concept.setDefinition(paragraph(1));
+            concept.setExplanation(paragraph(3));
+            concept.setLawType(pick(LAWS));
+            return concept;
+        });
+        load(importService, "knowledge", knowledge, i -> {
+            KnowledgeBase kb = new KnowledgeBase();
+            kb.setQuestion(question());
+            kb.setAnswer(paragraph(3 + random.nextInt(4)));
+            kb.setTags(pick(SUBJECTS) + "," + pick(LAWS));
+            kb.setLawType(pick(LAWS));
+            return kb;
+        });
+    }
+    
+    private void load(BulkImportService importService, String type, int count, IntFunction<Object> generator)
+            throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            ndjson.append(JSON.toJSONString(generator.apply(i))).append('\n');
+        }
+        Map<String, Object> result = importService.importData(type, BulkImportService.NDJSON,
+                new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)));
+        log.info("导入{}: {}", type, result);
+    }
+    
+    private String paragraph(int clauses) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < clauses; i++) {
+            sb.append("根据《").append(pick(LAWS)).append("》第").append(1 + random.nextInt(1200)).append("条，")
+                    .append(pick(CLAUSES)).append("。");
+        }
+        return sb.toString();
+    }
+    
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+    
+    List<String> questions(int size) {
+        List<String> questions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            questions.add(question());
+        }
+        return questions;
+    }
+}
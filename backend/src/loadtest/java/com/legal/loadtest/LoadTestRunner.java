@@ -0,0 +1,350 @@
+package com.legal.loadtest;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import com.legal.LegalQaApplication;
+import com.legal.service.BulkImportService;
+import com.legal.service.DeepSeekService;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import okio.BufferedSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测：启动本地模拟DeepSeek接口与使用内嵌数据库的应用，导入压测数据后，
+ * 以固定并发的闭环负载按权重访问提问、检索与历史接口，输出各接口吞吐量与p50/p95/p99延迟
+ * <p>
+ * 参数均为 --名称=值 形式，见 {@link #DEFAULTS}
+ */
+@Slf4j
+public class LoadTestRunner {
+    
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    
+    static {
+        DEFAULTS.put("duration", "60");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("threads", "32");
+        DEFAULTS.put("think-ms", "0");
+        DEFAULTS.put("users", "20");
+        DEFAULTS.put("question-pool", "2000");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("articles", "5000");
+        DEFAULTS.put("cases", "1000");
+        DEFAULTS.put("concepts", "300");
+        DEFAULTS.put("knowledge", "5000");
+        DEFAULTS.put("llm-latency", "lognormal:800:0.5");
+        DEFAULTS.put("llm-error-rate", "0.01");
+        DEFAULTS.put("llm-error-codes", "429,503");
+        DEFAULTS.put("stream-chunk", "20");
+        DEFAULTS.put("mix", "ask:2,ask-stream:1,article-search:2,case-search:1,concept-search:1,history:2");
+        DEFAULTS.put("report", "target/loadtest-report.json");
+        DEFAULTS.put("metrics", "target/loadtest-metrics.txt");
+    }
+    
+    private static final MediaType JSON_TYPE = MediaType.parse("application/json");
+    
+    private static final String FIRST_TOKEN = "ask-stream.first-token";
+    
+    private final Map<String, String> options;
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final List<String> weightedEndpoints = new ArrayList<>();
+    
+    private OkHttpClient client;
+    private String baseUrl;
+    private List<String> tokens;
+    private List<String> questions;
+    private List<String> keywords;
+    
+    private LoadTestRunner(Map<String, String> options) {
+        this.options = options;
+        for (String entry : options.get("mix").split(",")) {
+            String[] parts = entry.split(":");
+            String endpoint = parts[0].trim();
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            recorders.put(endpoint, new LatencyRecorder(endpoint));
+            for (int i = 0; i < weight; i++) {
+                weightedEndpoints.add(endpoint);
+            }
+        }
+        if (recorders.containsKey("ask-stream")) {
+            recorders.put(FIRST_TOKEN, new LatencyRecorder(FIRST_TOKEN));
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --名称=值: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("未知参数: " + name + "，可选 " + DEFAULTS.keySet());
+            }
+            options.put(name, arg.substring(arg.indexOf('=') + 1));
+        }
+        int exitCode = 0;
+        try {
+            new LoadTestRunner(options).run();
+        } catch (Exception e) {
+            log.error("压测失败", e);
+            exitCode = 1;
+        }
+        System.exit(exitCode);
+    }
+    
+    private void run() throws Exception {
+        int[] errorCodes = Arrays.stream(options.get("llm-error-codes").split(","))
+                .mapToInt(code -> Integer.parseInt(code.trim())).toArray();
+        try (FakeDeepSeekServer llm = new FakeDeepSeekServer(LatencyModel.parse(options.get("llm-latency")),
+                Double.parseDouble(options.get("llm-error-rate")), errorCodes, intOption("stream-chunk"))) {
+            llm.start();
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(LegalQaApplication.class)
+                    .profiles("loadtest")
+                    .run("--deepseek.api.url=" + llm.getUrl());
+            try {
+                baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+                int threads = intOption("threads");
+                client = new OkHttpClient.Builder()
+                        .connectionPool(new ConnectionPool(threads, 5, TimeUnit.MINUTES))
+                        .readTimeout(120, TimeUnit.SECONDS)
+                        .build();
+                
+                LoadTestData data = new LoadTestData(Long.parseLong(options.get("seed")));
+                data.seed(context.getBean(BulkImportService.class), intOption("articles"), intOption("cases"),
+                        intOption("concepts"), intOption("knowledge"));
+                questions = data.questions(intOption("question-pool"));
+                keywords = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    keywords.add(data.keyword());
+                }
+                tokens = registerUsers(intOption("users"));
+                
+                double seconds = drive(threads);
+                Map<String, Object> report = report(seconds, llm.getStats(),
+                        context.getBean(DeepSeekService.class).getLimiterStats());
+                print(report);
+                Path path = Paths.get(options.get("report"));
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                Files.write(path, JSON.toJSONString(report, JSONWriter.Feature.PrettyFormat)
+                        .getBytes(StandardCharsets.UTF_8));
+                log.info("压测报告已写入 {}", path.toAbsolutePath());
+                scrapeMetrics(Paths.get(options.get("metrics")));
+            } finally {
+                context.close();
+            }
+        }
+    }
+    
+    /**
+     * 保存压测结束时应用的Prometheus指标，便于对照各阶段耗时
+     */
+    private void scrapeMetrics(Path path) throws IOException {
+        Request request = new Request.Builder().url(baseUrl + "/actuator/prometheus").build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                log.warn("读取应用指标失败: {}", response.code());
+                return;
+            }
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, response.body().bytes());
+            log.info("应用指标已写入 {}", path.toAbsolutePath());
+        }
+    }
+    
+    private List<String> registerUsers(int count) throws IOException {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            JSONObject body = new JSONObject();
+            body.put("username", "loadtest" + i);
+            body.put("password", "loadtest" + i);
+            Request request = new Request.Builder().url(baseUrl + "/auth/register")
+                    .post(RequestBody.create(body.toJSONString(), JSON_TYPE)).build();
+            try (Response response = client.newCall(request).execute()) {
+                JSONObject json = JSON.parseObject(response.body().string());
+                if (json.getIntValue("code") != 200) {
+                    throw new IllegalStateException("注册压测用户失败: " + json);
+                }
+                result.add(json.getJSONObject("data").getString("token"));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 每个线程循环发送请求直到结束，预热期内的请求不计入统计；返回统计时长（秒）
+     */
+    private double drive(int threads) throws InterruptedException {
+        long warmupNanos = TimeUnit.SECONDS.toNanos(intOption("warmup"));
+        long durationNanos = TimeUnit.SECONDS.toNanos(intOption("duration"));
+        long thinkMs = intOption("think-ms");
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        log.info("开始压测：{}线程，预热{}秒，统计{}秒，请求比例 {}", threads, intOption("warmup"),
+                intOption("duration"), options.get("mix"));
+        
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String token = tokens.get(t % tokens.size());
+            Thread worker = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        String endpoint = weightedEndpoints.get(
+                                ThreadLocalRandom.current().nextInt(weightedEndpoints.size()));
+                        call(endpoint, token, System.nanoTime() >= measureFrom);
+                        if (thinkMs > 0) {
+                            Thread.sleep(thinkMs);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+        return durationNanos / 1e9;
+    }
+    
+    private void call(String endpoint, String token, boolean measured) {
+        Request request = buildRequest(endpoint, token);
+        long start = System.nanoTime();
+        boolean success;
+        try (Response response = client.newCall(request).execute()) {
+            if ("ask-stream".equals(endpoint)) {
+                success = response.isSuccessful() && readStream(response.body().source(), start, measured);
+            } else {
+                JSONObject json = response.isSuccessful() ? JSON.parseObject(response.body().string()) : null;
+                success = json != null && json.getIntValue("code") == 200
+                        && !("ask".equals(endpoint) && isFallback(json.getJSONObject("data")));
+            }
+        } catch (Exception e) {
+            log.debug("请求失败: {} {}", endpoint, e.getMessage());
+            success = false;
+        }
+        if (measured) {
+            recorders.get(endpoint).record(System.nanoTime() - start, success);
+        }
+    }
+    
+    /**
+     * 读取SSE响应：记录首个token事件的到达时间，done事件中的答案不是兜底答案视为成功
+     */
+    private boolean readStream(BufferedSource source, long start, boolean measured) throws IOException {
+        boolean firstToken = true;
+        boolean done = false;
+        boolean success = false;
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.startsWith("event:token") && firstToken) {
+                firstToken = false;
+                if (measured) {
+                    recorders.get(FIRST_TOKEN).record(System.nanoTime() - start, true);
+                }
+            } else if (line.startsWith("event:done")) {
+                done = true;
+            } else if (line.startsWith("event:error")) {
+                return false;
+            } else if (done && line.startsWith("data:")) {
+                success = !isFallback(JSON.parseObject(line.substring(5)));
+                done = false;
+            }
+        }
+        return success;
+    }
+    
+    /**
+     * 模拟接口返回错误时应用以兜底答案应答，计为失败
+     */
+    private boolean isFallback(JSONObject result) {
+        String answer = result == null ? null : result.getString("answer");
+        return answer == null || DeepSeekService.SERVICE_UNAVAILABLE.equals(answer)
+                || DeepSeekService.GENERATION_FAILED.equals(answer);
+    }
+    
+    private Request buildRequest(String endpoint, String token) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Request.Builder builder = new Request.Builder().header("Authorization", "Bearer " + token);
+        switch (endpoint) {
+            case "ask":
+            case "ask-stream":
+                JSONObject body = new JSONObject();
+                body.put("question", questions.get(random.nextInt(questions.size())));
+                return builder.url(baseUrl + ("ask".equals(endpoint) ? "/qa/ask" : "/qa/ask/stream"))
+                        .post(RequestBody.create(body.toJSONString(), JSON_TYPE)).build();
+            case "article-search":
+                return builder.url(baseUrl + "/legal/article/search?keyword=" + keyword(random)).build();
+            case "case-search":
+                return builder.url(baseUrl + "/legal/case/search?keyword=" + keyword(random)).build();
+            case "concept-search":
+                return builder.url(baseUrl + "/legal/concept/search?keyword=" + keyword(random)).build();
+            case "history":
+                return builder.url(baseUrl + "/qa/history?size=10").build();
+            default:
+                throw new IllegalArgumentException("未知的压测接口: " + endpoint);
+        }
+    }
+    
+    private String keyword(ThreadLocalRandom random) {
+        try {
+            return URLEncoder.encode(keywords.get(random.nextInt(keywords.size())), "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private Map<String, Object> report(double seconds, Map<String, Object> llmStats, Map<String, Object> limiterStats) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (LatencyRecorder recorder : recorders.values()) {
+            endpoints.put(recorder.getName(), recorder.report(seconds));
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("seconds", seconds);
+        report.put("endpoints", endpoints);
+        report.put("llm", llmStats);
+        report.put("limiter", limiterStats);
+        return report;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void print(Map<String, Object> report) {
+        StringBuilder table = new StringBuilder("\n");
+        table.append(String.format("%-24s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)"));
+        Map<String, Object> endpoints = (Map<String, Object>) report.get("endpoints");
+        for (Map.Entry<String, Object> e : endpoints.entrySet()) {
+            Map<String, Object> r = (Map<String, Object>) e.getValue();
+            table.append(String.format("%-24s %9s %7s %9s %9s %9s %9s %9s%n", e.getKey(), r.get("requests"),
+                    r.get("errors"), r.get("throughput"), r.get("p50Ms"), r.get("p95Ms"), r.get("p99Ms"), r.get("maxMs")));
+        }
+        table.append("模拟DeepSeek: ").append(report.get("llm"));
+        log.info(table.toString());
+    }
+    
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+}
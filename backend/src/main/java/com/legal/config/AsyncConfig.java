@@ -0,0 +1,61 @@
+package com.legal.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+    
+    @Value("${qa.pipeline.pool-size:32}")
+    private Integer poolSize;
+    
+    @Value("${qa.pipeline.keep-alive-seconds:60}")
+    private Integer keepAliveSeconds;
+    
+    @Value("${qa.pipeline.queue-capacity:200}")
+    private Integer queueCapacity;
+    
+    @Value("${qa.pipeline.stream-size:16}")
+    private Integer streamPoolSize;
+    
+    /**
+     * 问答流水线专用线程池（有界队列，满载时由调用线程执行，形成背压）
+     * ThreadPoolExecutor 只在队列满后才创建超过核心数的线程，因此核心数与最大数相同，
+     * 有任务排队前先用满全部线程，空闲线程超时回收
+     */
+    @Bean(name = "qaPipelineExecutor")
+    public ThreadPoolTaskExecutor qaPipelineExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("qa-pipeline-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 流式问答线程池，每个SSE连接占用一个线程驱动整条流水线
+     * 与流水线线程池分开，避免外层任务等待内层任务造成线程饥饿
+     */
+    @Bean(name = "qaStreamExecutor")
+    public ThreadPoolTaskExecutor qaStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamPoolSize);
+        executor.setMaxPoolSize(streamPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("qa-stream-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
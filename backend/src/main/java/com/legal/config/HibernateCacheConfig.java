@@ -0,0 +1,76 @@
+package com.legal.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalCase;
+import com.legal.entity.LegalConcept;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate二级缓存与查询缓存（JCache，Caffeine实现）
+ * 各缓存区域按配置单独限制容量；写入经由JPA时由Hibernate自动失效
+ */
+@Configuration
+public class HibernateCacheConfig {
+    
+    public static final String QUERY_REGION = "default-query-results-region";
+    public static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+    
+    @Value("${qa.l2cache.article-max-size:20000}")
+    private Long articleMaxSize;
+    
+    @Value("${qa.l2cache.case-max-size:5000}")
+    private Long caseMaxSize;
+    
+    @Value("${qa.l2cache.concept-max-size:5000}")
+    private Long conceptMaxSize;
+    
+    @Value("${qa.l2cache.query-max-size:2000}")
+    private Long queryMaxSize;
+    
+    @Value("${qa.l2cache.ttl-minutes:60}")
+    private Long ttlMinutes;
+    
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching
+                .getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        createRegion(cacheManager, LegalArticle.class.getName(), articleMaxSize, ttlMinutes);
+        createRegion(cacheManager, LegalCase.class.getName(), caseMaxSize, ttlMinutes);
+        createRegion(cacheManager, LegalConcept.class.getName(), conceptMaxSize, ttlMinutes);
+        createRegion(cacheManager, QUERY_REGION, queryMaxSize, ttlMinutes);
+        // 时间戳区域记录各表最后修改时间，不能被淘汰，否则查询缓存可能返回过期结果
+        createRegion(cacheManager, TIMESTAMPS_REGION, null, null);
+        return cacheManager;
+    }
+    
+    private void createRegion(CacheManager cacheManager, String name, Long maxSize, Long ttl) {
+        if (cacheManager.getCache(name) != null) {
+            return;
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (maxSize != null) {
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        if (ttl != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MINUTES.toNanos(ttl)));
+        }
+        configuration.setStatisticsEnabled(true);
+        cacheManager.createCache(name, configuration);
+    }
+    
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+    }
+}
@@ -0,0 +1,44 @@
+package com.legal.config;
+
+import com.legal.dto.JwtPrincipal;
+import com.legal.util.JwtUtil;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * JWT认证过滤器：每个请求只验证一次Token，通过后将 JwtPrincipal 放入SecurityContext
+ * Token缺失或无效时按匿名请求继续，由各接口自行决定是否要求登录
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    private final JwtUtil jwtUtil;
+    
+    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            JwtPrincipal principal = jwtUtil.verify(header.substring(BEARER_PREFIX.length()));
+            if (principal != null) {
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList());
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
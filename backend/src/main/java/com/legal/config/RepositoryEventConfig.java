@@ -0,0 +1,65 @@
+package com.legal.config;
+
+import com.legal.service.QaTrace;
+import com.legal.util.RepositoryQueryEvent;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.util.Collection;
+
+/**
+ * 为Spring Data仓库代理加入拦截器：问答流水线中的仓库方法调用记录为JFR事件
+ * 不在流水线中或未开启录制时只多一次线程变量读取
+ */
+@Configuration
+public class RepositoryEventConfig {
+    
+    /**
+     * repository为仓库接口名；继承自JpaRepository的方法也归入该仓库
+     */
+    private static MethodInterceptor interceptor(String repository) {
+        return invocation -> {
+            QaTrace trace = QaTrace.current();
+            if (trace == null) {
+                return invocation.proceed();
+            }
+            RepositoryQueryEvent event = new RepositoryQueryEvent(repository, invocation.getMethod().getName());
+            if (!event.isEnabled()) {
+                return invocation.proceed();
+            }
+            event.begin();
+            try {
+                Object result = invocation.proceed();
+                if (result instanceof Collection) {
+                    event.rows = ((Collection<?>) result).size();
+                } else if (result instanceof Slice) {
+                    event.rows = ((Slice<?>) result).getNumberOfElements();
+                }
+                return result;
+            } finally {
+                event.end();
+                trace.add(event);
+            }
+        };
+    }
+    
+    @Bean
+    public static BeanPostProcessor repositoryEventPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(interceptor(
+                                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,19 +1,30 @@
 package com.legal.controller;
 
 import com.legal.dto.ApiResponse;
+import com.legal.dto.JwtPrincipal;
+import com.legal.dto.KeysetPage;
+import com.legal.dto.QuestionExportFilter;
 import com.legal.entity.*;
-import com.legal.repository.QuestionAnswerRepository;
 import com.legal.service.*;
+import com.legal.util.JwtUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RestController
@@ -34,19 +45,59 @@ public class AdminController {
     private LegalConceptService legalConceptService;
     
     @Autowired
-    private QuestionAnswerRepository questionAnswerRepository;
+    private QuestionAnswerService questionAnswerService;
+    
+    @Autowired
+    private StatsRollupService statsRollupService;
+    
+    @Autowired
+    private JwtUtil jwtUtil;
+    
+    @Autowired
+    private BulkImportService bulkImportService;
+    
+    @Autowired
+    private AnswerCacheService answerCacheService;
+    
+    @Autowired
+    private QuestionClassifierService questionClassifierService;
+    
+    @Autowired
+    private EntityDictionaryService entityDictionaryService;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Autowired
+    private SemanticIndexService semanticIndexService;
+    
+    @Autowired
+    private DeepSeekService deepSeekService;
+    
+    @Autowired
+    private QuestionAnswerWriter questionAnswerWriter;
+    
+    @Autowired
+    private SecondLevelCacheService secondLevelCacheService;
+    
+    @Autowired
+    private FlightRecorderService flightRecorderService;
+    
+    @Autowired
+    private ConversationMemoryService conversationMemoryService;
     
     // 知识库管理
     @GetMapping("/knowledge")
-    public ApiResponse<Page<KnowledgeBase>> getKnowledge(
+    public ApiResponse<KeysetPage<KnowledgeBase>> getKnowledge(
             @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "10") Integer size) {
-        Pageable pageable = PageRequest.of(page, size);
-        if (keyword != null && !keyword.isEmpty()) {
-            return ApiResponse.success(knowledgeBaseService.searchKnowledge(keyword, pageable));
+        try {
+            return ApiResponse.success(knowledgeBaseService.listKnowledge(keyword, cursor, page, size));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
         }
-        return ApiResponse.success(knowledgeBaseService.searchKnowledge("", pageable));
     }
     
     @PostMapping("/knowledge")
@@ -120,26 +171,284 @@ public class AdminController {
         return ApiResponse.success("删除成功");
     }
     
+    // 批量导入
+    /**
+     * 导入NDJSON或CSV语料，type为articles、cases、concepts或knowledge
+     * 格式取自format参数，未指定时按Content-Type判断
+     */
+    @PostMapping("/import/{type}")
+    public ApiResponse<Map<String, Object>> importData(
+            @PathVariable String type,
+            @RequestParam(required = false) String format,
+            HttpServletRequest request) {
+        if (format == null) {
+            String contentType = request.getContentType();
+            format = contentType != null && contentType.contains("csv") ? BulkImportService.CSV : BulkImportService.NDJSON;
+        }
+        try {
+            return ApiResponse.success(bulkImportService.importData(type, format, request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        } catch (IOException e) {
+            log.error("读取导入数据失败", e);
+            return ApiResponse.error("读取导入数据失败：" + e.getMessage());
+        }
+    }
+    
+    @GetMapping("/import/jobs")
+    public ApiResponse<List<Map<String, Object>>> getImportJobs() {
+        return ApiResponse.success(bulkImportService.getJobs());
+    }
+    
     // 统计数据
     @GetMapping("/stats")
     public ApiResponse<Map<String, Object>> getStats() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("todayQuestions", questionAnswerRepository.countTodayQuestions());
-        stats.put("questionTypes", questionAnswerRepository.countByQuestionType());
-        return ApiResponse.success(stats);
+        return ApiResponse.success(statsRollupService.getSummary());
+    }
+    
+    /**
+     * 统计时间序列，granularity为hour或day；默认最近24小时或最近30天
+     */
+    @GetMapping("/stats/timeseries")
+    public ApiResponse<Map<String, Object>> getStatsTimeSeries(
+            @RequestParam(defaultValue = StatsRollupService.HOUR) String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from
+                : StatsRollupService.DAY.equals(granularity) ? end.minusDays(29) : end.minusHours(23);
+        try {
+            return ApiResponse.success(statsRollupService.getTimeSeries(granularity, start, end));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        }
+    }
+    
+    @PostMapping("/stats/rebuild")
+    public ApiResponse<Map<String, Object>> rebuildStats() {
+        return ApiResponse.success(statsRollupService.rebuild());
+    }
+    
+    // 问答缓存
+    @GetMapping("/cache/stats")
+    public ApiResponse<Map<String, Object>> getCacheStats() {
+        return ApiResponse.success(answerCacheService.getStats());
+    }
+    
+    @DeleteMapping("/cache")
+    public ApiResponse<?> clearCache() {
+        answerCacheService.clear();
+        return ApiResponse.success("缓存已清空");
+    }
+    
+    // 二级缓存
+    @GetMapping("/l2cache/stats")
+    public ApiResponse<Map<String, Object>> getSecondLevelCacheStats() {
+        return ApiResponse.success(secondLevelCacheService.getStats());
+    }
+    
+    @DeleteMapping("/l2cache")
+    public ApiResponse<?> clearSecondLevelCache() {
+        secondLevelCacheService.evictAll();
+        return ApiResponse.success("二级缓存已清空");
+    }
+    
+    // 已验证Token缓存
+    @GetMapping("/jwt/cache/stats")
+    public ApiResponse<Map<String, Object>> getTokenCacheStats() {
+        return ApiResponse.success(jwtUtil.getCacheStats());
+    }
+    
+    // LLM调用
+    @GetMapping("/llm/coalescing/stats")
+    public ApiResponse<Map<String, Object>> getCoalescingStats() {
+        return ApiResponse.success(deepSeekService.getCoalescingStats());
+    }
+    
+    @GetMapping("/llm/limiter/stats")
+    public ApiResponse<Map<String, Object>> getLimiterStats() {
+        return ApiResponse.success(deepSeekService.getLimiterStats());
+    }
+    
+    // 多轮对话记忆
+    @GetMapping("/conversation/stats")
+    public ApiResponse<Map<String, Object>> getConversationStats() {
+        return ApiResponse.success(conversationMemoryService.getStats());
+    }
+    
+    // JFR录制（qa.jfr.endpoints-enabled开启且已登录时可用）
+    /**
+     * 开启JFR录制，settings为default或profile，未指定的参数取配置值
+     */
+    @PostMapping("/jfr/start")
+    public ApiResponse<Map<String, Object>> startRecording(
+            @RequestParam(required = false) String settings,
+            @RequestParam(required = false) Long maxAgeMinutes,
+            @RequestParam(required = false) Long maxSizeMb,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        ApiResponse<Map<String, Object>> denied = checkJfrAccess(principal);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            return ApiResponse.success(flightRecorderService.start(settings, maxAgeMinutes, maxSizeMb));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        }
+    }
+    
+    @PostMapping("/jfr/stop")
+    public ApiResponse<Map<String, Object>> stopRecording(@AuthenticationPrincipal JwtPrincipal principal) {
+        ApiResponse<Map<String, Object>> denied = checkJfrAccess(principal);
+        return denied != null ? denied : ApiResponse.success(flightRecorderService.stop());
+    }
+    
+    @GetMapping("/jfr/status")
+    public ApiResponse<Map<String, Object>> getRecordingStatus(@AuthenticationPrincipal JwtPrincipal principal) {
+        ApiResponse<Map<String, Object>> denied = checkJfrAccess(principal);
+        return denied != null ? denied : ApiResponse.success(flightRecorderService.getStatus());
+    }
+    
+    /**
+     * 导出录制内容并作为附件下载，临时文件在写出后删除
+     */
+    @PostMapping("/jfr/dump")
+    public ResponseEntity<StreamingResponseBody> dumpRecording(@AuthenticationPrincipal JwtPrincipal principal) {
+        if (!flightRecorderService.isEndpointsEnabled()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Path file;
+        try {
+            file = flightRecorderService.dump();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("导出JFR录制失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+        log.info("用户{}下载JFR录制", principal.getUsername());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + flightRecorderService.dumpFileName() + "\"")
+                .body(out -> flightRecorderService.transfer(file, out));
+    }
+    
+    private ApiResponse<Map<String, Object>> checkJfrAccess(JwtPrincipal principal) {
+        if (!flightRecorderService.isEndpointsEnabled()) {
+            return ApiResponse.error(403, "JFR接口未开启");
+        }
+        if (principal == null) {
+            return ApiResponse.error(401, "未登录");
+        }
+        return null;
+    }
+    
+    // 本地问题分类器
+    @GetMapping("/classifier/stats")
+    public ApiResponse<Map<String, Object>> getClassifierStats() {
+        return ApiResponse.success(questionClassifierService.getStats());
+    }
+    
+    @PostMapping("/classifier/retrain")
+    public ApiResponse<Map<String, Object>> retrainClassifier() {
+        questionClassifierService.retrain();
+        return ApiResponse.success(questionClassifierService.getStats());
+    }
+    
+    // 实体词典
+    @GetMapping("/entity-dictionary/stats")
+    public ApiResponse<Map<String, Object>> getEntityDictionaryStats() {
+        return ApiResponse.success(entityDictionaryService.getStats());
+    }
+    
+    @PostMapping("/entity-dictionary/reload")
+    public ApiResponse<Map<String, Object>> reloadEntityDictionary() {
+        entityDictionaryService.reload();
+        return ApiResponse.success(entityDictionaryService.getStats());
+    }
+    
+    // 检索索引
+    @GetMapping("/search-index/stats")
+    public ApiResponse<Map<String, Object>> getSearchIndexStats() {
+        return ApiResponse.success(searchIndexService.getStats());
+    }
+    
+    @PostMapping("/search-index/rebuild")
+    public ApiResponse<Map<String, Object>> rebuildSearchIndex() {
+        searchIndexService.rebuild();
+        return ApiResponse.success(searchIndexService.getStats());
+    }
+    
+    // 语义检索索引
+    @GetMapping("/semantic/stats")
+    public ApiResponse<Map<String, Object>> getSemanticStats() {
+        return ApiResponse.success(semanticIndexService.getStats());
+    }
+    
+    @PostMapping("/semantic/rebuild")
+    public ApiResponse<Map<String, Object>> rebuildSemanticIndex() {
+        semanticIndexService.rebuild();
+        return ApiResponse.success(semanticIndexService.getStats());
+    }
+    
+    @GetMapping("/semantic/benchmark")
+    public ApiResponse<Map<String, Object>> benchmarkSemanticIndex(
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(defaultValue = "100") int queries) {
+        return ApiResponse.success(semanticIndexService.benchmark(k, queries));
     }
     
     // 问答记录管理
+    @GetMapping("/qa/writer/stats")
+    public ApiResponse<Map<String, Object>> getQaWriterStats() {
+        return ApiResponse.success(questionAnswerWriter.getStats());
+    }
+    
     @GetMapping("/qa")
-    public ApiResponse<Page<QuestionAnswer>> getQARecords(
+    public ApiResponse<KeysetPage<QuestionAnswer>> getQARecords(
             @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "10") Integer size) {
-        Pageable pageable = PageRequest.of(page, size);
-        if (keyword != null && !keyword.isEmpty()) {
-            return ApiResponse.success(questionAnswerRepository.findByQuestionContaining(keyword, pageable));
+        try {
+            return ApiResponse.success(questionAnswerService.listQuestions(keyword, cursor, page, size));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        }
+    }
+    
+    /**
+     * 流式导出问答记录，format为ndjson或csv，gzip=true时压缩输出
+     */
+    @GetMapping("/qa/export")
+    public ResponseEntity<StreamingResponseBody> exportQARecords(
+            QuestionExportFilter filter,
+            @RequestParam(defaultValue = BulkImportService.NDJSON) String format,
+            @RequestParam(defaultValue = "false") Boolean gzip) {
+        if (!BulkImportService.NDJSON.equals(format) && !BulkImportService.CSV.equals(format)) {
+            return ResponseEntity.badRequest().build();
         }
-        return ApiResponse.success(questionAnswerRepository.findAll(pageable));
+        String filename = "question_answers." + format + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : BulkImportService.CSV.equals(format) ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                questionAnswerService.exportQuestions(filter, format, gzipOut);
+                gzipOut.finish();
+            } else {
+                questionAnswerService.exportQuestions(filter, format, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
     }
 }
 
@@ -1,6 +1,7 @@
 package com.legal.controller;
 
 import com.legal.dto.ApiResponse;
+import com.legal.dto.KeysetPage;
 import com.legal.entity.LegalArticle;
 import com.legal.service.LegalArticleService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,14 +9,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/legal/article")
 @CrossOrigin
 public class LegalArticleController {
     
+    private static final String NDJSON = "application/x-ndjson";
+    
     @Autowired
     private LegalArticleService legalArticleService;
     
@@ -29,8 +31,16 @@ public class LegalArticleController {
     }
     
     @GetMapping("/type/{lawType}")
-    public ApiResponse<List<LegalArticle>> getArticlesByType(@PathVariable String lawType) {
-        return ApiResponse.success(legalArticleService.getArticlesByLawType(lawType));
+    public ApiResponse<KeysetPage<LegalArticle>> getArticlesByType(
+            @PathVariable String lawType,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") Integer size) {
+        return ApiResponse.success(legalArticleService.getArticlesByLawType(lawType, cursor, size));
+    }
+    
+    @GetMapping(value = "/type/{lawType}", params = "format=ndjson", produces = NDJSON)
+    public StreamingResponseBody exportArticlesByType(@PathVariable String lawType) {
+        return out -> legalArticleService.streamArticles(lawType, out);
     }
     
     @GetMapping("/{id}")
@@ -41,8 +51,15 @@ public class LegalArticleController {
     }
     
     @GetMapping("/all")
-    public ApiResponse<List<LegalArticle>> getAllArticles() {
-        return ApiResponse.success(legalArticleService.getAllValidArticles());
+    public ApiResponse<KeysetPage<LegalArticle>> getAllArticles(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") Integer size) {
+        return ApiResponse.success(legalArticleService.getValidArticles(cursor, size));
+    }
+    
+    @GetMapping(value = "/all", params = "format=ndjson", produces = NDJSON)
+    public StreamingResponseBody exportAllArticles() {
+        return out -> legalArticleService.streamArticles(null, out);
     }
 }
 
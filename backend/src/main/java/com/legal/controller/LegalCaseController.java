@@ -1,6 +1,7 @@
 package com.legal.controller;
 
 import com.legal.dto.ApiResponse;
+import com.legal.dto.KeysetPage;
 import com.legal.entity.LegalCase;
 import com.legal.service.LegalCaseService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,8 +9,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/legal/case")
@@ -29,8 +29,16 @@ public class LegalCaseController {
     }
     
     @GetMapping("/type/{lawType}")
-    public ApiResponse<List<LegalCase>> getCasesByType(@PathVariable String lawType) {
-        return ApiResponse.success(legalCaseService.getCasesByLawType(lawType));
+    public ApiResponse<KeysetPage<LegalCase>> getCasesByType(
+            @PathVariable String lawType,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") Integer size) {
+        return ApiResponse.success(legalCaseService.getCasesByLawType(lawType, cursor, size));
+    }
+    
+    @GetMapping(value = "/type/{lawType}", params = "format=ndjson", produces = "application/x-ndjson")
+    public StreamingResponseBody exportCasesByType(@PathVariable String lawType) {
+        return out -> legalCaseService.streamCasesByLawType(lawType, out);
     }
     
     @GetMapping("/{id}")
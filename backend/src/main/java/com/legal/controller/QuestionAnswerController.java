@@ -1,17 +1,24 @@
 package com.legal.controller;
 
 import com.legal.dto.ApiResponse;
+import com.legal.dto.JwtPrincipal;
+import com.legal.dto.KeysetPage;
+import com.legal.entity.QuestionAnswer;
+import com.legal.service.DeepSeekService;
 import com.legal.service.QuestionAnswerService;
-import com.legal.util.JwtUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -23,7 +30,14 @@ public class QuestionAnswerController {
     private QuestionAnswerService questionAnswerService;
     
     @Autowired
-    private JwtUtil jwtUtil;
+    private DeepSeekService deepSeekService;
+    
+    @Autowired
+    @Qualifier("qaStreamExecutor")
+    private Executor qaStreamExecutor;
+    
+    @Value("${qa.pipeline.stream-timeout:120000}")
+    private Long streamTimeout;
     
     /**
      * 提问
@@ -31,20 +45,12 @@ public class QuestionAnswerController {
     @PostMapping("/ask")
     public ApiResponse<Map<String, Object>> askQuestion(
             @RequestBody Map<String, String> request,
-            HttpServletRequest httpRequest) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
         try {
             String question = request.get("question");
             String sessionId = request.getOrDefault("sessionId", generateSessionId());
             
-            String token = httpRequest.getHeader("Authorization");
-            Long userId = null;
-            if (token != null && token.startsWith("Bearer ")) {
-                token = token.substring(7);
-                if (jwtUtil.validateToken(token)) {
-                    userId = jwtUtil.getUserIdFromToken(token);
-                }
-            }
-            
+            Long userId = principal != null ? principal.getUserId() : null;
             Map<String, Object> result = questionAnswerService.processQuestion(question, userId, sessionId);
             return ApiResponse.success(result);
         } catch (Exception e) {
@@ -53,29 +59,68 @@ public class QuestionAnswerController {
         }
     }
     
+    /**
+     * 流式提问（SSE）：token事件逐段推送答案，done事件推送完整结果
+     * 生成失败或中断时以error事件推送兜底答案，客户端应丢弃已收到的token
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter askQuestionStream(
+            @RequestBody Map<String, String> request,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        String question = request.get("question");
+        String sessionId = request.getOrDefault("sessionId", generateSessionId());
+        
+        Long userId = principal != null ? principal.getUserId() : null;
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        try {
+            qaStreamExecutor.execute(() -> {
+                try {
+                    Map<String, Object> result = questionAnswerService.processQuestion(
+                            question, userId, sessionId, delta -> sendEvent(emitter, "token", delta));
+                    String answer = (String) result.get("answer");
+                    if (deepSeekService.isFallbackAnswer(answer)) {
+                        sendEvent(emitter, "error", answer);
+                    } else {
+                        sendEvent(emitter, "done", result);
+                    }
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.error("流式处理问题失败", e);
+                    sendEvent(emitter, "error", "处理问题失败：" + e.getMessage());
+                    emitter.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("流式问答线程池已满，拒绝请求");
+            sendEvent(emitter, "error", "服务繁忙，请稍后再试");
+            emitter.complete();
+        }
+        return emitter;
+    }
+    
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开，继续生成以保存完整问答记录
+            log.debug("SSE推送失败: {}", e.getMessage());
+        }
+    }
+    
     /**
      * 获取问答历史
      */
     @GetMapping("/history")
-    public ApiResponse<Page<?>> getHistory(
+    public ApiResponse<KeysetPage<QuestionAnswer>> getHistory(
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "10") Integer size,
-            HttpServletRequest request) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
         try {
-            String token = request.getHeader("Authorization");
-            if (token == null || !token.startsWith("Bearer ")) {
+            if (principal == null) {
                 return ApiResponse.error(401, "未登录");
             }
-            
-            token = token.substring(7);
-            if (!jwtUtil.validateToken(token)) {
-                return ApiResponse.error(401, "Token无效");
-            }
-            
-            Long userId = jwtUtil.getUserIdFromToken(token);
-            Pageable pageable = PageRequest.of(page, size);
-            Page<?> history = questionAnswerService.getQuestionHistory(userId, pageable);
-            return ApiResponse.success(history);
+            return ApiResponse.success(questionAnswerService.getQuestionHistory(principal.getUserId(), cursor, page, size));
         } catch (Exception e) {
             log.error("获取历史失败", e);
             return ApiResponse.error("获取历史失败：" + e.getMessage());
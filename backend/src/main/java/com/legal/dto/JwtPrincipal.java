@@ -0,0 +1,15 @@
+package com.legal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 已验证Token中的登录用户信息，由认证过滤器放入SecurityContext
+ */
+@Data
+@AllArgsConstructor
+public class JwtPrincipal {
+    private Long userId;
+    private String username;
+    private Long expiresAt;
+}
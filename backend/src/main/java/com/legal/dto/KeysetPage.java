@@ -0,0 +1,23 @@
+package com.legal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页结果：nextCursor为下一页的起点，为空表示没有更多数据
+ * totalElements为缓存的近似总数，仅用于展示，不随每页查询精确统计
+ */
+@Data
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> content;
+    private Integer size;
+    private String nextCursor;
+    private Long totalElements;
+
+    public KeysetPage(List<T> content, Integer size, String nextCursor) {
+        this(content, size, nextCursor, null);
+    }
+}
@@ -0,0 +1,24 @@
+package com.legal.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * 问答记录导出条件，均为可选；feedbackType为none时导出未反馈的记录
+ */
+@Data
+public class QuestionExportFilter {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private String questionType;
+
+    private Long userId;
+
+    private String feedbackType;
+}
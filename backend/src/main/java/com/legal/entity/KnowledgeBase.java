@@ -6,7 +6,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "knowledge_base")
+@Table(name = "knowledge_base", indexes = @Index(name = "idx_kb_create_time_id", columnList = "create_time, id"))
 public class KnowledgeBase {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
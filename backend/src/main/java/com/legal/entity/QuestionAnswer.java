@@ -6,7 +6,12 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "question_answers")
+@Table(name = "question_answers", indexes = {
+        @Index(name = "idx_user_create_time", columnList = "user_id, create_time, id"),
+        @Index(name = "idx_create_time_id", columnList = "create_time, id"),
+        @Index(name = "idx_session_create_time", columnList = "session_id, create_time, id"),
+        @Index(name = "idx_type_source_id", columnList = "question_type_source, id")
+})
 public class QuestionAnswer {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,6 +29,9 @@ public class QuestionAnswer {
     @Column(name = "question_type")
     private String questionType; // 法条查询、概念定义、程序咨询、案例分析
 
+    @Column(name = "question_type_source", length = 16)
+    private String questionTypeSource; // 分类来源：llm、local（本地分类器）、cache；LLM分类失败时为空
+
     @Column(name = "confidence_score")
     private Double confidenceScore; // 可信度评分 0-1
 
@@ -3,9 +3,12 @@ package com.legal.repository;
 import com.legal.entity.KnowledgeBase;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -16,5 +19,21 @@ public interface KnowledgeBaseRepository extends JpaRepository<KnowledgeBase, Lo
     
     @Query("SELECT kb FROM KnowledgeBase kb WHERE kb.question LIKE %?1% OR kb.answer LIKE %?1% ORDER BY kb.qualityScore DESC")
     List<KnowledgeBase> searchByKeywordOrderByScore(String keyword, Pageable pageable);
+    
+    List<KnowledgeBase> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // 按 (create_time, id) 倒序的游标分页，不执行COUNT
+    Slice<KnowledgeBase> findAllByOrderByCreateTimeDescIdDesc(Pageable pageable);
+    
+    @Query("SELECT kb FROM KnowledgeBase kb WHERE kb.createTime < :time OR (kb.createTime = :time AND kb.id < :id) ORDER BY kb.createTime DESC, kb.id DESC")
+    Slice<KnowledgeBase> findBefore(@Param("time") LocalDateTime time, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT kb FROM KnowledgeBase kb WHERE kb.question LIKE %:keyword% OR kb.answer LIKE %:keyword% ORDER BY kb.createTime DESC, kb.id DESC")
+    Slice<KnowledgeBase> findByKeyword(@Param("keyword") String keyword, Pageable pageable);
+    
+    @Query("SELECT kb FROM KnowledgeBase kb WHERE (kb.question LIKE %:keyword% OR kb.answer LIKE %:keyword%) AND (kb.createTime < :time OR (kb.createTime = :time AND kb.id < :id)) ORDER BY kb.createTime DESC, kb.id DESC")
+    Slice<KnowledgeBase> findByKeywordBefore(@Param("keyword") String keyword, @Param("time") LocalDateTime time,
+                                             @Param("id") Long id, Pageable pageable);
+    
+    long countByQuestionContainingOrAnswerContaining(String question, String answer);
 }
-
@@ -5,16 +5,31 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
 import java.util.List;
 
 @Repository
-public interface LegalArticleRepository extends JpaRepository<LegalArticle, Long> {
+public interface LegalArticleRepository extends JpaRepository<LegalArticle, Long>, LegalArticleRepositoryCustom {
     Page<LegalArticle> findByTitleContainingOrContentContaining(String title, String content, Pageable pageable);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<LegalArticle> findByLawType(String lawType);
+    
     List<LegalArticle> findByIsValidTrue();
     
     @Query("SELECT la FROM LegalArticle la WHERE la.title LIKE %?1% OR la.articleNumber LIKE %?1%")
     List<LegalArticle> searchByKeyword(String keyword);
+    
+    @Query("SELECT la.title, COUNT(la) FROM LegalArticle la GROUP BY la.title")
+    List<Object[]> countByTitle();
+    
+    List<LegalArticle> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // 游标分页
+    List<LegalArticle> findByIsValidTrueAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    List<LegalArticle> findByLawTypeAndIdGreaterThanOrderByIdAsc(String lawType, Long id, Pageable pageable);
 }
-
@@ -0,0 +1,12 @@
+package com.legal.repository;
+
+import com.legal.entity.LegalArticle;
+import java.util.Collection;
+import java.util.List;
+
+public interface LegalArticleRepositoryCustom {
+    /**
+     * 一次查询完成多个关键词的 searchByKeyword，每个关键词最多取前limit条（按id）
+     */
+    List<LegalArticle> searchByKeywords(Collection<String> keywords, int limit);
+}
@@ -0,0 +1,44 @@
+package com.legal.repository;
+
+import com.legal.entity.LegalArticle;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class LegalArticleRepositoryImpl implements LegalArticleRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * 每个关键词一个带LIMIT的子查询，以UNION ALL拼成一条语句，结果行数有上界
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<LegalArticle> searchByKeywords(Collection<String> keywords, int limit) {
+        if (keywords.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder();
+        int i = 1;
+        for (String ignored : keywords) {
+            if (i > 1) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("(SELECT * FROM legal_articles WHERE title LIKE ?").append(i)
+                    .append(" OR article_number LIKE ?").append(i)
+                    .append(" ORDER BY id LIMIT ").append(limit).append(")");
+            i++;
+        }
+        Query query = entityManager.createNativeQuery(sql.toString(), LegalArticle.class);
+        i = 1;
+        for (String keyword : keywords) {
+            query.setParameter(i++, "%" + keyword + "%");
+        }
+        return query.getResultList();
+    }
+}
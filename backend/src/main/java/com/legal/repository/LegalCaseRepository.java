@@ -5,16 +5,29 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
 import java.util.List;
 
 @Repository
 public interface LegalCaseRepository extends JpaRepository<LegalCase, Long> {
     Page<LegalCase> findByTitleContainingOrContentContaining(String title, String content, Pageable pageable);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<LegalCase> findByLawType(String lawType);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<LegalCase> findByCaseType(String caseType);
     
     @Query("SELECT lc FROM LegalCase lc WHERE lc.title LIKE %?1% OR lc.disputePoint LIKE %?1%")
     List<LegalCase> searchByKeyword(String keyword);
+    
+    @Query("SELECT lc.caseType, COUNT(lc) FROM LegalCase lc WHERE lc.caseType IS NOT NULL GROUP BY lc.caseType")
+    List<Object[]> countByCaseType();
+    
+    List<LegalCase> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    List<LegalCase> findByLawTypeAndIdGreaterThanOrderByIdAsc(String lawType, Long id, Pageable pageable);
 }
-
@@ -4,15 +4,30 @@ import com.legal.entity.LegalConcept;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface LegalConceptRepository extends JpaRepository<LegalConcept, Long> {
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<LegalConcept> findByName(String name);
+    
+    List<LegalConcept> findByNameIn(Collection<String> names);
     List<LegalConcept> findByNameContaining(String name);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<LegalConcept> findByLawType(String lawType);
+    
     Page<LegalConcept> findByNameContainingOrDefinitionContaining(String name, String definition, Pageable pageable);
+    
+    @Query("SELECT lc.name FROM LegalConcept lc")
+    List<String> findAllNames();
+    
+    List<LegalConcept> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
-
@@ -3,21 +3,48 @@ package com.legal.repository;
 import com.legal.entity.QuestionAnswer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface QuestionAnswerRepository extends JpaRepository<QuestionAnswer, Long> {
     Page<QuestionAnswer> findByUserId(Long userId, Pageable pageable);
     List<QuestionAnswer> findBySessionId(String sessionId);
+    
+    // 用户在该会话中最近的若干轮，用于重建对话记忆（userId为null时匹配匿名记录）
+    List<QuestionAnswer> findByUserIdAndSessionIdOrderByCreateTimeDescIdDesc(Long userId, String sessionId, Pageable pageable);
     Page<QuestionAnswer> findByQuestionContaining(String keyword, Pageable pageable);
     
-    @Query("SELECT COUNT(q) FROM QuestionAnswer q WHERE DATE(q.createTime) = CURRENT_DATE")
-    Long countTodayQuestions();
+    // 按 (create_time, id) 倒序的游标分页，不执行COUNT
+    Slice<QuestionAnswer> findByUserIdOrderByCreateTimeDescIdDesc(Long userId, Pageable pageable);
+    
+    @Query("SELECT q FROM QuestionAnswer q WHERE q.userId = :userId AND (q.createTime < :time OR (q.createTime = :time AND q.id < :id)) ORDER BY q.createTime DESC, q.id DESC")
+    Slice<QuestionAnswer> findByUserIdBefore(@Param("userId") Long userId, @Param("time") LocalDateTime time,
+                                             @Param("id") Long id, Pageable pageable);
+    
+    Slice<QuestionAnswer> findAllByOrderByCreateTimeDescIdDesc(Pageable pageable);
+    
+    @Query("SELECT q FROM QuestionAnswer q WHERE q.createTime < :time OR (q.createTime = :time AND q.id < :id) ORDER BY q.createTime DESC, q.id DESC")
+    Slice<QuestionAnswer> findBefore(@Param("time") LocalDateTime time, @Param("id") Long id, Pageable pageable);
+    
+    Slice<QuestionAnswer> findByQuestionContainingOrderByCreateTimeDescIdDesc(String keyword, Pageable pageable);
+    
+    @Query("SELECT q FROM QuestionAnswer q WHERE q.question LIKE %:keyword% AND (q.createTime < :time OR (q.createTime = :time AND q.id < :id)) ORDER BY q.createTime DESC, q.id DESC")
+    Slice<QuestionAnswer> findByQuestionContainingBefore(@Param("keyword") String keyword, @Param("time") LocalDateTime time,
+                                                         @Param("id") Long id, Pageable pageable);
+    
+    long countByUserId(Long userId);
+    
+    long countByQuestionContaining(String keyword);
     
-    @Query("SELECT q.questionType, COUNT(q) FROM QuestionAnswer q GROUP BY q.questionType")
-    List<Object[]> countByQuestionType();
+    // 指定来源标注的问题与类别，用于训练本地分类器
+    @Query("SELECT q.question, q.questionType FROM QuestionAnswer q WHERE q.questionTypeSource = :source "
+            + "AND q.questionType IS NOT NULL ORDER BY q.id DESC")
+    List<Object[]> findLabeledQuestions(@Param("source") String source, Pageable pageable);
 }
 
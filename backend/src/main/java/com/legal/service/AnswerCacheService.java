@@ -0,0 +1,260 @@
+package com.legal.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalConcept;
+import com.legal.util.QuestionNormalizer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 问答缓存：以归一化后的问题为键，分别缓存问题分类、实体识别结果和最终答案
+ * 容量与过期时间有界，淘汰策略为Caffeine的W-TinyLFU（兼顾LRU与LFU）
+ */
+@Slf4j
+@Service
+public class AnswerCacheService {
+    
+    @Value("${qa.cache.max-size:10000}")
+    private Long maxSize;
+    
+    @Value("${qa.cache.ttl-minutes:60}")
+    private Long ttlMinutes;
+    
+    private Cache<String, String> classificationCache;
+    
+    private Cache<String, Map<String, List<String>>> entitiesCache;
+    
+    private Cache<String, CachedAnswer> answerCache;
+    
+    /** 答案缓存代数：每次失效前递增，生成期间代数变化的答案不再写入 */
+    private final AtomicLong generation = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        classificationCache = newCache();
+        entitiesCache = newCache();
+        answerCache = newCache();
+    }
+    
+    private <V> Cache<String, V> newCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+    
+    public String key(String question) {
+        return QuestionNormalizer.normalize(question);
+    }
+    
+    public String getQuestionType(String key) {
+        return classificationCache.getIfPresent(key);
+    }
+    
+    public void putQuestionType(String key, String questionType) {
+        classificationCache.put(key, questionType);
+    }
+    
+    public Map<String, List<String>> getEntities(String key) {
+        return entitiesCache.getIfPresent(key);
+    }
+    
+    public void putEntities(String key, Map<String, List<String>> entities) {
+        entitiesCache.put(key, entities);
+    }
+    
+    public CachedAnswer getAnswer(String key) {
+        return answerCache.getIfPresent(key);
+    }
+    
+    /**
+     * 开始检索知识前读取，写入答案时传回
+     */
+    public long generation() {
+        return generation.get();
+    }
+    
+    /**
+     * 写入答案；生成期间发生过失效（代数变化）则丢弃，避免按旧知识生成的答案在失效后重新进入缓存
+     * 先写入再检查：与失效并发时，要么失效清除了这条，要么这里检查到代数变化后自行移除
+     */
+    public void putAnswer(String key, CachedAnswer answer, long expectedGeneration) {
+        if (generation.get() != expectedGeneration) {
+            return;
+        }
+        answerCache.put(key, answer);
+        if (generation.get() != expectedGeneration) {
+            answerCache.asMap().remove(key, answer);
+        }
+    }
+    
+    /**
+     * 法条变更：失效引用了该法条、其法条实体能匹配到该法条标题/条号，或问题中提到该法律的答案
+     * 字段在调用时取值，实体之后被修改不影响提交后的失效范围
+     */
+    public void onArticleChanged(LegalArticle article) {
+        Long id = article.getId();
+        String title = article.getTitle();
+        String articleNumber = article.getArticleNumber();
+        String shortTitle = title == null ? null : title.replace("中华人民共和国", "");
+        afterCommit(() -> invalidateAnswers(entry -> entry.getArticleIds().contains(id)
+                || matchesAny(entry.getLawTerms(), title, articleNumber)
+                || contains(entry.getQuestion(), shortTitle)));
+    }
+    
+    /**
+     * 概念变更：失效引用了该概念名称，或问题中提到该概念的答案
+     */
+    public void onConceptChanged(LegalConcept concept) {
+        Long id = concept.getId();
+        String name = concept.getName();
+        afterCommit(() -> invalidateAnswers(entry -> entry.getConceptIds().contains(id)
+                || entry.getConceptNames().contains(name)
+                || contains(entry.getQuestion(), name)));
+    }
+    
+    /**
+     * 实体词典变更后，已缓存的实体识别结果可能过期
+     */
+    public void invalidateEntities() {
+        entitiesCache.invalidateAll();
+    }
+    
+    /**
+     * 知识库变更：清空答案缓存
+     * 知识条目经关键词与语义两路召回，新增或修改的条目可能被任意问题召回（语义召回不要求字面重合），
+     * 无法按文本判断受影响的答案；分类与实体缓存不依赖知识库，保留
+     */
+    public void onKnowledgeChanged() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            answerCache.invalidateAll();
+            log.debug("知识库变更，已清空答案缓存");
+        });
+    }
+    
+    /**
+     * 案例变更：案例只出现在实时检索的相关案例中，不进入缓存的答案上下文，无需失效
+     */
+    public void onCaseChanged() {
+        log.debug("案例变更不影响问答缓存");
+    }
+    
+    public void clear() {
+        generation.incrementAndGet();
+        classificationCache.invalidateAll();
+        entitiesCache.invalidateAll();
+        answerCache.invalidateAll();
+    }
+    
+    /**
+     * 在事务提交后执行失效：提交前失效的话，并发请求仍读不到未提交的数据，生成的答案会重新进入缓存
+     * 不在事务中时立即执行
+     */
+    private void afterCommit(Runnable invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidation.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidation.run();
+            }
+        });
+    }
+    
+    private void invalidateAnswers(Predicate<CachedAnswer> affected) {
+        generation.incrementAndGet();
+        int before = answerCache.asMap().size();
+        answerCache.asMap().values().removeIf(affected);
+        log.debug("问答缓存失效 {} 条", before - answerCache.asMap().size());
+    }
+    
+    private boolean matchesAny(Set<String> terms, String... fields) {
+        for (String term : terms) {
+            for (String field : fields) {
+                if (contains(field, term)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private boolean contains(String text, String term) {
+        return text != null && term != null && !term.isEmpty() && text.contains(term);
+    }
+    
+    /**
+     * 缓存统计：各区域命中率与估算内存占用
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("classification", regionStats(classificationCache, this::sizeOf));
+        stats.put("entities", regionStats(entitiesCache, v -> {
+            long bytes = 0;
+            for (Map.Entry<String, List<String>> e : v.entrySet()) {
+                bytes += sizeOf(e.getKey());
+                for (String item : e.getValue()) {
+                    bytes += sizeOf(item);
+                }
+            }
+            return bytes;
+        }));
+        stats.put("answer", regionStats(answerCache, v -> sizeOf(v.getQuestion()) + sizeOf(v.getAnswer())
+                + 16L * (v.getArticleIds().size() + v.getConceptIds().size())
+                + v.getLawTerms().stream().mapToLong(this::sizeOf).sum()
+                + v.getConceptNames().stream().mapToLong(this::sizeOf).sum()));
+        return stats;
+    }
+    
+    private <V> Map<String, Object> regionStats(Cache<String, V> cache, ToLongFunction<V> sizer) {
+        CacheStats cs = cache.stats();
+        long bytes = 0;
+        for (Map.Entry<String, V> e : cache.asMap().entrySet()) {
+            bytes += sizeOf(e.getKey()) + sizer.applyAsLong(e.getValue());
+        }
+        Map<String, Object> region = new LinkedHashMap<>();
+        region.put("size", cache.estimatedSize());
+        region.put("hitCount", cs.hitCount());
+        region.put("missCount", cs.missCount());
+        region.put("hitRate", cs.hitRate());
+        region.put("evictionCount", cs.evictionCount());
+        region.put("estimatedBytes", bytes);
+        return region;
+    }
+    
+    private long sizeOf(String s) {
+        // 对象头 + char数组（按UTF-16估算）
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+    
+    /**
+     * 缓存的答案及其依赖的知识，用于按数据变更精确失效
+     */
+    @Data
+    public static class CachedAnswer {
+        private String question;
+        private String answer;
+        private Set<String> lawTerms = new HashSet<>();
+        private Set<String> conceptNames = new HashSet<>();
+        private Set<Long> articleIds = new HashSet<>();
+        private Set<Long> conceptIds = new HashSet<>();
+    }
+}
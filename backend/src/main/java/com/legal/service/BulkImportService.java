@@ -0,0 +1,560 @@
+package com.legal.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.legal.entity.KnowledgeBase;
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalCase;
+import com.legal.entity.LegalConcept;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 语料批量导入：按行增量解析NDJSON或带表头的CSV，逐行校验后以JDBC批量插入，每攒够一段提交一次事务
+ * 导入期间不逐行维护索引与缓存，结束后统一失效二级缓存、重载实体词典并重建检索索引
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+    
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+    
+    private static final int MAX_RECENT_JOBS = 20;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private SecondLevelCacheService secondLevelCacheService;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Autowired
+    private SemanticIndexService semanticIndexService;
+    
+    @Autowired
+    private EntityDictionaryService entityDictionaryService;
+    
+    @Autowired
+    private AnswerCacheService answerCacheService;
+    
+    @Autowired
+    private ListingCountService listingCountService;
+    
+    @Value("${qa.import.batch-size:1000}")
+    private Integer batchSize;
+    
+    @Value("${qa.import.commit-interval:10000}")
+    private Integer commitInterval;
+    
+    @Value("${qa.import.max-errors:1000}")
+    private Integer maxErrors;
+    
+    private final Map<String, ImportTarget<?>> targets = new LinkedHashMap<>();
+    
+    /** 进行中与最近完成的导入任务，供进度查询 */
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    
+    public BulkImportService() {
+        targets.put("articles", new ImportTarget<>(LegalArticle.class,
+                "INSERT INTO legal_articles (title, article_number, content, law_type, publish_org, publish_date, "
+                        + "is_valid, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                article -> {
+                    require(article.getTitle(), "title");
+                    maxLength(article.getTitle(), 255, "title");
+                    maxLength(article.getArticleNumber(), 255, "articleNumber");
+                    maxLength(article.getContent(), 5000, "content");
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    return new Object[]{article.getTitle(), article.getArticleNumber(), article.getContent(),
+                            article.getLawType(), article.getPublishOrg(), timestamp(article.getPublishDate()),
+                            article.getIsValid() == null ? Boolean.TRUE : article.getIsValid(), now, now};
+                }));
+        targets.put("cases", new ImportTarget<>(LegalCase.class,
+                "INSERT INTO legal_cases (title, case_type, content, court_name, judge_date, dispute_point, "
+                        + "judgment_result, law_type, create_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                legalCase -> {
+                    require(legalCase.getTitle(), "title");
+                    maxLength(legalCase.getTitle(), 255, "title");
+                    maxLength(legalCase.getContent(), 5000, "content");
+                    maxLength(legalCase.getDisputePoint(), 2000, "disputePoint");
+                    maxLength(legalCase.getJudgmentResult(), 2000, "judgmentResult");
+                    return new Object[]{legalCase.getTitle(), legalCase.getCaseType(), legalCase.getContent(),
+                            legalCase.getCourtName(), timestamp(legalCase.getJudgeDate()), legalCase.getDisputePoint(),
+                            legalCase.getJudgmentResult(), legalCase.getLawType(), Timestamp.valueOf(LocalDateTime.now())};
+                }));
+        targets.put("concepts", new ImportTarget<>(LegalConcept.class,
+                "INSERT INTO legal_concepts (name, definition, explanation, law_type, related_concepts, create_time, "
+                        + "update_time) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                concept -> {
+                    require(concept.getName(), "name");
+                    maxLength(concept.getName(), 255, "name");
+                    maxLength(concept.getDefinition(), 2000, "definition");
+                    maxLength(concept.getExplanation(), 5000, "explanation");
+                    maxLength(concept.getRelatedConcepts(), 1000, "relatedConcepts");
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    return new Object[]{concept.getName(), concept.getDefinition(), concept.getExplanation(),
+                            concept.getLawType(), concept.getRelatedConcepts(), now, now};
+                }));
+        targets.put("knowledge", new ImportTarget<>(KnowledgeBase.class,
+                "INSERT INTO knowledge_base (question, answer, question_type, tags, law_type, usage_count, "
+                        + "quality_score, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                knowledge -> {
+                    require(knowledge.getQuestion(), "question");
+                    require(knowledge.getAnswer(), "answer");
+                    maxLength(knowledge.getAnswer(), 5000, "answer");
+                    maxLength(knowledge.getTags(), 500, "tags");
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    return new Object[]{knowledge.getQuestion(), knowledge.getAnswer(), knowledge.getQuestionType(),
+                            knowledge.getTags(), knowledge.getLawType(),
+                            knowledge.getUsageCount() == null ? 0 : knowledge.getUsageCount(),
+                            knowledge.getQualityScore(), now, now};
+                }));
+    }
+    
+    public Set<String> getTypes() {
+        return targets.keySet();
+    }
+    
+    /**
+     * 导入一份语料，返回导入报告；格式错误或校验失败的行记入错误列表，不影响其他行
+     */
+    public Map<String, Object> importData(String type, String format, InputStream in) throws IOException {
+        ImportTarget<?> target = targets.get(type);
+        if (target == null) {
+            throw new IllegalArgumentException("不支持的导入类型: " + type + "，可选 " + targets.keySet());
+        }
+        if (!NDJSON.equals(format) && !CSV.equals(format)) {
+            throw new IllegalArgumentException("不支持的格式: " + format);
+        }
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), type, format);
+        registerJob(job);
+        log.info("开始批量导入 {}，格式 {}，任务 {}", type, format, job.id);
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<PendingRow> chunk = new ArrayList<>(commitInterval);
+            RecordSource source = NDJSON.equals(format) ? new NdjsonSource(reader) : new CsvSource(reader);
+            while (true) {
+                JSONObject record;
+                try {
+                    record = source.next();
+                } catch (IllegalArgumentException e) {
+                    job.parsed.incrementAndGet();
+                    job.error(source.lineNumber(), e.getMessage(), maxErrors);
+                    continue;
+                }
+                if (record == null) {
+                    break;
+                }
+                job.parsed.incrementAndGet();
+                long line = source.lineNumber();
+                try {
+                    chunk.add(new PendingRow(line, target.toRow(record)));
+                } catch (Exception e) {
+                    job.error(line, e.getMessage(), maxErrors);
+                    continue;
+                }
+                if (chunk.size() >= commitInterval) {
+                    commit(target, chunk, job);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                commit(target, chunk, job);
+            }
+            if (job.inserted.get() > 0) {
+                job.status = "indexing";
+                long start = System.currentTimeMillis();
+                afterImport(type);
+                job.indexMillis = System.currentTimeMillis() - start;
+            }
+            job.status = "completed";
+        } catch (RuntimeException | IOException e) {
+            job.status = "failed";
+            job.message = e.getMessage();
+            log.error("批量导入 {} 失败，任务 {}", type, job.id, e);
+            if (job.inserted.get() > 0) {
+                afterImport(type);
+            }
+        } finally {
+            job.finishedAt = System.currentTimeMillis();
+        }
+        log.info("批量导入 {} 结束: 解析{}行，插入{}行，失败{}行，用时{}ms", type, job.parsed.get(),
+                job.inserted.get(), job.failed.get(), job.finishedAt - job.startedAt);
+        return job.toMap(true);
+    }
+    
+    /**
+     * 一段数据一个事务，按批次执行批量插入；整段失败时回滚并逐行重试，定位出错的行
+     */
+    private void commit(ImportTarget<?> target, List<PendingRow> chunk, ImportJob job) {
+        List<Object[]> rows = new ArrayList<>(chunk.size());
+        for (PendingRow row : chunk) {
+            rows.add(row.args);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < rows.size(); from += batchSize) {
+                    jdbcTemplate.batchUpdate(target.sql, rows.subList(from, Math.min(from + batchSize, rows.size())));
+                }
+            });
+            job.inserted.addAndGet(rows.size());
+        } catch (Exception e) {
+            log.warn("批量插入失败，改为逐行插入: {}", e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> {
+                for (PendingRow row : chunk) {
+                    try {
+                        jdbcTemplate.update(target.sql, row.args);
+                        job.inserted.incrementAndGet();
+                    } catch (Exception ex) {
+                        job.error(row.line, rootMessage(ex), maxErrors);
+                    }
+                }
+            });
+        }
+        job.commits.incrementAndGet();
+    }
+    
+    /**
+     * 导入绕过了JPA，需显式失效二级缓存；检索索引、实体词典与问答缓存整体重建一次
+     */
+    private void afterImport(String type) {
+        switch (type) {
+            case "articles":
+                secondLevelCacheService.evict(LegalArticle.class);
+                entityDictionaryService.reload();
+                break;
+            case "cases":
+                secondLevelCacheService.evict(LegalCase.class);
+                entityDictionaryService.reload();
+                break;
+            case "concepts":
+                secondLevelCacheService.evict(LegalConcept.class);
+                entityDictionaryService.reload();
+                break;
+            case "knowledge":
+                semanticIndexService.rebuild();
+                listingCountService.evictKnowledge();
+                break;
+            default:
+                break;
+        }
+        searchIndexService.rebuild();
+        answerCacheService.clear();
+    }
+    
+    public List<Map<String, Object>> getJobs() {
+        List<ImportJob> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparingLong((ImportJob job) -> job.startedAt).reversed());
+        List<Map<String, Object>> result = new ArrayList<>(list.size());
+        for (ImportJob job : list) {
+            result.add(job.toMap(false));
+        }
+        return result;
+    }
+    
+    private void registerJob(ImportJob job) {
+        jobs.put(job.id, job);
+        if (jobs.size() > MAX_RECENT_JOBS) {
+            jobs.values().stream()
+                    .filter(j -> j.finishedAt > 0)
+                    .min(Comparator.comparingLong(j -> j.startedAt))
+                    .ifPresent(oldest -> jobs.remove(oldest.id));
+        }
+    }
+    
+    private static void require(String value, String field) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("缺少必填字段 " + field);
+        }
+    }
+    
+    private static void maxLength(String value, int max, String field) {
+        if (value != null && value.length() > max) {
+            throw new IllegalArgumentException("字段 " + field + " 超过最大长度 " + max);
+        }
+    }
+    
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+    
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+    
+    private static class ImportTarget<T> {
+        private final Class<T> type;
+        private final String sql;
+        private final Function<T, Object[]> validator;
+        
+        private ImportTarget(Class<T> type, String sql, Function<T, Object[]> validator) {
+            this.type = type;
+            this.sql = sql;
+            this.validator = validator;
+        }
+        
+        /**
+         * 记录转换为实体后校验，返回插入参数；不接受外部指定的主键
+         */
+        private Object[] toRow(JSONObject record) {
+            record.remove("id");
+            T entity;
+            try {
+                entity = record.toJavaObject(type);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("字段类型错误: " + rootMessage(e));
+            }
+            return validator.apply(entity);
+        }
+    }
+    
+    private static class PendingRow {
+        private final long line;
+        private final Object[] args;
+        
+        private PendingRow(long line, Object[] args) {
+            this.line = line;
+            this.args = args;
+        }
+    }
+    
+    private interface RecordSource {
+        /**
+         * 读取下一条记录，读完返回null；本行无法解析时抛出 IllegalArgumentException
+         */
+        JSONObject next() throws IOException;
+        
+        /** 当前记录的起始行号 */
+        long lineNumber();
+    }
+    
+    /**
+     * NDJSON：每行一个JSON对象，空行跳过
+     */
+    private static class NdjsonSource implements RecordSource {
+        private final BufferedReader reader;
+        private long line;
+        
+        private NdjsonSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+        
+        @Override
+        public JSONObject next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (!text.trim().isEmpty()) {
+                    try {
+                        return JSON.parseObject(text);
+                    } catch (Exception e) {
+                        throw new IllegalArgumentException("JSON格式错误");
+                    }
+                }
+            }
+            return null;
+        }
+        
+        @Override
+        public long lineNumber() {
+            return line;
+        }
+    }
+    
+    /**
+     * CSV（RFC 4180）：首行为表头，字段名可用实体属性名或下划线列名；支持引号内的逗号、换行与转义引号
+     */
+    private static class CsvSource implements RecordSource {
+        private final BufferedReader reader;
+        private List<String> header;
+        private long line;
+        private long recordLine;
+        
+        private CsvSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+        
+        @Override
+        public JSONObject next() throws IOException {
+            if (header == null) {
+                List<String> names = readRecord();
+                if (names == null) {
+                    return null;
+                }
+                header = new ArrayList<>(names.size());
+                for (String name : names) {
+                    header.add(camelCase(name.trim()));
+                }
+            }
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).isEmpty());
+            if (values.size() != header.size()) {
+                throw new IllegalArgumentException("列数" + values.size() + "与表头列数" + header.size() + "不一致");
+            }
+            JSONObject record = new JSONObject();
+            for (int i = 0; i < header.size(); i++) {
+                String value = values.get(i);
+                if (!value.isEmpty()) {
+                    record.put(header.get(i), value);
+                }
+            }
+            return record;
+        }
+        
+        @Override
+        public long lineNumber() {
+            return recordLine;
+        }
+        
+        private List<String> readRecord() throws IOException {
+            String text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i >= text.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // 引号内换行：字段延续到下一行
+                    text = reader.readLine();
+                    if (text == null) {
+                        break;
+                    }
+                    line++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < text.length() && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c != '\r') {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+        
+        private static String camelCase(String name) {
+            StringBuilder sb = new StringBuilder(name.length());
+            boolean upper = false;
+            for (char c : name.toCharArray()) {
+                if (c == '_') {
+                    upper = true;
+                } else {
+                    sb.append(upper ? Character.toUpperCase(c) : c);
+                    upper = false;
+                }
+            }
+            return sb.toString();
+        }
+    }
+    
+    private static class ImportJob {
+        private final String id;
+        private final String type;
+        private final String format;
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long finishedAt;
+        private volatile long indexMillis;
+        private volatile String status = "running";
+        private volatile String message;
+        private final AtomicLong parsed = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong commits = new AtomicLong();
+        private final List<Map<String, Object>> errors = Collections.synchronizedList(new ArrayList<>());
+        
+        private ImportJob(String id, String type, String format) {
+            this.id = id;
+            this.type = type;
+            this.format = format;
+        }
+        
+        private void error(long line, String message, int maxErrors) {
+            failed.incrementAndGet();
+            if (errors.size() < maxErrors) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("line", line);
+                error.put("message", message);
+                errors.add(error);
+            }
+        }
+        
+        private Map<String, Object> toMap(boolean withErrors) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("jobId", id);
+            map.put("type", type);
+            map.put("format", format);
+            map.put("status", status);
+            map.put("parsed", parsed.get());
+            map.put("inserted", inserted.get());
+            map.put("failed", failed.get());
+            map.put("commits", commits.get());
+            long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+            map.put("elapsedMs", end - startedAt);
+            map.put("indexMs", indexMillis);
+            if (message != null) {
+                map.put("message", message);
+            }
+            if (withErrors) {
+                synchronized (errors) {
+                    map.put("errors", new ArrayList<>(errors));
+                }
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.legal.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.legal.entity.QuestionAnswer;
+import com.legal.repository.QuestionAnswerRepository;
+import com.legal.util.ConversationMemory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多轮对话记忆：按（用户, 会话）保存最近几轮问答与更早轮次的摘要，供生成答案时使用
+ * 会话ID由客户端传入，只有同一用户的问答才会进入该会话的记忆，猜到他人的会话ID也读不到其内容
+ * 会话数有上限并按空闲时间淘汰；未命中时从问答记录中取该用户在该会话中最近若干轮重建，
+ * 尚在异步写入队列中的最近一轮可能未计入重建结果
+ */
+@Slf4j
+@Service
+public class ConversationMemoryService {
+    
+    @Autowired
+    private QuestionAnswerRepository questionAnswerRepository;
+    
+    @Value("${qa.conversation.enabled:true}")
+    private Boolean enabled;
+    
+    @Value("${qa.conversation.max-sessions:10000}")
+    private Long maxSessions;
+    
+    @Value("${qa.conversation.idle-minutes:30}")
+    private Long idleMinutes;
+    
+    @Value("${qa.conversation.window-turns:3}")
+    private Integer windowTurns;
+    
+    @Value("${qa.conversation.turn-max-tokens:300}")
+    private Integer turnMaxTokens;
+    
+    @Value("${qa.conversation.gist-max-tokens:60}")
+    private Integer gistMaxTokens;
+    
+    @Value("${qa.conversation.summary-max-tokens:400}")
+    private Integer summaryMaxTokens;
+    
+    @Value("${qa.conversation.rebuild-turns:20}")
+    private Integer rebuildTurns;
+    
+    private Cache<SessionKey, ConversationMemory> memories;
+    
+    private final AtomicLong rebuilds = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        memories = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(idleMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+    
+    /**
+     * 会话的对话历史，未开启或会话为空时返回空历史
+     */
+    public ConversationMemory.History getHistory(Long userId, String sessionId) {
+        if (!enabled || sessionId == null) {
+            return ConversationMemory.History.EMPTY;
+        }
+        return memories.get(new SessionKey(userId, sessionId), this::rebuild).snapshot();
+    }
+    
+    /**
+     * 记录一轮问答；会话不在内存中时先重建，保证摘要包含更早的轮次
+     */
+    public void record(Long userId, String sessionId, String question, String answer) {
+        if (!enabled || sessionId == null) {
+            return;
+        }
+        memories.get(new SessionKey(userId, sessionId), this::rebuild).append(question, answer);
+    }
+    
+    /**
+     * 从问答记录重建：按时间顺序重放该用户在该会话中最近的若干轮
+     */
+    private ConversationMemory rebuild(SessionKey key) {
+        ConversationMemory memory = newMemory();
+        List<QuestionAnswer> recent = questionAnswerRepository.findByUserIdAndSessionIdOrderByCreateTimeDescIdDesc(
+                key.userId, key.sessionId, PageRequest.of(0, rebuildTurns));
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            QuestionAnswer qa = recent.get(i);
+            if (qa.getAnswer() != null) {
+                memory.append(qa.getQuestion(), qa.getAnswer());
+            }
+        }
+        if (!recent.isEmpty()) {
+            rebuilds.incrementAndGet();
+            log.debug("从问答记录重建用户{}会话{}的对话记忆，共{}轮", key.userId, key.sessionId, recent.size());
+        }
+        return memory;
+    }
+    
+    private ConversationMemory newMemory() {
+        return new ConversationMemory(windowTurns, turnMaxTokens, gistMaxTokens, summaryMaxTokens);
+    }
+    
+    public Map<String, Object> getStats() {
+        CacheStats cs = memories.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sessions", memories.estimatedSize());
+        stats.put("maxSessions", maxSessions);
+        stats.put("idleMinutes", idleMinutes);
+        stats.put("hitRate", cs.hitRate());
+        stats.put("rebuilds", rebuilds.get());
+        stats.put("evictions", cs.evictionCount());
+        return stats;
+    }
+    
+    private static class SessionKey {
+        private final Long userId;
+        private final String sessionId;
+        
+        private SessionKey(Long userId, String sessionId) {
+            this.userId = userId;
+            this.sessionId = sessionId;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SessionKey)) {
+                return false;
+            }
+            SessionKey other = (SessionKey) o;
+            return Objects.equals(userId, other.userId) && sessionId.equals(other.sessionId);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, sessionId);
+        }
+    }
+}
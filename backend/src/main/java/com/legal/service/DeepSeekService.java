@@ -1,140 +1,482 @@
 package com.legal.service;
 
 import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.legal.config.DeepSeekConfig;
+import com.legal.util.AdaptiveConcurrencyLimiter;
+import com.legal.util.ChatCompletionParser;
+import com.legal.util.ChatRequestTemplate;
+import com.legal.util.ConversationMemory;
+import com.legal.util.LlmCallEvent;
+import com.legal.util.QuestionNormalizer;
+import com.legal.util.SingleFlight;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class DeepSeekService {
     
+    public static final String SERVICE_UNAVAILABLE = "抱歉，服务暂时不可用，请稍后再试。";
+    
+    public static final String GENERATION_FAILED = "抱歉，生成答案时出现错误，请稍后再试。";
+    
+    public static final String STREAM_INTERRUPTED = "抱歉，答案生成中断，请稍后再试。";
+    
+    /**
+     * 系统提示词：固定的角色与回答要求，其后依次插入对话摘要与知识上下文（为空时省略）
+     */
+    private static final String SYSTEM_PROMPT_HEAD = "你是一位专业的法律咨询AI助手，具有丰富的法律知识和司法实践经验。"
+            + "你的任务是回答用户的法律问题，提供准确、专业、易懂的法律建议。"
+            + "\n\n"
+            + "回答要求："
+            + "1. 回答要准确、专业，基于中国法律法规"
+            + "2. 语言要通俗易懂，避免过于专业的术语"
+            + "3. 如果涉及具体法条，要明确指出法条名称和条号"
+            + "4. 如果是案例分析，要提供相关案例参考"
+            + "5. 如果问题不够明确，要主动询问以获取更多信息"
+            + "\n\n";
+    private static final String SUMMARY_HEADER = "此前对话摘要：\n";
+    private static final String CONTEXT_HEADER = "相关知识上下文：\n";
+    private static final String SECTION_FOOTER = "\n\n";
+    private static final String SYSTEM_PROMPT_TAIL = "请根据以上要求回答用户的问题。";
+    
+    private static final double TEMPERATURE = 0.7;
+    private static final int MAX_TOKENS = 2000;
+    
     @Autowired
     private DeepSeekConfig deepSeekConfig;
     
-    private final OkHttpClient httpClient;
+    @Autowired
+    private AnswerCacheService answerCacheService;
+    
+    @Autowired
+    private QuestionClassifierService questionClassifierService;
+    
+    @Autowired
+    private EntityDictionaryService entityDictionaryService;
+    
+    @Autowired
+    private QaMetricsService qaMetricsService;
+    
+    @Value("${qa.entity.llm-fallback:true}")
+    private Boolean entityLlmFallback;
+    
+    @Value("${qa.llm.coalesce-timeout-ms:60000}")
+    private Long coalesceTimeoutMs;
     
-    public DeepSeekService() {
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    
+    @Value("${qa.llm.connect-timeout-ms:5000}")
+    private Long connectTimeoutMs;
+    
+    @Value("${qa.llm.max-idle-connections:32}")
+    private Integer maxIdleConnections;
+    
+    @Value("${qa.llm.keep-alive-ms:300000}")
+    private Long keepAliveMs;
+    
+    @Value("${qa.llm.dispatcher-max-requests:64}")
+    private Integer dispatcherMaxRequests;
+    
+    @Value("${qa.llm.limiter.initial-limit:16}")
+    private Integer initialLimit;
+    
+    @Value("${qa.llm.limiter.min-limit:2}")
+    private Integer minLimit;
+    
+    @Value("${qa.llm.limiter.max-limit:128}")
+    private Integer maxLimit;
+    
+    @Value("${qa.llm.limiter.max-queue:100}")
+    private Integer maxQueue;
+    
+    @Value("${qa.llm.limiter.max-wait-ms:2000}")
+    private Long maxWaitMs;
+    
+    @Value("${qa.llm.limiter.latency-threshold-ms:20000}")
+    private Long latencyThresholdMs;
+    
+    private OkHttpClient httpClient;
+    
+    private AdaptiveConcurrencyLimiter limiter;
+    
+    private ChatRequestTemplate requestTemplate;
+    
+    /**
+     * 开启录制时为调用统计实际收发的字节数，否则不创建监听器
+     */
+    private static EventListener eventListener(Call call) {
+        LlmCallEvent event = call.request().tag(LlmCallEvent.class);
+        if (event == null || !event.isEnabled()) {
+            return EventListener.NONE;
+        }
+        return new EventListener() {
+            @Override
+            public void requestBodyEnd(Call call, long byteCount) {
+                event.bytesOut += byteCount;
+            }
+            
+            @Override
+            public void responseBodyEnd(Call call, long byteCount) {
+                event.bytesIn += byteCount;
+            }
+        };
+    }
+    
+    /**
+     * 按配置构建HTTP客户端：读超时取 deepseek.api.timeout，连接池与调度器容量可配置
+     * 同步调用不受Dispatcher限制，并发由自适应限流器控制
+     */
+    @PostConstruct
+    public void init() {
+        long timeout = deepSeekConfig.getTimeout() != null ? deepSeekConfig.getTimeout() : 30000L;
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(dispatcherMaxRequests);
+        dispatcher.setMaxRequestsPerHost(dispatcherMaxRequests);
         this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(60, TimeUnit.SECONDS)
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(timeout, TimeUnit.MILLISECONDS)
+                .writeTimeout(timeout, TimeUnit.MILLISECONDS)
+                .eventListenerFactory(DeepSeekService::eventListener)
                 .build();
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, maxQueue, latencyThresholdMs);
+        this.requestTemplate = new ChatRequestTemplate(deepSeekConfig.getModel(), SYSTEM_PROMPT_HEAD,
+                SUMMARY_HEADER, CONTEXT_HEADER, SECTION_FOOTER, SYSTEM_PROMPT_TAIL, TEMPERATURE, MAX_TOKENS);
     }
     
     /**
-     * 调用DeepSeek API生成答案
+     * 调用DeepSeek API生成答案，history为同一会话的对话历史
+     * 没有对话历史时，归一化后相同的问题与上下文在同一时刻只发出一次请求，其余调用共享结果
      */
-    public String generateAnswer(String question, String context) {
+    public String generateAnswer(String question, String context, ConversationMemory.History history) {
+        if (!history.isEmpty()) {
+            // 带历史的请求几乎不会与其他会话相同，不参与合并
+            return requestAnswer(question, context, history, QaMetricsService.Purpose.ANSWER);
+        }
+        return generate(question, context, QaMetricsService.Purpose.ANSWER);
+    }
+    
+    private String generate(String question, String context, QaMetricsService.Purpose purpose) {
+        String key = QuestionNormalizer.normalize(question) + '\u0001' + (context == null ? "" : context);
         try {
-            JSONObject requestBody = new JSONObject();
-            requestBody.put("model", deepSeekConfig.getModel());
-            
-            JSONArray messages = new JSONArray();
-            
-            // 系统提示词
-            JSONObject systemMessage = new JSONObject();
-            systemMessage.put("role", "system");
-            systemMessage.put("content", buildSystemPrompt(context));
-            messages.add(systemMessage);
-            
-            // 用户问题
-            JSONObject userMessage = new JSONObject();
-            userMessage.put("role", "user");
-            userMessage.put("content", question);
-            messages.add(userMessage);
-            
-            requestBody.put("messages", messages);
-            requestBody.put("temperature", 0.7);
-            requestBody.put("max_tokens", 2000);
-            
-            Request request = new Request.Builder()
-                    .url(deepSeekConfig.getUrl())
-                    .addHeader("Content-Type", "application/json")
-                    .addHeader("Authorization", "Bearer " + deepSeekConfig.getApiKey())
-                    .post(RequestBody.create(requestBody.toJSONString(), MediaType.parse("application/json")))
-                    .build();
+            return singleFlight.execute(key, () -> requestAnswer(question, context,
+                    ConversationMemory.History.EMPTY, purpose), coalesceTimeoutMs);
+        } catch (TimeoutException e) {
+            log.warn("等待合并的DeepSeek请求超时");
+            return SERVICE_UNAVAILABLE;
+        }
+    }
+    
+    private String requestAnswer(String question, String context, ConversationMemory.History history,
+                                 QaMetricsService.Purpose purpose) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(maxWaitMs);
+        if (permit == null) {
+            log.warn("DeepSeek并发已满，拒绝请求");
+            qaMetricsService.recordLlmRejected(purpose);
+            return SERVICE_UNAVAILABLE;
+        }
+        boolean overloaded = false;
+        boolean ignored = false;
+        long start = System.nanoTime();
+        LlmCallEvent event = new LlmCallEvent(purpose.getTag(), false);
+        event.begin();
+        try {
+            Request request = buildChatRequest(question, context, history, false, event);
             
             try (Response response = httpClient.newCall(request).execute()) {
+                event.status = response.code();
                 if (!response.isSuccessful()) {
+                    qaMetricsService.recordLlmResponse(purpose, response.code(), start);
                     log.error("DeepSeek API调用失败: {}", response.code());
-                    return "抱歉，服务暂时不可用，请稍后再试。";
+                    overloaded = isOverloaded(response.code());
+                    ignored = !overloaded;
+                    return SERVICE_UNAVAILABLE;
                 }
                 
-                String responseBody = response.body().string();
-                JSONObject jsonResponse = JSON.parseObject(responseBody);
-                JSONArray choices = jsonResponse.getJSONArray("choices");
-                
-                if (choices != null && choices.size() > 0) {
-                    JSONObject choice = choices.getJSONObject(0);
-                    JSONObject message = choice.getJSONObject("message");
-                    return message.getString("content");
+                ChatCompletionParser.Completion completion;
+                try {
+                    completion = ChatCompletionParser.parse(response.body().byteStream());
+                } catch (JsonProcessingException e) {
+                    qaMetricsService.recordLlmResponse(purpose, response.code(), start);
+                    log.error("解析DeepSeek API响应失败", e);
+                    return GENERATION_FAILED;
+                }
+                qaMetricsService.recordLlmResponse(purpose, response.code(), start);
+                recordUsage(purpose, completion);
+                if (completion.getContent() != null) {
+                    return completion.getContent();
                 }
             }
         } catch (IOException e) {
             log.error("调用DeepSeek API异常", e);
+            qaMetricsService.recordLlmIoError(purpose, start);
+            overloaded = true;
+        } finally {
+            if (overloaded) {
+                limiter.onDropped(permit);
+            } else if (ignored) {
+                limiter.onIgnore(permit);
+            } else {
+                limiter.onSuccess(permit);
+            }
+            endEvent(event);
         }
         
-        return "抱歉，生成答案时出现错误，请稍后再试。";
+        return GENERATION_FAILED;
+    }
+    
+    /**
+     * 结束调用事件：在问答流水线中时归入所属问题，否则直接提交
+     */
+    private void endEvent(LlmCallEvent event) {
+        event.end();
+        QaTrace trace = QaTrace.current();
+        if (trace != null) {
+            trace.add(event);
+        } else if (event.shouldCommit()) {
+            event.commit();
+        }
     }
     
     /**
-     * 构建系统提示词
+     * 记录响应中usage给出的提示词与生成词元数
      */
-    private String buildSystemPrompt(String context) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("你是一位专业的法律咨询AI助手，具有丰富的法律知识和司法实践经验。");
-        prompt.append("你的任务是回答用户的法律问题，提供准确、专业、易懂的法律建议。");
-        prompt.append("\n\n");
-        prompt.append("回答要求：");
-        prompt.append("1. 回答要准确、专业，基于中国法律法规");
-        prompt.append("2. 语言要通俗易懂，避免过于专业的术语");
-        prompt.append("3. 如果涉及具体法条，要明确指出法条名称和条号");
-        prompt.append("4. 如果是案例分析，要提供相关案例参考");
-        prompt.append("5. 如果问题不够明确，要主动询问以获取更多信息");
-        prompt.append("\n\n");
+    private void recordUsage(QaMetricsService.Purpose purpose, ChatCompletionParser.Completion completion) {
+        if (completion.isUsagePresent()) {
+            qaMetricsService.recordTokens(purpose, completion.getPromptTokens(), completion.getCompletionTokens());
+        }
+    }
+    
+    /**
+     * 限流（429）与服务端过载（5xx）视为过载信号
+     */
+    private boolean isOverloaded(int code) {
+        return code == 429 || code >= 500;
+    }
+    
+    /**
+     * LLM调用并发限制统计
+     */
+    public Map<String, Object> getLimiterStats() {
+        return limiter.getStats();
+    }
+    
+    /**
+     * 请求合并统计，savedCalls为共享了他人请求结果而未实际发出的调用数
+     */
+    public Map<String, Object> getCoalescingStats() {
+        return singleFlight.getStats();
+    }
+    
+    /**
+     * 是否为调用失败时的兜底答案（兜底答案不应进入缓存）
+     */
+    public boolean isFallbackAnswer(String answer) {
+        return SERVICE_UNAVAILABLE.equals(answer) || GENERATION_FAILED.equals(answer)
+                || STREAM_INTERRUPTED.equals(answer);
+    }
+    
+    /**
+     * 以流式方式调用DeepSeek API，每收到一段增量内容即回调，返回完整答案
+     * 失败时返回兜底答案且不回调；已推送部分内容后响应在[DONE]或finish_reason之前中断时返回STREAM_INTERRUPTED，
+     * 不把不完整的内容当作答案
+     */
+    public String streamAnswer(String question, String context, ConversationMemory.History history,
+                               Consumer<String> onToken) {
+        StringBuilder answer = new StringBuilder();
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(maxWaitMs);
+        if (permit == null) {
+            log.warn("DeepSeek并发已满，拒绝流式请求");
+            qaMetricsService.recordLlmRejected(QaMetricsService.Purpose.ANSWER_STREAM);
+            return SERVICE_UNAVAILABLE;
+        }
+        boolean overloaded = false;
+        boolean ignored = false;
+        boolean interrupted = false;
+        long start = System.nanoTime();
+        LlmCallEvent event = new LlmCallEvent(QaMetricsService.Purpose.ANSWER_STREAM.getTag(), true);
+        event.begin();
+        try {
+            Request request = buildChatRequest(question, context, history, true, event);
+            
+            try (Response response = httpClient.newCall(request).execute()) {
+                event.status = response.code();
+                if (!response.isSuccessful()) {
+                    qaMetricsService.recordLlmResponse(QaMetricsService.Purpose.ANSWER_STREAM, response.code(), start);
+                    log.error("DeepSeek API流式调用失败: {}", response.code());
+                    overloaded = isOverloaded(response.code());
+                    ignored = !overloaded;
+                    return SERVICE_UNAVAILABLE;
+                }
+                
+                BufferedSource source = response.body().source();
+                boolean finished = false;
+                String line;
+                while ((line = source.readUtf8Line()) != null) {
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring(5).trim();
+                    // 流式调用以首个数据块的耗时作为延迟信号，生成时长与答案长度有关，不反映负载
+                    permit.responded();
+                    if ("[DONE]".equals(data)) {
+                        finished = true;
+                        break;
+                    }
+                    ChatCompletionParser.Completion chunk = parseStreamChunk(data);
+                    if (chunk == null) {
+                        continue;
+                    }
+                    // finish_reason之后可能还有只含usage的数据块，继续读到[DONE]或连接关闭
+                    finished |= chunk.getFinishReason() != null;
+                    recordUsage(QaMetricsService.Purpose.ANSWER_STREAM, chunk);
+                    String delta = chunk.getContent();
+                    if (delta != null && !delta.isEmpty()) {
+                        answer.append(delta);
+                        onToken.accept(delta);
+                    }
+                }
+                if (!finished) {
+                    throw new EOFException("流式响应在结束标记之前关闭");
+                }
+                // 流式调用以读完整个响应为结束
+                qaMetricsService.recordLlmResponse(QaMetricsService.Purpose.ANSWER_STREAM, response.code(), start);
+            }
+        } catch (IOException e) {
+            log.error("流式调用DeepSeek API异常，已收到{}个字符", answer.length(), e);
+            qaMetricsService.recordLlmIoError(QaMetricsService.Purpose.ANSWER_STREAM, start);
+            overloaded = true;
+            interrupted = answer.length() > 0;
+        } finally {
+            if (overloaded) {
+                limiter.onDropped(permit);
+            } else if (ignored) {
+                limiter.onIgnore(permit);
+            } else {
+                limiter.onSuccess(permit);
+            }
+            endEvent(event);
+        }
         
-        if (context != null && !context.isEmpty()) {
-            prompt.append("相关知识上下文：\n");
-            prompt.append(context);
-            prompt.append("\n\n");
+        if (interrupted) {
+            return STREAM_INTERRUPTED;
+        }
+        if (answer.length() == 0) {
+            return GENERATION_FAILED;
+        }
+        return answer.toString();
+    }
+    
+    /**
+     * 构建聊天补全请求，请求体由模板直接写入连接
+     */
+    private Request buildChatRequest(String question, String context, ConversationMemory.History history,
+                                     boolean stream, LlmCallEvent event) {
+        return new Request.Builder()
+                .url(deepSeekConfig.getUrl())
+                .addHeader("Authorization", "Bearer " + deepSeekConfig.getApiKey())
+                .post(requestTemplate.body(question, context, history, stream))
+                .tag(LlmCallEvent.class, event)
+                .build();
+    }
+    
+    private ChatCompletionParser.Completion parseStreamChunk(String data) {
+        try {
+            return ChatCompletionParser.parseChunk(data);
+        } catch (IOException e) {
+            log.warn("解析流式响应失败: {}", data);
+            return null;
+        }
+    }
+    
+    /**
+     * 问题分类，结果带有分类来源
+     */
+    public Classification classifyQuestion(String question) {
+        String key = answerCacheService.key(question);
+        String cached = answerCacheService.getQuestionType(key);
+        if (cached != null) {
+            return new Classification(cached, QuestionClassifierService.SOURCE_CACHE);
         }
         
-        prompt.append("请根据以上要求回答用户的问题。");
+        // 本地分类器置信度足够时直接返回，否则回退到LLM
+        String local = questionClassifierService.classify(question);
+        if (local != null) {
+            answerCacheService.putQuestionType(key, local);
+            return new Classification(local, QuestionClassifierService.SOURCE_LOCAL);
+        }
         
-        return prompt.toString();
+        String prompt = "请对以下法律问题进行分类，只返回类别名称（法条查询、概念定义、程序咨询、案例分析、其他）：\n" + question;
+        String result = generate(prompt, null, QaMetricsService.Purpose.CLASSIFY);
+        String category = extractCategory(result);
+        if (isFallbackAnswer(result)) {
+            return new Classification(category, null);
+        }
+        answerCacheService.putQuestionType(key, category);
+        questionClassifierService.recordLlmLabel(question, category);
+        return new Classification(category, QuestionClassifierService.SOURCE_LLM);
     }
     
     /**
-     * 问题分类
+     * 问题分类结果；source为分类来源，LLM调用失败时为null（类别为兜底的“其他”，不可作为训练样本）
      */
-    public String classifyQuestion(String question) {
-        String prompt = "请对以下法律问题进行分类，只返回类别名称（法条查询、概念定义、程序咨询、案例分析、其他）：\n" + question;
-        String result = generateAnswer(prompt, null);
-        return extractCategory(result);
+    @Getter
+    @AllArgsConstructor
+    public static class Classification {
+        private final String type;
+        private final String source;
     }
     
     /**
      * 实体识别
      */
     public Map<String, List<String>> extractEntities(String question) {
+        String key = answerCacheService.key(question);
+        Map<String, List<String>> cached = answerCacheService.getEntities(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // 优先使用词典识别，未识别出任何实体时才按配置回退到LLM
+        if (entityDictionaryService.isReady()) {
+            Map<String, List<String>> entities = entityDictionaryService.extract(question);
+            if (!entityLlmFallback || !EntityDictionaryService.isEmpty(entities)) {
+                answerCacheService.putEntities(key, entities);
+                return entities;
+            }
+        }
+        
         String prompt = "请从以下法律问题中识别实体，包括：法条名称、罪名、机构名称、法律概念等。"
                 + "返回JSON格式：{\"laws\":[],\"crimes\":[],\"organizations\":[],\"concepts\":[]}\n"
                 + "问题：" + question;
         
-        String result = generateAnswer(prompt, null);
-        return parseEntities(result);
+        String result = generate(prompt, null, QaMetricsService.Purpose.EXTRACT);
+        Map<String, List<String>> entities = parseEntities(result);
+        if (!isFallbackAnswer(result)) {
+            answerCacheService.putEntities(key, entities);
+        }
+        return entities;
     }
     
     /**
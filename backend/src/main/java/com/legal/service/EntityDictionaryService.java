@@ -0,0 +1,232 @@
+package com.legal.service;
+
+import com.legal.repository.LegalArticleRepository;
+import com.legal.repository.LegalCaseRepository;
+import com.legal.repository.LegalConceptRepository;
+import com.legal.util.AhoCorasick;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 词典实体识别：由法条标题、概念名称和案由（罪名）编译Aho-Corasick自动机，
+ * 一次线性扫描识别问题中的法律、罪名和概念
+ * 管理员增删改时按差量维护词典（带引用计数），自动机在后台合并重建
+ */
+@Slf4j
+@Service
+public class EntityDictionaryService {
+    
+    public static final String LAWS = "laws";
+    public static final String CRIMES = "crimes";
+    public static final String ORGANIZATIONS = "organizations";
+    public static final String CONCEPTS = "concepts";
+    
+    private static final String PRC_PREFIX = "中华人民共和国";
+    
+    @Autowired
+    private LegalArticleRepository legalArticleRepository;
+    
+    @Autowired
+    private LegalConceptRepository legalConceptRepository;
+    
+    @Autowired
+    private LegalCaseRepository legalCaseRepository;
+    
+    @Autowired
+    private AnswerCacheService answerCacheService;
+    
+    @Value("${qa.entity.min-term-length:2}")
+    private Integer minTermLength;
+    
+    /** 实体类型 -> 规范名称 -> 引用计数 */
+    private final Map<String, Map<String, Integer>> terms = new ConcurrentHashMap<>();
+    
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    
+    private volatile AhoCorasick<List<Term>> automaton;
+    
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reload();
+    }
+    
+    /**
+     * 从数据库全量加载词典并编译自动机
+     */
+    public synchronized void reload() {
+        try {
+            terms.clear();
+            for (Object[] row : legalArticleRepository.countByTitle()) {
+                add(LAWS, (String) row[0], ((Number) row[1]).intValue());
+            }
+            for (String name : legalConceptRepository.findAllNames()) {
+                add(CONCEPTS, name, 1);
+            }
+            for (Object[] row : legalCaseRepository.countByCaseType()) {
+                add(CRIMES, (String) row[0], ((Number) row[1]).intValue());
+            }
+            rebuild();
+        } catch (Exception e) {
+            log.warn("加载实体词典失败", e);
+        }
+    }
+    
+    /**
+     * 数据变更后的差量更新：旧值引用计数减一，新值加一
+     */
+    public void replace(String type, String previous, String current) {
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        if (previous != null) {
+            add(type, previous, -1);
+        }
+        if (current != null) {
+            add(type, current, 1);
+        }
+    }
+    
+    private void add(String type, String term, int delta) {
+        String name = canonical(type, term);
+        if (name == null) {
+            return;
+        }
+        terms.computeIfAbsent(type, k -> new ConcurrentHashMap<>())
+                .merge(name, delta, (a, b) -> a + b <= 0 ? null : a + b);
+        dirty.set(true);
+    }
+    
+    /**
+     * 只保留以“罪”结尾的案由作为罪名，法律名称去掉书名号
+     */
+    private String canonical(String type, String term) {
+        if (term == null) {
+            return null;
+        }
+        String name = term.replace("《", "").replace("》", "").trim();
+        if (CRIMES.equals(type) && !name.endsWith("罪")) {
+            return null;
+        }
+        return name.length() < minTermLength ? null : name;
+    }
+    
+    /**
+     * 合并短时间内的多次变更，定期重建自动机
+     */
+    @Scheduled(fixedDelayString = "${qa.entity.rebuild-interval-ms:5000}")
+    public void rebuildIfDirty() {
+        if (dirty.get()) {
+            rebuild();
+        }
+    }
+    
+    public synchronized void rebuild() {
+        dirty.set(false);
+        Map<String, List<Term>> dictionary = new HashMap<>();
+        terms.forEach((type, names) -> names.keySet().forEach(name -> {
+            dictionary.computeIfAbsent(name, k -> new ArrayList<>(1)).add(new Term(type, name));
+            // “中华人民共和国刑法”同时以“刑法”作为别名
+            if (LAWS.equals(type) && name.startsWith(PRC_PREFIX) && name.length() - PRC_PREFIX.length() >= minTermLength) {
+                dictionary.computeIfAbsent(name.substring(PRC_PREFIX.length()), k -> new ArrayList<>(1))
+                        .add(new Term(type, name));
+            }
+        }));
+        automaton = new AhoCorasick<>(dictionary);
+        answerCacheService.invalidateEntities();
+        log.info("实体词典自动机重建完成，共{}个词条", automaton.size());
+    }
+    
+    public boolean isReady() {
+        return automaton != null && automaton.size() > 0;
+    }
+    
+    /**
+     * 识别问题中的实体，被更长命中完全覆盖的短命中会被丢弃
+     */
+    public Map<String, List<String>> extract(String question) {
+        Map<String, List<String>> entities = new HashMap<>();
+        entities.put(LAWS, new ArrayList<>());
+        entities.put(CRIMES, new ArrayList<>());
+        entities.put(ORGANIZATIONS, new ArrayList<>());
+        entities.put(CONCEPTS, new ArrayList<>());
+        
+        AhoCorasick<List<Term>> current = automaton;
+        if (current == null) {
+            return entities;
+        }
+        List<AhoCorasick.Match<List<Term>>> matches = current.search(question);
+        for (AhoCorasick.Match<List<Term>> match : matches) {
+            if (isCovered(match, matches)) {
+                continue;
+            }
+            for (Term term : match.getValue()) {
+                List<String> list = entities.get(term.type);
+                if (!list.contains(term.name)) {
+                    list.add(term.name);
+                }
+            }
+        }
+        return entities;
+    }
+    
+    /**
+     * 返回文本中命中的全部词典词（规范名称），供检索索引作为整词特征
+     */
+    public Set<String> matchTerms(String text) {
+        AhoCorasick<List<Term>> current = automaton;
+        if (current == null || text == null) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new HashSet<>();
+        for (AhoCorasick.Match<List<Term>> match : current.search(text)) {
+            for (Term term : match.getValue()) {
+                names.add(term.name);
+            }
+        }
+        return names;
+    }
+    
+    private boolean isCovered(AhoCorasick.Match<?> match, List<? extends AhoCorasick.Match<?>> matches) {
+        for (AhoCorasick.Match<?> other : matches) {
+            if (other != match && other.getStart() <= match.getStart() && other.getEnd() >= match.getEnd()
+                    && other.getEnd() - other.getStart() > match.getEnd() - match.getStart()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public static boolean isEmpty(Map<String, List<String>> entities) {
+        return entities.values().stream().allMatch(List::isEmpty);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        terms.forEach((type, names) -> stats.put(type, names.size()));
+        AhoCorasick<List<Term>> current = automaton;
+        stats.put("patterns", current == null ? 0 : current.size());
+        stats.put("pendingRebuild", dirty.get());
+        return stats;
+    }
+    
+    private static class Term {
+        private final String type;
+        private final String name;
+        
+        private Term(String type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+    }
+}
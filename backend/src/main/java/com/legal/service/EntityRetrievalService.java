@@ -0,0 +1,105 @@
+package com.legal.service;
+
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalConcept;
+import com.legal.repository.LegalArticleRepository;
+import com.legal.repository.LegalConceptRepository;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 实体检索：一次请求中识别出的全部法条名称与概念各用一条批量查询取回
+ * 结果作为请求内的备忘，由上下文构建与相关法条共同使用
+ */
+@Service
+public class EntityRetrievalService {
+    
+    /** 每个法条名称最多取回的条文数（上下文取前3条，相关法条合计取前5条） */
+    private static final int ARTICLES_PER_LAW = 5;
+    
+    @Autowired
+    private LegalArticleRepository legalArticleRepository;
+    
+    @Autowired
+    private LegalConceptRepository legalConceptRepository;
+    
+    public EntityLookup resolve(Map<String, List<String>> entities) {
+        List<String> laws = distinct(entities.get(EntityDictionaryService.LAWS));
+        List<String> concepts = distinct(entities.get(EntityDictionaryService.CONCEPTS));
+        EntityLookup lookup = new EntityLookup(laws, concepts);
+        
+        if (!laws.isEmpty()) {
+            List<LegalArticle> articles = new ArrayList<>(
+                    legalArticleRepository.searchByKeywords(laws, ARTICLES_PER_LAW));
+            articles.sort(Comparator.comparing(LegalArticle::getId));
+            // 按关键词重新归组，与逐个 searchByKeyword 的结果一致
+            for (String law : laws) {
+                String keyword = law.toLowerCase();
+                List<LegalArticle> matched = new ArrayList<>();
+                Set<Long> seen = new HashSet<>();
+                for (LegalArticle article : articles) {
+                    if (matched.size() >= ARTICLES_PER_LAW) {
+                        break;
+                    }
+                    if (contains(article.getTitle(), keyword) || contains(article.getArticleNumber(), keyword)) {
+                        if (seen.add(article.getId())) {
+                            matched.add(article);
+                        }
+                    }
+                }
+                lookup.articlesByLaw.put(law, matched);
+            }
+        }
+        
+        if (!concepts.isEmpty()) {
+            for (LegalConcept concept : legalConceptRepository.findByNameIn(concepts)) {
+                lookup.conceptsByName.putIfAbsent(concept.getName(), concept);
+            }
+        }
+        return lookup;
+    }
+    
+    private List<String> distinct(List<String> terms) {
+        List<String> result = new ArrayList<>();
+        if (terms == null) {
+            return result;
+        }
+        for (String term : new LinkedHashSet<>(terms)) {
+            if (term != null && !term.trim().isEmpty()) {
+                result.add(term.trim());
+            }
+        }
+        return result;
+    }
+    
+    private boolean contains(String value, String keyword) {
+        return value != null && value.toLowerCase().contains(keyword);
+    }
+    
+    /**
+     * 单次请求的实体检索结果
+     */
+    @Getter
+    public static class EntityLookup {
+        private final List<String> laws;
+        private final List<String> concepts;
+        private final Map<String, List<LegalArticle>> articlesByLaw = new LinkedHashMap<>();
+        private final Map<String, LegalConcept> conceptsByName = new HashMap<>();
+        
+        private EntityLookup(List<String> laws, List<String> concepts) {
+            this.laws = laws;
+            this.concepts = concepts;
+        }
+        
+        public List<LegalArticle> articlesFor(String law) {
+            return articlesByLaw.getOrDefault(law, Collections.emptyList());
+        }
+        
+        public LegalConcept conceptFor(String name) {
+            return conceptsByName.get(name);
+        }
+    }
+}
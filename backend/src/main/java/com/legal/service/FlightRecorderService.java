@@ -0,0 +1,207 @@
+package com.legal.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按需开启的JFR录制：JVM内置事件之外加入问答流水线事件（阶段、DeepSeek调用、仓库查询）
+ * 录制写入磁盘仓库并按时长与大小滚动，导出时只写出保留的部分
+ * 环境变量、系统属性、JVM启动参数与进程列表可能含有密钥，这些事件始终关闭
+ */
+@Slf4j
+@Service
+public class FlightRecorderService {
+    
+    private static final String QA_EVENTS = "com.legal.";
+    private static final String[] SENSITIVE_EVENTS = {
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation",
+            "jdk.SystemProcess"
+    };
+    private static final String DUMP_PREFIX = "qa-";
+    private static final String DUMP_SUFFIX = ".jfr";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    @Value("${qa.jfr.settings:profile}")
+    private String defaultSettings;
+    
+    @Value("${qa.jfr.max-age-minutes:30}")
+    private Long defaultMaxAgeMinutes;
+    
+    @Value("${qa.jfr.max-size-mb:200}")
+    private Long defaultMaxSizeMb;
+    
+    @Value("${qa.jfr.dump-dir:./jfr}")
+    private String dumpDir;
+    
+    @Value("${qa.jfr.start-on-startup:false}")
+    private Boolean startOnStartup;
+    
+    @Value("${qa.jfr.endpoints-enabled:false}")
+    private Boolean endpointsEnabled;
+    
+    private Recording recording;
+    
+    /**
+     * 是否开放 /admin/jfr/* 接口，默认关闭
+     */
+    public boolean isEndpointsEnabled() {
+        return endpointsEnabled;
+    }
+    
+    /**
+     * 清理上次运行未删除的导出文件
+     */
+    @PostConstruct
+    public void cleanDumpDir() {
+        Path dir = Paths.get(dumpDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, DUMP_PREFIX + "*" + DUMP_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("清理JFR导出目录失败：{}", dir, e);
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (startOnStartup) {
+            start(null, null, null);
+        }
+    }
+    
+    /**
+     * 开启录制；settings为JDK自带的配置名（default或profile），参数为空时取配置值
+     * 已在录制时返回当前状态
+     */
+    public synchronized Map<String, Object> start(String settings, Long maxAgeMinutes, Long maxSizeMb) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return getStatus();
+        }
+        String name = settings != null ? settings : defaultSettings;
+        // 只接受JDK自带的配置名，不读取任意路径的文件
+        Configuration configuration = Configuration.getConfigurations().stream()
+                .filter(c -> c.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("未知的JFR配置：" + name));
+        Recording newRecording = new Recording(configuration);
+        newRecording.setName("legal-qa");
+        newRecording.enable(QA_EVENTS + "QaStage");
+        newRecording.enable(QA_EVENTS + "LlmCall");
+        newRecording.enable(QA_EVENTS + "RepositoryQuery");
+        for (String event : SENSITIVE_EVENTS) {
+            newRecording.disable(event);
+        }
+        newRecording.setToDisk(true);
+        newRecording.setMaxAge(Duration.ofMinutes(maxAgeMinutes != null ? maxAgeMinutes : defaultMaxAgeMinutes));
+        newRecording.setMaxSize((maxSizeMb != null ? maxSizeMb : defaultMaxSizeMb) * 1024 * 1024);
+        newRecording.start();
+        closeRecording();
+        recording = newRecording;
+        log.info("JFR录制已开启：settings={}, maxAge={}, maxSize={}MB", name,
+                newRecording.getMaxAge(), newRecording.getMaxSize() / 1024 / 1024);
+        return getStatus();
+    }
+    
+    /**
+     * 停止录制，停止后仍可导出
+     */
+    public synchronized Map<String, Object> stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("JFR录制已停止");
+        }
+        return getStatus();
+    }
+    
+    /**
+     * 将录制内容写入dump-dir下的临时文件并返回路径，调用方写出后应删除（见 {@link #transfer}）
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            throw new IllegalStateException("尚未开启JFR录制");
+        }
+        Path dir = Paths.get(dumpDir);
+        Files.createDirectories(dir);
+        Path file = Files.createTempFile(dir, DUMP_PREFIX, DUMP_SUFFIX).toAbsolutePath();
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        log.info("JFR录制已导出：{}", file);
+        return file;
+    }
+    
+    /**
+     * 将导出文件写出到out，无论成功与否随后删除
+     */
+    public void transfer(Path file, OutputStream out) throws IOException {
+        try {
+            Files.copy(file, out);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * 下载时使用的文件名
+     */
+    public String dumpFileName() {
+        return DUMP_PREFIX + LocalDateTime.now().format(FILE_TIME) + DUMP_SUFFIX;
+    }
+    
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState().name());
+        status.put("startTime", recording.getStartTime());
+        status.put("stopTime", recording.getStopTime());
+        status.put("maxAgeMinutes", recording.getMaxAge() != null ? recording.getMaxAge().toMinutes() : null);
+        status.put("maxSizeMb", recording.getMaxSize() / 1024 / 1024);
+        status.put("size", recording.getSize());
+        status.put("dumpDir", Paths.get(dumpDir).toAbsolutePath().toString());
+        return status;
+    }
+    
+    @PreDestroy
+    public synchronized void shutdown() {
+        closeRecording();
+    }
+    
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
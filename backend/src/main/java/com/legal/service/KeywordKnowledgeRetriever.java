@@ -0,0 +1,27 @@
+package com.legal.service;
+
+import com.legal.entity.KnowledgeBase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 关键词检索阶段（BM25倒排索引）
+ */
+@Service
+public class KeywordKnowledgeRetriever implements KnowledgeRetriever {
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Override
+    public String getName() {
+        return "keyword";
+    }
+    
+    @Override
+    public List<KnowledgeBase> retrieve(String question, int limit) {
+        return searchIndexService.findKnowledge(question, limit);
+    }
+}
@@ -1,10 +1,14 @@
 package com.legal.service;
 
+import com.legal.dto.KeysetPage;
 import com.legal.entity.KnowledgeBase;
 import com.legal.repository.KnowledgeBaseRepository;
+import com.legal.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,13 +18,56 @@ import java.util.Optional;
 @Service
 public class KnowledgeBaseService {
     
+    private static final int MAX_PAGE_SIZE = 500;
+    
     @Autowired
     private KnowledgeBaseRepository knowledgeBaseRepository;
     
+    @Autowired
+    private AnswerCacheService answerCacheService;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Autowired
+    private SemanticIndexService semanticIndexService;
+    
+    @Autowired
+    private ListingCountService listingCountService;
+    
     public Page<KnowledgeBase> searchKnowledge(String keyword, Pageable pageable) {
         return knowledgeBaseRepository.findByQuestionContainingOrAnswerContaining(keyword, keyword, pageable);
     }
     
+    /**
+     * 知识库列表，按创建时间倒序；关键词为空时直接按索引顺序读取，不再执行 LIKE '%%'
+     * 传入cursor时从游标处继续，否则按页码定位；两种方式均不执行COUNT
+     */
+    public KeysetPage<KnowledgeBase> listKnowledge(String keyword, String cursor, int page, int size) {
+        int limit = Math.min(size, MAX_PAGE_SIZE);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        boolean filtered = keyword != null && !keyword.isEmpty();
+        Slice<KnowledgeBase> slice;
+        if (position == null) {
+            Pageable pageable = PageRequest.of(page, limit);
+            slice = filtered
+                    ? knowledgeBaseRepository.findByKeyword(keyword, pageable)
+                    : knowledgeBaseRepository.findAllByOrderByCreateTimeDescIdDesc(pageable);
+        } else {
+            Pageable pageable = PageRequest.of(0, limit);
+            slice = filtered
+                    ? knowledgeBaseRepository.findByKeywordBefore(keyword, position.getTime(), position.getId(), pageable)
+                    : knowledgeBaseRepository.findBefore(position.getTime(), position.getId(), pageable);
+        }
+        List<KnowledgeBase> content = slice.getContent();
+        String next = null;
+        if (slice.hasNext()) {
+            KnowledgeBase last = content.get(content.size() - 1);
+            next = KeysetCursor.encode(last.getCreateTime(), last.getId());
+        }
+        return new KeysetPage<>(content, content.size(), next, listingCountService.countKnowledge(keyword));
+    }
+    
     public List<KnowledgeBase> getKnowledgeByType(String questionType) {
         return knowledgeBaseRepository.findByQuestionType(questionType);
     }
@@ -35,12 +82,22 @@ public class KnowledgeBaseService {
     
     @Transactional
     public KnowledgeBase saveKnowledge(KnowledgeBase knowledge) {
-        return knowledgeBaseRepository.save(knowledge);
+        KnowledgeBase saved = knowledgeBaseRepository.save(knowledge);
+        searchIndexService.index(saved);
+        semanticIndexService.index(saved);
+        // 答案缓存在事务提交后清空，生成中的答案因缓存代数变化不再写入
+        answerCacheService.onKnowledgeChanged();
+        listingCountService.evictKnowledge();
+        return saved;
     }
     
     @Transactional
     public void deleteKnowledge(Long id) {
         knowledgeBaseRepository.deleteById(id);
+        searchIndexService.removeKnowledge(id);
+        semanticIndexService.remove(id);
+        answerCacheService.onKnowledgeChanged();
+        listingCountService.evictKnowledge();
     }
     
     @Transactional
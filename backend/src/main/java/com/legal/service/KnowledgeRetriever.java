@@ -0,0 +1,21 @@
+package com.legal.service;
+
+import com.legal.entity.KnowledgeBase;
+
+import java.util.List;
+
+/**
+ * 知识库检索阶段，问答流水线按配置组合多个阶段并做排名融合
+ */
+public interface KnowledgeRetriever {
+    
+    /**
+     * 阶段名称，对应配置 qa.retrieval.knowledge-stages
+     */
+    String getName();
+    
+    /**
+     * 按相关度降序返回至多limit条知识
+     */
+    List<KnowledgeBase> retrieve(String question, int limit);
+}
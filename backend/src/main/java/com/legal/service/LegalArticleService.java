@@ -1,32 +1,74 @@
 package com.legal.service;
 
+import com.legal.dto.KeysetPage;
 import com.legal.entity.LegalArticle;
 import com.legal.repository.LegalArticleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class LegalArticleService {
     
+    private static final int MAX_PAGE_SIZE = 500;
+    
     @Autowired
     private LegalArticleRepository legalArticleRepository;
     
+    @Autowired
+    private AnswerCacheService answerCacheService;
+    
+    @Autowired
+    private EntityDictionaryService entityDictionaryService;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Autowired
+    private StreamingExportService streamingExportService;
+    
     public Page<LegalArticle> searchArticles(String keyword, Pageable pageable) {
-        return legalArticleRepository.findByTitleContainingOrContentContaining(keyword, keyword, pageable);
+        return searchIndexService.searchArticles(keyword, pageable);
+    }
+    
+    /**
+     * 按主键游标分页，cursor为上一页最后一条的id
+     */
+    public KeysetPage<LegalArticle> getArticlesByLawType(String lawType, Long cursor, int size) {
+        int limit = Math.min(size, MAX_PAGE_SIZE);
+        return toPage(legalArticleRepository.findByLawTypeAndIdGreaterThanOrderByIdAsc(
+                lawType, cursor == null ? 0L : cursor, PageRequest.of(0, limit)), limit);
+    }
+    
+    public KeysetPage<LegalArticle> getValidArticles(Long cursor, int size) {
+        int limit = Math.min(size, MAX_PAGE_SIZE);
+        return toPage(legalArticleRepository.findByIsValidTrueAndIdGreaterThanOrderByIdAsc(
+                cursor == null ? 0L : cursor, PageRequest.of(0, limit)), limit);
     }
     
-    public List<LegalArticle> getArticlesByLawType(String lawType) {
-        return legalArticleRepository.findByLawType(lawType);
+    private KeysetPage<LegalArticle> toPage(List<LegalArticle> articles, int limit) {
+        String next = articles.size() < limit ? null : String.valueOf(articles.get(articles.size() - 1).getId());
+        return new KeysetPage<>(articles, articles.size(), next);
     }
     
-    public List<LegalArticle> getAllValidArticles() {
-        return legalArticleRepository.findByIsValidTrue();
+    /**
+     * 流式导出（NDJSON），lawType为空时导出全部有效法条
+     */
+    public long streamArticles(String lawType, OutputStream out) {
+        if (lawType == null) {
+            return streamingExportService.writeNdjson("SELECT * FROM legal_articles WHERE is_valid = TRUE ORDER BY id",
+                    new Object[0], BeanPropertyRowMapper.newInstance(LegalArticle.class), out);
+        }
+        return streamingExportService.writeNdjson("SELECT * FROM legal_articles WHERE law_type = ? ORDER BY id",
+                new Object[]{lawType}, BeanPropertyRowMapper.newInstance(LegalArticle.class), out);
     }
     
     public Optional<LegalArticle> getArticleById(Long id) {
@@ -35,12 +77,27 @@ public class LegalArticleService {
     
     @Transactional
     public LegalArticle saveArticle(LegalArticle article) {
-        return legalArticleRepository.save(article);
+        String previousTitle = null;
+        if (article.getId() != null) {
+            Optional<LegalArticle> previous = legalArticleRepository.findById(article.getId());
+            previous.ifPresent(answerCacheService::onArticleChanged);
+            previousTitle = previous.map(LegalArticle::getTitle).orElse(null);
+        }
+        LegalArticle saved = legalArticleRepository.save(article);
+        answerCacheService.onArticleChanged(saved);
+        entityDictionaryService.replace(EntityDictionaryService.LAWS, previousTitle, saved.getTitle());
+        searchIndexService.index(saved);
+        return saved;
     }
     
     @Transactional
     public void deleteArticle(Long id) {
+        legalArticleRepository.findById(id).ifPresent(previous -> {
+            answerCacheService.onArticleChanged(previous);
+            entityDictionaryService.replace(EntityDictionaryService.LAWS, previous.getTitle(), null);
+        });
         legalArticleRepository.deleteById(id);
+        searchIndexService.removeArticle(id);
     }
 }
 
@@ -1,46 +1,92 @@
 package com.legal.service;
 
+import com.legal.dto.KeysetPage;
 import com.legal.entity.LegalCase;
 import com.legal.repository.LegalCaseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class LegalCaseService {
     
+    private static final int MAX_PAGE_SIZE = 500;
+    
     @Autowired
     private LegalCaseRepository legalCaseRepository;
     
-    public Page<LegalCase> searchCases(String keyword, Pageable pageable) {
-        return legalCaseRepository.findByTitleContainingOrContentContaining(keyword, keyword, pageable);
-    }
+    @Autowired
+    private AnswerCacheService answerCacheService;
+    
+    @Autowired
+    private EntityDictionaryService entityDictionaryService;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
     
-    public List<LegalCase> getCasesByLawType(String lawType) {
-        return legalCaseRepository.findByLawType(lawType);
+    @Autowired
+    private StreamingExportService streamingExportService;
+    
+    public Page<LegalCase> searchCases(String keyword, Pageable pageable) {
+        return searchIndexService.searchCases(keyword, pageable);
     }
     
     public List<LegalCase> getCasesByCaseType(String caseType) {
         return legalCaseRepository.findByCaseType(caseType);
     }
     
+    /**
+     * 按主键游标分页，cursor为上一页最后一条的id
+     */
+    public KeysetPage<LegalCase> getCasesByLawType(String lawType, Long cursor, int size) {
+        int limit = Math.min(size, MAX_PAGE_SIZE);
+        List<LegalCase> cases = legalCaseRepository.findByLawTypeAndIdGreaterThanOrderByIdAsc(
+                lawType, cursor == null ? 0L : cursor, PageRequest.of(0, limit));
+        String next = cases.size() < limit ? null : String.valueOf(cases.get(cases.size() - 1).getId());
+        return new KeysetPage<>(cases, cases.size(), next);
+    }
+    
+    /**
+     * 流式导出（NDJSON）
+     */
+    public long streamCasesByLawType(String lawType, OutputStream out) {
+        return streamingExportService.writeNdjson("SELECT * FROM legal_cases WHERE law_type = ? ORDER BY id",
+                new Object[]{lawType}, BeanPropertyRowMapper.newInstance(LegalCase.class), out);
+    }
+    
     public Optional<LegalCase> getCaseById(Long id) {
         return legalCaseRepository.findById(id);
     }
     
     @Transactional
     public LegalCase saveCase(LegalCase legalCase) {
-        return legalCaseRepository.save(legalCase);
+        String previousCaseType = null;
+        if (legalCase.getId() != null) {
+            previousCaseType = legalCaseRepository.findById(legalCase.getId())
+                    .map(LegalCase::getCaseType).orElse(null);
+        }
+        LegalCase saved = legalCaseRepository.save(legalCase);
+        answerCacheService.onCaseChanged();
+        entityDictionaryService.replace(EntityDictionaryService.CRIMES, previousCaseType, saved.getCaseType());
+        searchIndexService.index(saved);
+        return saved;
     }
     
     @Transactional
     public void deleteCase(Long id) {
+        legalCaseRepository.findById(id).ifPresent(previous ->
+                entityDictionaryService.replace(EntityDictionaryService.CRIMES, previous.getCaseType(), null));
         legalCaseRepository.deleteById(id);
+        searchIndexService.removeCase(id);
+        answerCacheService.onCaseChanged();
     }
 }
 
@@ -17,8 +17,17 @@ public class LegalConceptService {
     @Autowired
     private LegalConceptRepository legalConceptRepository;
     
+    @Autowired
+    private AnswerCacheService answerCacheService;
+    
+    @Autowired
+    private EntityDictionaryService entityDictionaryService;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
     public Page<LegalConcept> searchConcepts(String keyword, Pageable pageable) {
-        return legalConceptRepository.findByNameContainingOrDefinitionContaining(keyword, keyword, pageable);
+        return searchIndexService.searchConcepts(keyword, pageable);
     }
     
     public List<LegalConcept> getConceptsByLawType(String lawType) {
@@ -35,12 +44,27 @@ public class LegalConceptService {
     
     @Transactional
     public LegalConcept saveConcept(LegalConcept concept) {
-        return legalConceptRepository.save(concept);
+        String previousName = null;
+        if (concept.getId() != null) {
+            Optional<LegalConcept> previous = legalConceptRepository.findById(concept.getId());
+            previous.ifPresent(answerCacheService::onConceptChanged);
+            previousName = previous.map(LegalConcept::getName).orElse(null);
+        }
+        LegalConcept saved = legalConceptRepository.save(concept);
+        answerCacheService.onConceptChanged(saved);
+        entityDictionaryService.replace(EntityDictionaryService.CONCEPTS, previousName, saved.getName());
+        searchIndexService.index(saved);
+        return saved;
     }
     
     @Transactional
     public void deleteConcept(Long id) {
+        legalConceptRepository.findById(id).ifPresent(previous -> {
+            answerCacheService.onConceptChanged(previous);
+            entityDictionaryService.replace(EntityDictionaryService.CONCEPTS, previous.getName(), null);
+        });
         legalConceptRepository.deleteById(id);
+        searchIndexService.removeConcept(id);
     }
 }
 
@@ -0,0 +1,104 @@
+package com.legal.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.legal.repository.KnowledgeBaseRepository;
+import com.legal.repository.QuestionAnswerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 列表页的近似总数：分页查询本身不再执行COUNT，总数按条件缓存一段时间
+ * 无过滤条件的大表直接使用 information_schema 中的行数估算值
+ */
+@Slf4j
+@Service
+public class ListingCountService {
+    
+    private static final String QA_PREFIX = "qa:";
+    private static final String KB_PREFIX = "kb:";
+    
+    @Autowired
+    private QuestionAnswerRepository questionAnswerRepository;
+    
+    @Autowired
+    private KnowledgeBaseRepository knowledgeBaseRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${qa.listing.count-ttl-seconds:60}")
+    private Long countTtlSeconds;
+    
+    @Value("${qa.listing.count-max-size:10000}")
+    private Long countMaxSize;
+    
+    /** 估算行数低于该值时改用精确COUNT，小表的估算值误差较大 */
+    @Value("${qa.listing.estimate-threshold:100000}")
+    private Long estimateThreshold;
+    
+    private Cache<String, Long> counts;
+    
+    @PostConstruct
+    public void init() {
+        counts = Caffeine.newBuilder()
+                .maximumSize(countMaxSize)
+                .expireAfterWrite(countTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+    
+    public long countUserQuestions(Long userId) {
+        return cached(QA_PREFIX + "user:" + userId, () -> questionAnswerRepository.countByUserId(userId));
+    }
+    
+    public long countQuestions(String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            return cached(QA_PREFIX + "all",
+                    () -> estimateRows("question_answers", questionAnswerRepository::count));
+        }
+        return cached(QA_PREFIX + "keyword:" + keyword,
+                () -> questionAnswerRepository.countByQuestionContaining(keyword));
+    }
+    
+    public long countKnowledge(String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            return cached(KB_PREFIX + "all",
+                    () -> estimateRows("knowledge_base", knowledgeBaseRepository::count));
+        }
+        return cached(KB_PREFIX + "keyword:" + keyword,
+                () -> knowledgeBaseRepository.countByQuestionContainingOrAnswerContaining(keyword, keyword));
+    }
+    
+    /**
+     * 知识库由管理员维护，增删后立即失效，使后台列表的总数及时更新
+     */
+    public void evictKnowledge() {
+        counts.asMap().keySet().removeIf(key -> key.startsWith(KB_PREFIX));
+    }
+    
+    private long cached(String key, LongSupplier loader) {
+        return counts.get(key, k -> loader.getAsLong());
+    }
+    
+    private long estimateRows(String table, LongSupplier exactCount) {
+        try {
+            List<Long> rows = jdbcTemplate.queryForList(
+                    "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                    Long.class, table);
+            if (!rows.isEmpty() && rows.get(0) != null && rows.get(0) >= estimateThreshold) {
+                return rows.get(0);
+            }
+        } catch (Exception e) {
+            log.warn("读取表行数估算失败: {}", table, e);
+        }
+        return exactCount.getAsLong();
+    }
+}
@@ -0,0 +1,247 @@
+package com.legal.service;
+
+import com.legal.util.ContextPacker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 问答流水线指标：各阶段耗时、按用途区分的LLM调用耗时与状态码、词元用量及检索命中数
+ * 计量器在启动时按枚举预先注册，记录时按下标取出，热路径上不构造标签、不分配对象
+ */
+@Service
+public class QaMetricsService {
+    
+    private static final int MIN_STATUS = 100;
+    private static final int MAX_STATUS = 599;
+    
+    /**
+     * 流水线阶段
+     */
+    @Getter
+    public enum Stage {
+        CLASSIFICATION("classification"),
+        EXTRACTION("extraction"),
+        ENTITY_LOOKUP("entity_lookup"),
+        CASE_SEARCH("case_search"),
+        CONVERSATION("conversation"),
+        SIMILAR_QA("similar_qa"),
+        CONTEXT("context"),
+        GENERATION("generation"),
+        RELATED_LAWS("related_laws"),
+        RELATED_CASES("related_cases"),
+        SAVE("save"),
+        TOTAL("total");
+        
+        private final String tag;
+        
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+    
+    /**
+     * LLM调用用途
+     */
+    @Getter
+    public enum Purpose {
+        CLASSIFY("classify"),
+        EXTRACT("extract"),
+        ANSWER("answer"),
+        ANSWER_STREAM("answer_stream");
+        
+        private final String tag;
+        
+        Purpose(String tag) {
+            this.tag = tag;
+        }
+    }
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Timer[] stageTimers;
+    private Timer[] llmSuccessTimers;
+    private Timer[] llmFailureTimers;
+    private Counter[] llmIoErrors;
+    private Counter[] llmRejected;
+    private DistributionSummary[] promptTokens;
+    private DistributionSummary[] completionTokens;
+    private AtomicReferenceArray<Counter>[] statusCounters;
+    
+    private DistributionSummary contextTokens;
+    private DistributionSummary contextBudgetUsage;
+    private Counter[] contextSnippets;
+    
+    private final Map<String, DistributionSummary> retrievalHits = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void init() {
+        Stage[] stages = Stage.values();
+        stageTimers = new Timer[stages.length];
+        for (Stage stage : stages) {
+            stageTimers[stage.ordinal()] = Timer.builder("qa.pipeline.stage")
+                    .description("问答流水线各阶段耗时")
+                    .tag("stage", stage.getTag())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(120))
+                    .register(meterRegistry);
+        }
+        
+        Purpose[] purposes = Purpose.values();
+        llmSuccessTimers = new Timer[purposes.length];
+        llmFailureTimers = new Timer[purposes.length];
+        llmIoErrors = new Counter[purposes.length];
+        llmRejected = new Counter[purposes.length];
+        promptTokens = new DistributionSummary[purposes.length];
+        completionTokens = new DistributionSummary[purposes.length];
+        statusCounters = new AtomicReferenceArray[purposes.length];
+        for (Purpose purpose : purposes) {
+            int i = purpose.ordinal();
+            llmSuccessTimers[i] = llmTimer(purpose, "success");
+            llmFailureTimers[i] = llmTimer(purpose, "failure");
+            llmIoErrors[i] = statusCounter(purpose, "io_error");
+            llmRejected[i] = statusCounter(purpose, "rejected");
+            promptTokens[i] = tokenSummary(purpose, "prompt");
+            completionTokens[i] = tokenSummary(purpose, "completion");
+            statusCounters[i] = new AtomicReferenceArray<>(MAX_STATUS - MIN_STATUS + 1);
+        }
+        
+        contextTokens = DistributionSummary.builder("qa.context.tokens")
+                .description("拼装后上下文的估算词元数")
+                .baseUnit("tokens")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(32768.0)
+                .register(meterRegistry);
+        contextBudgetUsage = DistributionSummary.builder("qa.context.budget.usage")
+                .description("上下文占词元预算的比例")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        String[] outcomes = {"selected", "truncated", "deduplicated", "dropped"};
+        contextSnippets = new Counter[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            contextSnippets[i] = Counter.builder("qa.context.snippets")
+                    .description("上下文候选片段：入选、截断（入选的子集）、因重叠跳过、超出预算舍弃")
+                    .tag("outcome", outcomes[i])
+                    .register(meterRegistry);
+        }
+    }
+    
+    private Timer llmTimer(Purpose purpose, String outcome) {
+        return Timer.builder("qa.llm.request")
+                .description("DeepSeek接口调用耗时（不含排队等待并发许可的时间）")
+                .tag("purpose", purpose.getTag())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofSeconds(120))
+                .register(meterRegistry);
+    }
+    
+    private Counter statusCounter(Purpose purpose, String status) {
+        return Counter.builder("qa.llm.responses")
+                .description("DeepSeek接口响应，按HTTP状态码计数；io_error为网络异常，rejected为并发已满未发出")
+                .tag("purpose", purpose.getTag())
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+    
+    private DistributionSummary tokenSummary(Purpose purpose, String type) {
+        return DistributionSummary.builder("qa.llm.tokens")
+                .description("DeepSeek返回的usage中的词元数")
+                .baseUnit("tokens")
+                .tag("purpose", purpose.getTag())
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(65536.0)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 记录从start（System.nanoTime）到现在的阶段耗时
+     */
+    public void recordStage(Stage stage, long start) {
+        stageTimers[stage.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * 记录一次收到响应的LLM调用：耗时按成功与否分开，状态码单独计数
+     */
+    public void recordLlmResponse(Purpose purpose, int status, long start) {
+        int i = purpose.ordinal();
+        boolean success = status >= 200 && status < 300;
+        (success ? llmSuccessTimers[i] : llmFailureTimers[i])
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (status < MIN_STATUS || status > MAX_STATUS) {
+            return;
+        }
+        AtomicReferenceArray<Counter> counters = statusCounters[i];
+        Counter counter = counters.get(status - MIN_STATUS);
+        if (counter == null) {
+            // 同一标签重复注册返回同一计量器，并发初始化无害
+            counter = statusCounter(purpose, String.valueOf(status));
+            counters.set(status - MIN_STATUS, counter);
+        }
+        counter.increment();
+    }
+    
+    public void recordLlmIoError(Purpose purpose, long start) {
+        llmFailureTimers[purpose.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        llmIoErrors[purpose.ordinal()].increment();
+    }
+    
+    public void recordLlmRejected(Purpose purpose) {
+        llmRejected[purpose.ordinal()].increment();
+    }
+    
+    public void recordTokens(Purpose purpose, long prompt, long completion) {
+        promptTokens[purpose.ordinal()].record(prompt);
+        completionTokens[purpose.ordinal()].record(completion);
+    }
+    
+    /**
+     * 记录一次上下文拼装的词元用量与候选片段去向
+     */
+    public void recordContext(ContextPacker.Result result) {
+        contextTokens.record(result.getUsedTokens());
+        if (result.getBudget() > 0) {
+            contextBudgetUsage.record((double) result.getUsedTokens() / result.getBudget());
+        }
+        contextSnippets[0].increment(result.getSelected());
+        contextSnippets[1].increment(result.getTruncated());
+        contextSnippets[2].increment(result.getDeduplicated());
+        contextSnippets[3].increment(result.getDropped());
+    }
+    
+    /**
+     * 记录检索结果条数，source为知识检索阶段名（keyword、semantic）、fused（融合去重后）、articles或cases
+     */
+    public void recordRetrievalHits(String source, int hits) {
+        DistributionSummary summary = retrievalHits.get(source);
+        if (summary == null) {
+            summary = retrievalHits.computeIfAbsent(source, s -> DistributionSummary.builder("qa.retrieval.hits")
+                    .description("各检索来源返回的结果条数")
+                    .tag("source", s)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(64.0)
+                    .register(meterRegistry));
+        }
+        summary.record(hits);
+    }
+}
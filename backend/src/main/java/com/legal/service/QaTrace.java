@@ -0,0 +1,103 @@
+package com.legal.service;
+
+import com.legal.util.QaEvent;
+import com.legal.util.QaStageEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * 单个问题的处理轨迹：各阶段计入指标并生成JFR事件
+ * 阶段执行期间轨迹绑定到当前线程，DeepSeek调用与仓库查询据此把事件归入所属问题；
+ * 事件在执行它的线程上立即提交，可与同一线程上的锁竞争、线程挂起等JVM事件对应；
+ * 分类完成前结束的事件不带问题类型，可按会话与其他事件关联
+ */
+public class QaTrace {
+
+    private static final ThreadLocal<QaTrace> CURRENT = new ThreadLocal<>();
+
+    private final QaMetricsService qaMetricsService;
+    private final String sessionId;
+    private final long start = System.nanoTime();
+    private final QaStageEvent total = new QaStageEvent(QaMetricsService.Stage.TOTAL.getTag());
+    private volatile String questionType;
+
+    public QaTrace(QaMetricsService qaMetricsService, String sessionId) {
+        this.qaMetricsService = qaMetricsService;
+        this.sessionId = sessionId;
+        total.begin();
+    }
+
+    /**
+     * 当前线程所属的问题轨迹，不在问答流水线中时为null
+     */
+    public static QaTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在本轨迹下执行一个阶段并计时
+     */
+    public <T> T time(QaMetricsService.Stage stage, Supplier<T> action) {
+        long stageStart = System.nanoTime();
+        QaStageEvent event = new QaStageEvent(stage.getTag());
+        event.begin();
+        QaTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+            qaMetricsService.recordStage(stage, stageStart);
+            event.end();
+            add(event);
+        }
+    }
+
+    /**
+     * 在本轨迹下执行，不单独计时
+     */
+    public <T> T run(Supplier<T> action) {
+        QaTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 在当前线程提交已结束的事件；未开启录制或未达到阈值的事件直接丢弃
+     */
+    public void add(QaEvent event) {
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.questionType = questionType;
+            event.commit();
+        }
+    }
+
+    /**
+     * 分类完成时设置，之后提交的事件带上问题类型
+     */
+    public void setQuestionType(String questionType) {
+        this.questionType = questionType;
+    }
+
+    /**
+     * 问题处理结束：记录总耗时并提交总耗时事件
+     */
+    public void finish() {
+        qaMetricsService.recordStage(QaMetricsService.Stage.TOTAL, start);
+        total.end();
+        add(total);
+    }
+
+    private static void restore(QaTrace previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
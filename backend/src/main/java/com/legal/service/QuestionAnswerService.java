@@ -1,31 +1,48 @@
 package com.legal.service;
 
-import com.alibaba.fastjson2.JSON;
+import com.legal.dto.KeysetPage;
+import com.legal.dto.QuestionExportFilter;
 import com.legal.entity.KnowledgeBase;
 import com.legal.entity.LegalArticle;
 import com.legal.entity.LegalCase;
 import com.legal.entity.LegalConcept;
 import com.legal.entity.QuestionAnswer;
-import com.legal.repository.KnowledgeBaseRepository;
-import com.legal.repository.LegalArticleRepository;
 import com.legal.repository.LegalCaseRepository;
-import com.legal.repository.LegalConceptRepository;
 import com.legal.repository.QuestionAnswerRepository;
+import com.legal.util.ContextPacker;
+import com.legal.util.ConversationMemory;
+import com.legal.util.KeysetCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class QuestionAnswerService {
     
+    private static final int RRF_K = 60;
+    
+    private static final int MAX_PAGE_SIZE = 500;
+    
+    private static final int ARTICLES_PER_LAW = 5;
+    
     @Autowired
     private QuestionAnswerRepository questionAnswerRepository;
     
@@ -33,60 +50,189 @@ public class QuestionAnswerService {
     private DeepSeekService deepSeekService;
     
     @Autowired
-    private KnowledgeBaseRepository knowledgeBaseRepository;
+    private QuestionAnswerWriter questionAnswerWriter;
     
     @Autowired
-    private LegalArticleRepository legalArticleRepository;
+    private LegalCaseRepository legalCaseRepository;
     
     @Autowired
-    private LegalCaseRepository legalCaseRepository;
+    private AnswerCacheService answerCacheService;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Autowired
+    private EntityRetrievalService entityRetrievalService;
     
     @Autowired
-    private LegalConceptRepository legalConceptRepository;
+    private ListingCountService listingCountService;
+    
+    @Autowired
+    private StatsRollupService statsRollupService;
+    
+    @Autowired
+    private StreamingExportService streamingExportService;
+    
+    @Autowired
+    private QaMetricsService qaMetricsService;
+    
+    @Autowired
+    private ConversationMemoryService conversationMemoryService;
+    
+    @Autowired
+    private List<KnowledgeRetriever> knowledgeRetrievers;
+    
+    @Value("${qa.retrieval.knowledge-stages:keyword,semantic}")
+    private String knowledgeStages;
+    
+    @Value("${qa.context.max-tokens:2000}")
+    private Integer contextMaxTokens;
+    
+    @Value("${qa.context.snippet-max-tokens:400}")
+    private Integer contextSnippetMaxTokens;
+    
+    @Value("${qa.context.overlap-threshold:0.8}")
+    private Double contextOverlapThreshold;
+    
+    @Autowired
+    @Qualifier("qaPipelineExecutor")
+    private Executor qaPipelineExecutor;
     
     /**
      * 处理用户问题并生成答案
+     * 分类、实体识别与仅依赖原始问题的检索并行执行，生成答案只等待其所需的输入
      */
-    @Transactional
     public Map<String, Object> processQuestion(String question, Long userId, String sessionId) {
+        return processQuestion(question, userId, sessionId, null);
+    }
+    
+    /**
+     * 处理用户问题，onToken不为空时以流式方式生成答案并逐段回调
+     * 问答记录在答案生成完毕后保存
+     */
+    public Map<String, Object> processQuestion(String question, Long userId, String sessionId,
+                                               Consumer<String> onToken) {
+        QaTrace trace = new QaTrace(qaMetricsService, sessionId);
+        try {
+            return processQuestion(question, userId, sessionId, onToken, trace);
+        } finally {
+            trace.finish();
+        }
+    }
+    
+    private Map<String, Object> processQuestion(String question, Long userId, String sessionId,
+                                                Consumer<String> onToken, QaTrace trace) {
         Map<String, Object> result = new HashMap<>();
         
-        // 1. 问题分类
-        String questionType = deepSeekService.classifyQuestion(question);
+        // 1. 问题分类 / 2. 实体识别（并行）
+        CompletableFuture<DeepSeekService.Classification> classificationFuture = CompletableFuture
+                .supplyAsync(() -> trace.time(QaMetricsService.Stage.CLASSIFICATION, () -> {
+                    DeepSeekService.Classification classification = deepSeekService.classifyQuestion(question);
+                    // 分类一完成就设置问题类型，之后各线程提交的事件都能带上
+                    trace.setQuestionType(classification.getType());
+                    return classification;
+                }), qaPipelineExecutor);
+        CompletableFuture<Map<String, List<String>>> entitiesFuture = CompletableFuture
+                .supplyAsync(() -> trace.time(QaMetricsService.Stage.EXTRACTION,
+                        () -> deepSeekService.extractEntities(question)), qaPipelineExecutor);
+        
+        // 实体对应的法条与概念批量取回一次，上下文构建与相关法条共用
+        CompletableFuture<EntityRetrievalService.EntityLookup> lookupFuture = entitiesFuture
+                .thenApplyAsync(entities -> trace.time(QaMetricsService.Stage.ENTITY_LOOKUP,
+                        () -> entityRetrievalService.resolve(entities)), qaPipelineExecutor);
+        
+        // 仅依赖原始问题的检索立即开始
+        CompletableFuture<List<LegalCase>> keywordCasesFuture = CompletableFuture
+                .supplyAsync(() -> trace.time(QaMetricsService.Stage.CASE_SEARCH,
+                        () -> searchIndexService.findCases(question, 3)), qaPipelineExecutor);
         
-        // 2. 实体识别
-        Map<String, List<String>> entities = deepSeekService.extractEntities(question);
+        // 会话的对话历史；有历史时答案与之相关，不读写答案缓存
+        ConversationMemory.History history = trace.time(QaMetricsService.Stage.CONVERSATION,
+                () -> conversationMemoryService.getHistory(userId, sessionId));
+        String cacheKey = answerCacheService.key(question);
+        AnswerCacheService.CachedAnswer cachedAnswer = history.isEmpty() ? answerCacheService.getAnswer(cacheKey) : null;
+        // 检索前取缓存代数，生成期间知识变更则答案不写入缓存
+        long cacheGeneration = answerCacheService.generation();
+        CompletableFuture<String> answerFuture;
+        if (cachedAnswer != null) {
+            // 命中答案缓存，跳过知识检索与答案生成
+            if (onToken != null) {
+                onToken.accept(cachedAnswer.getAnswer());
+            }
+            answerFuture = CompletableFuture.completedFuture(cachedAnswer.getAnswer());
+        } else {
+            CompletableFuture<List<KnowledgeBase>> similarQAsFuture = CompletableFuture
+                    .supplyAsync(() -> trace.time(QaMetricsService.Stage.SIMILAR_QA,
+                            () -> findSimilarQAs(question, 3)), qaPipelineExecutor);
+            
+            // 3. 知识检索（依赖实体与相似问答），同时记录答案依赖的知识用于缓存失效
+            AnswerCacheService.CachedAnswer dependencies = new AnswerCacheService.CachedAnswer();
+            CompletableFuture<String> contextFuture = similarQAsFuture
+                    .thenCombineAsync(lookupFuture,
+                            (similarQAs, lookup) -> trace.time(QaMetricsService.Stage.CONTEXT,
+                                    () -> retrieveKnowledge(question, similarQAs, lookup, dependencies)),
+                            qaPipelineExecutor);
+            
+            // 4. 生成答案（只等待上下文）
+            answerFuture = contextFuture
+                    .thenApplyAsync(context -> {
+                        String answer = trace.time(QaMetricsService.Stage.GENERATION, () -> onToken == null
+                                ? deepSeekService.generateAnswer(question, context, history)
+                                : deepSeekService.streamAnswer(question, context, history, onToken));
+                        if (history.isEmpty() && !deepSeekService.isFallbackAnswer(answer)) {
+                            dependencies.setQuestion(question);
+                            dependencies.setAnswer(answer);
+                            answerCacheService.putAnswer(cacheKey, dependencies, cacheGeneration);
+                        }
+                        return answer;
+                    }, qaPipelineExecutor);
+        }
         
-        // 3. 知识检索
-        String context = retrieveKnowledge(question, questionType, entities);
+        // 6. 检索相关法条和案例
+        CompletableFuture<List<LegalArticle>> relatedLawsFuture = lookupFuture
+                .thenApplyAsync(lookup -> trace.time(QaMetricsService.Stage.RELATED_LAWS,
+                        () -> findRelatedLaws(question, lookup)), qaPipelineExecutor);
+        CompletableFuture<List<LegalCase>> relatedCasesFuture = keywordCasesFuture
+                .thenCombineAsync(classificationFuture,
+                        (cases, classification) -> trace.time(QaMetricsService.Stage.RELATED_CASES,
+                                () -> findRelatedCases(cases, classification.getType())), qaPipelineExecutor);
         
-        // 4. 生成答案
-        String answer = deepSeekService.generateAnswer(question, context);
+        DeepSeekService.Classification classification = await(classificationFuture);
+        String questionType = classification.getType();
+        Map<String, List<String>> entities = await(entitiesFuture);
+        String answer = await(answerFuture);
+        if (!deepSeekService.isFallbackAnswer(answer)) {
+            conversationMemoryService.record(userId, sessionId, question, answer);
+        }
+        List<LegalArticle> relatedLaws = await(relatedLawsFuture);
+        List<LegalCase> relatedCases = await(relatedCasesFuture);
+        qaMetricsService.recordRetrievalHits("articles", relatedLaws.size());
+        qaMetricsService.recordRetrievalHits("cases", relatedCases.size());
         
         // 5. 可信度评估
         Double confidenceScore = deepSeekService.evaluateConfidence(question, answer);
         
-        // 6. 检索相关法条和案例
-        List<LegalArticle> relatedLaws = findRelatedLaws(question, entities);
-        List<LegalCase> relatedCases = findRelatedCases(question, questionType);
-        
-        // 7. 保存问答记录
+        // 7. 保存问答记录（异步批量写入，JSON序列化在写入线程完成）
         QuestionAnswer qa = new QuestionAnswer();
         qa.setUserId(userId);
         qa.setQuestion(question);
         qa.setAnswer(answer);
         qa.setQuestionType(questionType);
+        qa.setQuestionTypeSource(classification.getSource());
         qa.setConfidenceScore(confidenceScore);
-        qa.setEntities(JSON.toJSONString(entities));
-        qa.setRelatedLaws(JSON.toJSONString(relatedLaws.stream()
-                .map(la -> la.getTitle() + "第" + la.getArticleNumber() + "条")
-                .collect(Collectors.toList())));
-        qa.setRelatedCases(JSON.toJSONString(relatedCases.stream()
-                .map(lc -> lc.getTitle())
-                .collect(Collectors.toList())));
         qa.setSessionId(sessionId);
         qa.setIsFeedback(false);
-        qa = questionAnswerRepository.save(qa);
+        trace.time(QaMetricsService.Stage.SAVE, () -> {
+            questionAnswerWriter.submit(qa, entities,
+                    relatedLaws.stream()
+                            .map(la -> la.getTitle() + "第" + la.getArticleNumber() + "条")
+                            .collect(Collectors.toList()),
+                    relatedCases.stream()
+                            .map(lc -> lc.getTitle())
+                            .collect(Collectors.toList()));
+            statsRollupService.recordQuestion(qa);
+            return qa.getId();
+        });
         
         // 8. 构建返回结果
         result.put("id", qa.getId());
@@ -103,64 +249,111 @@ public class QuestionAnswerService {
     }
     
     /**
-     * 知识检索
+     * 等待异步阶段完成，并还原原始异常
      */
-    private String retrieveKnowledge(String question, String questionType, Map<String, List<String>> entities) {
-        StringBuilder context = new StringBuilder();
-        
-        // 1. 从知识库检索相似问题
-        List<KnowledgeBase> similarQAs = knowledgeBaseRepository
-                .searchByKeywordOrderByScore(question, org.springframework.data.domain.PageRequest.of(0, 3));
-        if (!similarQAs.isEmpty()) {
-            context.append("相关问答：\n");
-            for (KnowledgeBase kb : similarQAs) {
-                context.append("Q: ").append(kb.getQuestion()).append("\n");
-                context.append("A: ").append(kb.getAnswer()).append("\n\n");
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
+            throw e;
         }
-        
-        // 2. 检索相关法条
-        List<String> laws = entities.getOrDefault("laws", new ArrayList<>());
-        for (String law : laws) {
-            List<LegalArticle> articles = legalArticleRepository.searchByKeyword(law);
-            if (!articles.isEmpty()) {
-                context.append("相关法条：\n");
-                for (LegalArticle article : articles.subList(0, Math.min(3, articles.size()))) {
-                    context.append(article.getTitle())
-                            .append("第").append(article.getArticleNumber())
-                            .append("条：").append(article.getContent()).append("\n\n");
+    }
+    
+    /**
+     * 相似问答检索：依次执行配置的检索阶段（关键词、语义），按倒数排名融合（RRF）合并去重
+     */
+    private List<KnowledgeBase> findSimilarQAs(String question, int limit) {
+        List<String> stages = Arrays.asList(knowledgeStages.split("\\s*,\\s*"));
+        Map<Long, KnowledgeBase> byId = new LinkedHashMap<>();
+        Map<Long, Double> fused = new HashMap<>();
+        for (KnowledgeRetriever retriever : knowledgeRetrievers) {
+            if (!stages.contains(retriever.getName())) {
+                continue;
+            }
+            try {
+                List<KnowledgeBase> found = retriever.retrieve(question, limit);
+                qaMetricsService.recordRetrievalHits(retriever.getName(), found.size());
+                for (int rank = 0; rank < found.size(); rank++) {
+                    KnowledgeBase kb = found.get(rank);
+                    byId.putIfAbsent(kb.getId(), kb);
+                    fused.merge(kb.getId(), 1.0 / (RRF_K + rank + 1), Double::sum);
                 }
+            } catch (Exception e) {
+                log.warn("知识检索阶段{}失败", retriever.getName(), e);
             }
         }
+        qaMetricsService.recordRetrievalHits("fused", byId.size());
+        return byId.values().stream()
+                .sorted((a, b) -> Double.compare(fused.get(b.getId()), fused.get(a.getId())))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 知识检索：相似问答、实体对应的法条与概念作为候选片段，按词元预算拼装上下文
+     * 答案依赖记录全部候选（而非仅入选的片段），候选内容变化可能改变入选结果
+     */
+    private String retrieveKnowledge(String question, List<KnowledgeBase> similarQAs,
+                                     EntityRetrievalService.EntityLookup lookup,
+                                     AnswerCacheService.CachedAnswer dependencies) {
+        List<String> terms = new ArrayList<>(lookup.getLaws());
+        terms.addAll(lookup.getConcepts());
+        ContextPacker packer = new ContextPacker(question, terms,
+                contextMaxTokens, contextSnippetMaxTokens, contextOverlapThreshold);
+        
+        // 1. 相似问答，先验分按融合排名递减
+        for (int rank = 0; rank < similarQAs.size(); rank++) {
+            KnowledgeBase kb = similarQAs.get(rank);
+            packer.add("相关问答", "Q: " + kb.getQuestion() + "\nA: ", kb.getAnswer(), 0.5 / (rank + 1));
+        }
         
-        // 3. 检索法律概念
-        List<String> concepts = entities.getOrDefault("concepts", new ArrayList<>());
-        for (String concept : concepts) {
-            Optional<LegalConcept> legalConcept = legalConceptRepository.findByName(concept);
-            if (legalConcept.isPresent()) {
-                context.append("概念定义：").append(legalConcept.get().getName())
-                        .append(" - ").append(legalConcept.get().getDefinition()).append("\n\n");
+        // 2. 相关法条
+        dependencies.getLawTerms().addAll(lookup.getLaws());
+        for (String law : lookup.getLaws()) {
+            List<LegalArticle> articles = lookup.articlesFor(law);
+            for (LegalArticle article : articles.subList(0, Math.min(ARTICLES_PER_LAW, articles.size()))) {
+                dependencies.getArticleIds().add(article.getId());
+                packer.add("相关法条", article.getTitle() + "第" + article.getArticleNumber() + "条：",
+                        article.getContent(), 0.2);
             }
         }
         
-        return context.toString();
+        // 3. 法律概念（问题中明确提及）
+        dependencies.getConceptNames().addAll(lookup.getConcepts());
+        for (String concept : lookup.getConcepts()) {
+            LegalConcept legalConcept = lookup.conceptFor(concept);
+            if (legalConcept != null) {
+                dependencies.getConceptIds().add(legalConcept.getId());
+                packer.add("概念定义", legalConcept.getName() + " - ", legalConcept.getDefinition(), 0.4);
+            }
+        }
+        
+        ContextPacker.Result packed = packer.pack();
+        qaMetricsService.recordContext(packed);
+        log.debug("上下文预算：已用{}/{}，候选{}，入选{}，截断{}，去重{}，舍弃{}",
+                packed.getUsedTokens(), packed.getBudget(), packed.getCandidates(), packed.getSelected(),
+                packed.getTruncated(), packed.getDeduplicated(), packed.getDropped());
+        return packed.getText();
     }
     
     /**
      * 查找相关法条
      */
-    private List<LegalArticle> findRelatedLaws(String question, Map<String, List<String>> entities) {
+    private List<LegalArticle> findRelatedLaws(String question, EntityRetrievalService.EntityLookup lookup) {
         List<LegalArticle> laws = new ArrayList<>();
         
         // 根据实体查找
-        List<String> lawNames = entities.getOrDefault("laws", new ArrayList<>());
-        for (String lawName : lawNames) {
-            laws.addAll(legalArticleRepository.searchByKeyword(lawName));
+        for (String lawName : lookup.getLaws()) {
+            laws.addAll(lookup.articlesFor(lawName));
         }
         
         // 根据问题关键词查找
         if (laws.isEmpty()) {
-            laws.addAll(legalArticleRepository.searchByKeyword(question));
+            laws.addAll(searchIndexService.findArticles(question, 5));
         }
         
         return laws.stream().distinct().limit(5).collect(Collectors.toList());
@@ -169,8 +362,7 @@ public class QuestionAnswerService {
     /**
      * 查找相关案例
      */
-    private List<LegalCase> findRelatedCases(String question, String questionType) {
-        List<LegalCase> cases = legalCaseRepository.searchByKeyword(question);
+    private List<LegalCase> findRelatedCases(List<LegalCase> cases, String questionType) {
         if (cases.isEmpty() && questionType != null) {
             cases = legalCaseRepository.findByCaseType(questionType);
         }
@@ -178,10 +370,17 @@ public class QuestionAnswerService {
     }
     
     /**
-     * 获取问答历史
+     * 获取问答历史，按创建时间倒序
+     * 传入cursor时从游标处继续，否则按页码定位；两种方式均不执行COUNT
      */
-    public Page<QuestionAnswer> getQuestionHistory(Long userId, Pageable pageable) {
-        return questionAnswerRepository.findByUserId(userId, pageable);
+    public KeysetPage<QuestionAnswer> getQuestionHistory(Long userId, String cursor, int page, int size) {
+        int limit = Math.min(size, MAX_PAGE_SIZE);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Slice<QuestionAnswer> slice = position == null
+                ? questionAnswerRepository.findByUserIdOrderByCreateTimeDescIdDesc(userId, PageRequest.of(page, limit))
+                : questionAnswerRepository.findByUserIdBefore(userId, position.getTime(), position.getId(),
+                        PageRequest.of(0, limit));
+        return toPage(slice, listingCountService.countUserQuestions(userId));
     }
     
     /**
@@ -196,18 +395,85 @@ public class QuestionAnswerService {
      */
     @Transactional
     public void submitFeedback(Long qaId, String feedbackType) {
+        questionAnswerWriter.awaitFlushed(qaId);
         QuestionAnswer qa = questionAnswerRepository.findById(qaId)
                 .orElseThrow(() -> new RuntimeException("问答记录不存在"));
+        String previousFeedbackType = qa.getFeedbackType();
         qa.setIsFeedback(true);
         qa.setFeedbackType(feedbackType);
         questionAnswerRepository.save(qa);
+        statsRollupService.recordFeedback(qa, previousFeedbackType);
     }
     
     /**
-     * 搜索问答记录
+     * 问答记录列表，关键词为空时直接按 (create_time, id) 索引顺序读取
      */
-    public Page<QuestionAnswer> searchQuestions(String keyword, Pageable pageable) {
-        return questionAnswerRepository.findByQuestionContaining(keyword, pageable);
+    public KeysetPage<QuestionAnswer> listQuestions(String keyword, String cursor, int page, int size) {
+        int limit = Math.min(size, MAX_PAGE_SIZE);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        boolean filtered = keyword != null && !keyword.isEmpty();
+        Slice<QuestionAnswer> slice;
+        if (position == null) {
+            Pageable pageable = PageRequest.of(page, limit);
+            slice = filtered
+                    ? questionAnswerRepository.findByQuestionContainingOrderByCreateTimeDescIdDesc(keyword, pageable)
+                    : questionAnswerRepository.findAllByOrderByCreateTimeDescIdDesc(pageable);
+        } else {
+            Pageable pageable = PageRequest.of(0, limit);
+            slice = filtered
+                    ? questionAnswerRepository.findByQuestionContainingBefore(keyword, position.getTime(), position.getId(), pageable)
+                    : questionAnswerRepository.findBefore(position.getTime(), position.getId(), pageable);
+        }
+        return toPage(slice, listingCountService.countQuestions(keyword));
+    }
+    
+    /**
+     * 按条件流式导出问答记录（NDJSON或CSV），只进游标逐行写出，返回行数
+     * from含、to不含；按 (create_time, id) 顺序输出
+     */
+    public long exportQuestions(QuestionExportFilter filter, String format, OutputStream out) {
+        StringBuilder sql = new StringBuilder("SELECT id, user_id, question, answer, question_type, confidence_score, "
+                + "entities, related_laws, related_cases, session_id, is_feedback, feedback_type, create_time "
+                + "FROM question_answers WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.getFrom() != null) {
+            sql.append(" AND create_time >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND create_time < ?");
+            args.add(Timestamp.valueOf(filter.getTo()));
+        }
+        if (filter.getQuestionType() != null && !filter.getQuestionType().isEmpty()) {
+            sql.append(" AND question_type = ?");
+            args.add(filter.getQuestionType());
+        }
+        if (filter.getUserId() != null) {
+            sql.append(" AND user_id = ?");
+            args.add(filter.getUserId());
+        }
+        if ("none".equals(filter.getFeedbackType())) {
+            sql.append(" AND feedback_type IS NULL");
+        } else if (filter.getFeedbackType() != null && !filter.getFeedbackType().isEmpty()) {
+            sql.append(" AND feedback_type = ?");
+            args.add(filter.getFeedbackType());
+        }
+        sql.append(" ORDER BY create_time, id");
+        if ("csv".equals(format)) {
+            return streamingExportService.writeCsv(sql.toString(), args.toArray(), out);
+        }
+        return streamingExportService.writeNdjson(sql.toString(), args.toArray(),
+                BeanPropertyRowMapper.newInstance(QuestionAnswer.class), out);
+    }
+    
+    private KeysetPage<QuestionAnswer> toPage(Slice<QuestionAnswer> slice, long total) {
+        List<QuestionAnswer> content = slice.getContent();
+        String next = null;
+        if (slice.hasNext()) {
+            QuestionAnswer last = content.get(content.size() - 1);
+            next = KeysetCursor.encode(last.getCreateTime(), last.getId());
+        }
+        return new KeysetPage<>(content, content.size(), next, total);
     }
 }
 
@@ -0,0 +1,418 @@
+package com.legal.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.legal.entity.QuestionAnswer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 问答记录异步批量写入（write-behind）
+ * 主键按号段从 id_allocator 表预分配，入队即可返回id；后台线程按批次以JDBC批量插入，JSON序列化也在后台完成
+ * 队列满时在调用线程同步写入形成背压；关闭时停止接收并写完队列中的记录
+ * 写入失败的记录按退避间隔重试，仍失败则追加到死信文件，下次启动时补写，不会丢弃已返回id的记录
+ */
+@Slf4j
+@Service
+public class QuestionAnswerWriter {
+    
+    private static final String SEQUENCE_NAME = "question_answers";
+    
+    private static final String INSERT_SQL = "INSERT INTO question_answers (id, user_id, question, answer, question_type, "
+            + "question_type_source, confidence_score, entities, related_laws, related_cases, session_id, is_feedback, "
+            + "feedback_type, create_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final int[] TYPES = {Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.DOUBLE, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN,
+            Types.VARCHAR, Types.TIMESTAMP};
+    
+    private static final int CREATE_TIME_COLUMN = 13;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${qa.writer.queue-capacity:10000}")
+    private Integer queueCapacity;
+    
+    @Value("${qa.writer.batch-size:200}")
+    private Integer batchSize;
+    
+    @Value("${qa.writer.flush-interval-ms:200}")
+    private Long flushIntervalMs;
+    
+    @Value("${qa.writer.enqueue-timeout-ms:50}")
+    private Long enqueueTimeoutMs;
+    
+    @Value("${qa.writer.id-block-size:100}")
+    private Integer idBlockSize;
+    
+    @Value("${qa.writer.shutdown-timeout-ms:30000}")
+    private Long shutdownTimeoutMs;
+    
+    @Value("${qa.writer.retry-attempts:3}")
+    private Integer retryAttempts;
+    
+    @Value("${qa.writer.retry-backoff-ms:500}")
+    private Long retryBackoffMs;
+    
+    @Value("${qa.writer.dead-letter-file:./data/qa-dead-letter.ndjson}")
+    private String deadLetterFile;
+    
+    private BlockingQueue<PendingRecord> queue;
+    
+    /** 已分配id但尚未落库的记录，用于反馈等需要读到该记录的操作等待写入完成 */
+    private final ConcurrentHashMap<Long, PendingRecord> unflushed = new ConcurrentHashMap<>();
+    
+    private long nextId;
+    private long idLimit;
+    
+    private volatile boolean running;
+    private Thread writerThread;
+    
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong syncWrites = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile long lastFlushMillis;
+    
+    @PostConstruct
+    public void start() {
+        replayDeadLetters();
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "qa-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    /**
+     * 分配主键并提交写入，返回主键
+     */
+    public Long submit(QuestionAnswer qa, Object entities, Object relatedLaws, Object relatedCases) {
+        qa.setId(allocateId());
+        PendingRecord record = new PendingRecord(qa, entities, relatedLaws, relatedCases);
+        unflushed.put(qa.getId(), record);
+        // 先登记再赋创建时间：awaitCreatedBefore 取得截止时间后，更早创建的记录一定已在 unflushed 中
+        // 截到秒，与 DATETIME 列一致，内存中的比较与按创建时间的SQL查询结果相同
+        if (qa.getCreateTime() == null) {
+            qa.setCreateTime(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+        }
+        
+        boolean queued = false;
+        if (running) {
+            try {
+                queued = queue.offer(record, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!queued) {
+            // 队列已满或正在关闭：在调用线程同步写入一次，失败直接写入死信文件，不在请求线程上退避等待
+            syncWrites.incrementAndGet();
+            flush(Collections.singletonList(record), false);
+        }
+        return qa.getId();
+    }
+    
+    /**
+     * 等待指定记录落库；记录不在写入队列中时立即返回
+     */
+    public void awaitFlushed(Long id) {
+        PendingRecord record = unflushed.get(id);
+        if (record == null) {
+            return;
+        }
+        try {
+            record.flushed.get(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("等待问答记录{}写入超时", id);
+        }
+    }
+    
+    /**
+     * 等待创建时间早于截止时间的记录全部落库，供统计重建在扫描前调用；超时返回false
+     */
+    public boolean awaitCreatedBefore(LocalDateTime cutoff) {
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        for (PendingRecord record : unflushed.values()) {
+            LocalDateTime createTime = record.qa.getCreateTime();
+            if (createTime != null && !createTime.isBefore(cutoff)) {
+                continue;
+            }
+            try {
+                record.flushed.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException | TimeoutException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 号段分配：UPDATE ... LAST_INSERT_ID(next_id + n) 原子地占用一段主键，多实例部署同样安全
+     */
+    private synchronized long allocateId() {
+        if (nextId >= idLimit) {
+            long end = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (Statement st = connection.createStatement()) {
+                    st.executeUpdate("INSERT IGNORE INTO id_allocator (name, next_id) "
+                            + "SELECT '" + SEQUENCE_NAME + "', COALESCE(MAX(id), 0) + 1 FROM question_answers");
+                    st.executeUpdate("UPDATE id_allocator SET next_id = LAST_INSERT_ID(next_id + " + idBlockSize
+                            + ") WHERE name = '" + SEQUENCE_NAME + "'");
+                    try (ResultSet rs = st.executeQuery("SELECT LAST_INSERT_ID()")) {
+                        rs.next();
+                        return rs.getLong(1);
+                    }
+                }
+            });
+            nextId = end - idBlockSize;
+            idLimit = end;
+        }
+        return nextId++;
+    }
+    
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch, true);
+            } catch (InterruptedException e) {
+                // 关闭时被唤醒，继续写完剩余记录
+            } catch (Exception e) {
+                log.error("问答记录批量写入线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * 批量插入；retry为true时（写入线程）整批失败后逐条写入，逐条仍失败的记录按退避间隔重试，最终写入死信文件；
+     * 为false时（调用线程）只尝试一次，失败即写入死信文件
+     */
+    private void flush(List<PendingRecord> records, boolean retry) {
+        List<Object[]> rows = new ArrayList<>(records.size());
+        for (PendingRecord record : records) {
+            rows.add(record.toRow());
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows, TYPES);
+            written.addAndGet(records.size());
+        } catch (Exception e) {
+            if (retry) {
+                retryOrDeadLetter(rows, e);
+            } else {
+                log.warn("问答记录同步写入失败，写入死信文件: {}", e.getMessage());
+                deadLetter(rows);
+            }
+        }
+        batches.incrementAndGet();
+        lastFlushMillis = System.currentTimeMillis();
+        for (PendingRecord record : records) {
+            unflushed.remove(record.qa.getId());
+            record.flushed.complete(null);
+        }
+    }
+    
+    /**
+     * 批量写入失败后逐条写入，仍失败的按退避间隔重试，最终写入死信文件（仅在写入线程调用）
+     */
+    private void retryOrDeadLetter(List<Object[]> rows, Exception cause) {
+        log.warn("问答记录批量写入失败，改为逐条写入: {}", cause.getMessage());
+        List<Object[]> failedRows = new ArrayList<>();
+        for (Object[] row : rows) {
+            if (!insert(row)) {
+                failedRows.add(row);
+            }
+        }
+        for (int attempt = 1; attempt <= retryAttempts && !failedRows.isEmpty(); attempt++) {
+            try {
+                Thread.sleep(retryBackoffMs << (attempt - 1));
+            } catch (InterruptedException ie) {
+                // 关闭时被唤醒：不再等待，剩余记录直接写入死信文件
+                Thread.currentThread().interrupt();
+                break;
+            }
+            retried.addAndGet(failedRows.size());
+            failedRows.removeIf(this::insert);
+        }
+        if (!failedRows.isEmpty()) {
+            deadLetter(failedRows);
+        }
+    }
+    
+    /**
+     * 单条插入；主键已存在说明之前的批量写入已部分提交，视为成功
+     */
+    private boolean insert(Object[] row) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, row, TYPES);
+        } catch (DuplicateKeyException e) {
+            log.debug("问答记录{}已存在", row[0]);
+        } catch (Exception e) {
+            log.warn("问答记录{}写入失败: {}", row[0], e.getMessage());
+            return false;
+        }
+        written.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * 追加到死信文件，每行一条记录的列值（JSON数组）
+     */
+    private synchronized void deadLetter(List<Object[]> rows) {
+        Path file = Paths.get(deadLetterFile);
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Object[] row : rows) {
+                    Object[] copy = row.clone();
+                    copy[CREATE_TIME_COLUMN] = ((Timestamp) row[CREATE_TIME_COLUMN]).toLocalDateTime().toString();
+                    writer.write(JSON.toJSONString(copy));
+                    writer.newLine();
+                }
+            }
+            deadLettered.addAndGet(rows.size());
+            log.error("{}条问答记录写入失败，已保存到死信文件 {}", rows.size(), file.toAbsolutePath());
+        } catch (IOException e) {
+            for (Object[] row : rows) {
+                log.error("问答记录{}写入失败且无法保存到死信文件: {}", row[0], JSON.toJSONString(row), e);
+            }
+        }
+    }
+    
+    /**
+     * 启动时补写死信文件中的记录，仍失败的保留在文件中
+     */
+    private synchronized void replayDeadLetters() {
+        Path file = Paths.get(deadLetterFile);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            List<String> remaining = new ArrayList<>();
+            int replayed = 0;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JSONArray values = JSON.parseArray(line);
+                Object[] row = values.toArray();
+                row[CREATE_TIME_COLUMN] = Timestamp.valueOf(LocalDateTime.parse(values.getString(CREATE_TIME_COLUMN)));
+                if (insert(row)) {
+                    replayed++;
+                } else {
+                    remaining.add(line);
+                }
+            }
+            if (remaining.isEmpty()) {
+                Files.delete(file);
+            } else {
+                Files.write(file, remaining, StandardCharsets.UTF_8);
+            }
+            log.info("死信文件补写{}条问答记录，剩余{}条", replayed, remaining.size());
+        } catch (IOException e) {
+            log.error("读取死信文件失败: {}", file.toAbsolutePath(), e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 写入线程退出后才入队的记录由当前线程补写一次，失败写入死信文件
+        if (!writerThread.isAlive()) {
+            List<PendingRecord> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            if (!rest.isEmpty()) {
+                flush(rest, false);
+            }
+        }
+        if (!queue.isEmpty()) {
+            log.error("关闭时仍有{}条问答记录未写入", queue.size());
+        } else {
+            log.info("问答记录写入队列已清空，共写入{}条", written.get());
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("unflushed", unflushed.size());
+        stats.put("written", written.get());
+        stats.put("batches", batches.get());
+        stats.put("syncWrites", syncWrites.get());
+        stats.put("retried", retried.get());
+        stats.put("deadLettered", deadLettered.get());
+        stats.put("lastFlushTime", lastFlushMillis == 0 ? null : new Date(lastFlushMillis));
+        return stats;
+    }
+    
+    private static class PendingRecord {
+        private final QuestionAnswer qa;
+        private final Object entities;
+        private final Object relatedLaws;
+        private final Object relatedCases;
+        private final CompletableFuture<Void> flushed = new CompletableFuture<>();
+        
+        private PendingRecord(QuestionAnswer qa, Object entities, Object relatedLaws, Object relatedCases) {
+            this.qa = qa;
+            this.entities = entities;
+            this.relatedLaws = relatedLaws;
+            this.relatedCases = relatedCases;
+        }
+        
+        private Object[] toRow() {
+            return new Object[]{qa.getId(), qa.getUserId(), qa.getQuestion(), qa.getAnswer(), qa.getQuestionType(),
+                    qa.getQuestionTypeSource(), qa.getConfidenceScore(), JSON.toJSONString(entities), JSON.toJSONString(relatedLaws),
+                    JSON.toJSONString(relatedCases), qa.getSessionId(), qa.getIsFeedback(), qa.getFeedbackType(),
+                    Timestamp.valueOf(qa.getCreateTime())};
+        }
+    }
+}
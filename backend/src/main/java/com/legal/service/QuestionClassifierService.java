@@ -0,0 +1,273 @@
+package com.legal.service;
+
+import com.legal.repository.QuestionAnswerRepository;
+import com.legal.util.QuestionNormalizer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地问题分类器：基于历史问答记录中由LLM标注的question_type训练的多项式朴素贝叶斯模型
+ * 本地分类器自己的预测与缓存命中不作为样本，模型不拟合自身输出，留出集准确率即与LLM标注的一致率
+ * 特征为归一化问题的字符一元与二元组，预测为一次哈希查找累加，耗时在微秒级
+ */
+@Slf4j
+@Service
+public class QuestionClassifierService {
+    
+    public static final String[] CATEGORIES = {"法条查询", "概念定义", "程序咨询", "案例分析", "其他"};
+    
+    /** 分类来源：LLM、本地分类器、分类缓存 */
+    public static final String SOURCE_LLM = "llm";
+    public static final String SOURCE_LOCAL = "local";
+    public static final String SOURCE_CACHE = "cache";
+    
+    @Autowired
+    private QuestionAnswerRepository questionAnswerRepository;
+    
+    @Value("${qa.classifier.enabled:true}")
+    private Boolean enabled;
+    
+    @Value("${qa.classifier.confidence-threshold:0.85}")
+    private Double confidenceThreshold;
+    
+    @Value("${qa.classifier.min-samples:200}")
+    private Integer minSamples;
+    
+    @Value("${qa.classifier.max-samples:100000}")
+    private Integer maxSamples;
+    
+    /** 当前模型，重新训练后整体替换 */
+    private volatile Model model;
+    
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong llmFallbacks = new AtomicLong();
+    private final AtomicLong llmComparisons = new AtomicLong();
+    private final AtomicLong llmAgreements = new AtomicLong();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        retrain();
+    }
+    
+    @Scheduled(cron = "${qa.classifier.retrain-cron:0 0 3 * * ?}")
+    public void scheduledRetrain() {
+        retrain();
+    }
+    
+    /**
+     * 从question_answers中LLM标注的记录重新训练模型，每5条样本留出1条用于评估准确率
+     */
+    public synchronized void retrain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Object[]> rows = questionAnswerRepository.findLabeledQuestions(SOURCE_LLM, PageRequest.of(0, maxSamples));
+            List<String> trainQuestions = new ArrayList<>();
+            List<Integer> trainLabels = new ArrayList<>();
+            List<String> testQuestions = new ArrayList<>();
+            List<Integer> testLabels = new ArrayList<>();
+            int i = 0;
+            for (Object[] row : rows) {
+                int label = labelIndex((String) row[1]);
+                if (label < 0) {
+                    continue;
+                }
+                if (i++ % 5 == 4) {
+                    testQuestions.add((String) row[0]);
+                    testLabels.add(label);
+                } else {
+                    trainQuestions.add((String) row[0]);
+                    trainLabels.add(label);
+                }
+            }
+            if (trainQuestions.size() < minSamples) {
+                log.info("问题分类样本不足（{}条），暂不启用本地分类器", trainQuestions.size());
+                return;
+            }
+            
+            Model trained = Model.train(trainQuestions, trainLabels);
+            int correct = 0;
+            for (int j = 0; j < testQuestions.size(); j++) {
+                if (trained.predict(testQuestions.get(j)).getLabelIndex() == testLabels.get(j)) {
+                    correct++;
+                }
+            }
+            trained.sampleCount = trainQuestions.size();
+            trained.holdoutAccuracy = testQuestions.isEmpty() ? 0 : (double) correct / testQuestions.size();
+            trained.trainedAt = LocalDateTime.now();
+            model = trained;
+            log.info("问题分类器训练完成：样本{}条，留出集准确率{}", trained.sampleCount, trained.holdoutAccuracy);
+        } catch (Exception e) {
+            log.warn("问题分类器训练失败", e);
+        }
+    }
+    
+    /**
+     * 本地分类；模型未就绪或置信度低于阈值时返回null，由调用方回退到LLM
+     */
+    public String classify(String question) {
+        Model current = model;
+        if (!enabled || current == null) {
+            return null;
+        }
+        Prediction prediction = current.predict(question);
+        if (prediction.getConfidence() < confidenceThreshold) {
+            llmFallbacks.incrementAndGet();
+            return null;
+        }
+        localHits.incrementAndGet();
+        return prediction.getLabel();
+    }
+    
+    /**
+     * 记录LLM分类结果与本地模型预测是否一致，用于评估线上准确率
+     */
+    public void recordLlmLabel(String question, String llmLabel) {
+        Model current = model;
+        if (current == null) {
+            return;
+        }
+        llmComparisons.incrementAndGet();
+        if (current.predict(question).getLabel().equals(llmLabel)) {
+            llmAgreements.incrementAndGet();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Model current = model;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", current != null);
+        stats.put("confidenceThreshold", confidenceThreshold);
+        if (current != null) {
+            stats.put("sampleCount", current.sampleCount);
+            stats.put("vocabularySize", current.logLikelihood.size());
+            stats.put("holdoutAccuracy", current.holdoutAccuracy);
+            stats.put("trainedAt", current.trainedAt);
+        }
+        long comparisons = llmComparisons.get();
+        stats.put("localHits", localHits.get());
+        stats.put("llmFallbacks", llmFallbacks.get());
+        stats.put("llmComparisons", comparisons);
+        stats.put("llmAgreementRate", comparisons == 0 ? null : (double) llmAgreements.get() / comparisons);
+        return stats;
+    }
+    
+    private static int labelIndex(String label) {
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (CATEGORIES[i].equals(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 字符一元组与二元组特征
+     */
+    static List<String> features(String question) {
+        String text = QuestionNormalizer.normalize(question);
+        List<String> grams = new ArrayList<>(text.length() * 2);
+        for (int i = 0; i < text.length(); i++) {
+            grams.add(text.substring(i, i + 1));
+            if (i + 1 < text.length()) {
+                grams.add(text.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Prediction {
+        private final int labelIndex;
+        private final String label;
+        private final double confidence;
+    }
+    
+    /**
+     * 多项式朴素贝叶斯模型（拉普拉斯平滑），训练完成后只读
+     */
+    static class Model {
+        private final double[] logPrior;
+        private final Map<String, double[]> logLikelihood;
+        private int sampleCount;
+        private double holdoutAccuracy;
+        private LocalDateTime trainedAt;
+        
+        private Model(double[] logPrior, Map<String, double[]> logLikelihood) {
+            this.logPrior = logPrior;
+            this.logLikelihood = logLikelihood;
+        }
+        
+        static Model train(List<String> questions, List<Integer> labels) {
+            int classes = CATEGORIES.length;
+            int[] docCounts = new int[classes];
+            long[] totalCounts = new long[classes];
+            Map<String, int[]> counts = new HashMap<>();
+            for (int i = 0; i < questions.size(); i++) {
+                int label = labels.get(i);
+                docCounts[label]++;
+                for (String gram : features(questions.get(i))) {
+                    counts.computeIfAbsent(gram, k -> new int[classes])[label]++;
+                    totalCounts[label]++;
+                }
+            }
+            
+            int vocabulary = counts.size();
+            double[] logPrior = new double[classes];
+            for (int c = 0; c < classes; c++) {
+                logPrior[c] = Math.log((docCounts[c] + 1.0) / (questions.size() + classes));
+            }
+            Map<String, double[]> logLikelihood = new HashMap<>(counts.size() * 2);
+            for (Map.Entry<String, int[]> e : counts.entrySet()) {
+                double[] ll = new double[classes];
+                for (int c = 0; c < classes; c++) {
+                    ll[c] = Math.log((e.getValue()[c] + 1.0) / (totalCounts[c] + vocabulary));
+                }
+                logLikelihood.put(e.getKey(), ll);
+            }
+            return new Model(logPrior, logLikelihood);
+        }
+        
+        Prediction predict(String question) {
+            int classes = logPrior.length;
+            double[] scores = logPrior.clone();
+            for (String gram : features(question)) {
+                double[] ll = logLikelihood.get(gram);
+                if (ll == null) {
+                    // 训练集中未出现的特征不参与打分
+                    continue;
+                }
+                for (int c = 0; c < classes; c++) {
+                    scores[c] += ll[c];
+                }
+            }
+            // softmax求后验概率作为置信度
+            int best = 0;
+            for (int c = 1; c < classes; c++) {
+                if (scores[c] > scores[best]) {
+                    best = c;
+                }
+            }
+            double sum = 0;
+            for (int c = 0; c < classes; c++) {
+                sum += Math.exp(scores[c] - scores[best]);
+            }
+            return new Prediction(best, CATEGORIES[best], 1.0 / sum);
+        }
+    }
+}
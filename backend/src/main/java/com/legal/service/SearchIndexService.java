@@ -0,0 +1,358 @@
+package com.legal.service;
+
+import com.legal.entity.KnowledgeBase;
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalCase;
+import com.legal.entity.LegalConcept;
+import com.legal.repository.KnowledgeBaseRepository;
+import com.legal.repository.LegalArticleRepository;
+import com.legal.repository.LegalCaseRepository;
+import com.legal.repository.LegalConceptRepository;
+import com.legal.util.InvertedIndex;
+import com.legal.util.QuestionNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 全文检索服务：为法条、案例、概念和知识库各维护一份内存倒排索引（字符二元组 + 词典整词，BM25打分）
+ * 启动后分批加载，管理员增删改时同步更新；索引未就绪或查询过短时回退到数据库模糊查询
+ */
+@Slf4j
+@Service
+public class SearchIndexService {
+    
+    private static final String TERM_PREFIX = "#";
+    
+    @Autowired
+    private LegalArticleRepository legalArticleRepository;
+    
+    @Autowired
+    private LegalCaseRepository legalCaseRepository;
+    
+    @Autowired
+    private LegalConceptRepository legalConceptRepository;
+    
+    @Autowired
+    private KnowledgeBaseRepository knowledgeBaseRepository;
+    
+    @Autowired
+    private EntityDictionaryService entityDictionaryService;
+    
+    @Value("${qa.search.enabled:true}")
+    private Boolean enabled;
+    
+    @Value("${qa.search.batch-size:1000}")
+    private Integer batchSize;
+    
+    @Value("${qa.search.min-match-ratio:0.3}")
+    private Double minMatchRatio;
+    
+    /** 四类索引整体替换，检索与写入总是看到同一次构建的结果 */
+    private volatile Indexes indexes = new Indexes();
+    
+    /** 管理员写入与重建结束时的替换互斥；重建期间的写入同时记入replay，替换前在新索引上重放 */
+    private final Object writeLock = new Object();
+    private List<Consumer<Indexes>> replay;
+    
+    private volatile boolean ready;
+    
+    @Order(2)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+    
+    /**
+     * 定期全量重建，使索引中的词典整词与最新词典一致
+     */
+    @Scheduled(cron = "${qa.search.rebuild-cron:0 30 3 * * ?}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+    
+    /**
+     * 全量重建：在新索引上分批加载，完成后整体替换，重建期间检索不受影响
+     * 加载期间管理员的增删改仍写入旧索引并记录下来，替换前在新索引上按顺序重放，不会丢失
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            replay = new ArrayList<>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Indexes rebuilt = new Indexes();
+            load(legalArticleRepository::findByIdGreaterThanOrderByIdAsc, LegalArticle::getId,
+                    a -> rebuilt.articles.put(a.getId(), tokenize(articleText(a))));
+            load(legalCaseRepository::findByIdGreaterThanOrderByIdAsc, LegalCase::getId,
+                    c -> rebuilt.cases.put(c.getId(), tokenize(caseText(c))));
+            load(legalConceptRepository::findByIdGreaterThanOrderByIdAsc, LegalConcept::getId,
+                    c -> rebuilt.concepts.put(c.getId(), tokenize(conceptText(c))));
+            load(knowledgeBaseRepository::findByIdGreaterThanOrderByIdAsc, KnowledgeBase::getId,
+                    k -> rebuilt.knowledge.put(k.getId(), tokenize(knowledgeText(k))));
+            int replayed;
+            synchronized (writeLock) {
+                replayed = replay.size();
+                for (Consumer<Indexes> mutation : replay) {
+                    mutation.accept(rebuilt);
+                }
+                indexes = rebuilt;
+            }
+            ready = true;
+            log.info("检索索引构建完成：法条{}，案例{}，概念{}，知识{}，重放写入{}，耗时{}ms", rebuilt.articles.size(),
+                    rebuilt.cases.size(), rebuilt.concepts.size(), rebuilt.knowledge.size(), replayed,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("检索索引构建失败，检索将回退到数据库查询", e);
+        } finally {
+            synchronized (writeLock) {
+                replay = null;
+            }
+        }
+    }
+    
+    /**
+     * 按主键分批读取，避免一次性加载全表
+     */
+    private <T> void load(BiFunction<Long, Pageable, List<T>> fetch, Function<T, Long> idOf, Consumer<T> sink) {
+        long lastId = 0L;
+        while (true) {
+            List<T> batch = fetch.apply(lastId, PageRequest.of(0, batchSize));
+            for (T item : batch) {
+                sink.accept(item);
+            }
+            if (batch.size() < batchSize) {
+                return;
+            }
+            lastId = idOf.apply(batch.get(batch.size() - 1));
+        }
+    }
+    
+    /**
+     * 分词：归一化文本的字符二元组，加上命中的词典整词
+     */
+    public List<String> tokenize(String text) {
+        String normalized = QuestionNormalizer.normalize(text);
+        List<String> tokens = new ArrayList<>(normalized.length());
+        for (int i = 0; i + 1 < normalized.length(); i++) {
+            tokens.add(normalized.substring(i, i + 2));
+        }
+        for (String term : entityDictionaryService.matchTerms(text)) {
+            tokens.add(TERM_PREFIX + term);
+        }
+        return tokens;
+    }
+    
+    private String articleText(LegalArticle a) {
+        // 标题出现两次以提高其权重
+        return join(a.getTitle(), a.getTitle(), "第" + a.getArticleNumber() + "条", a.getContent());
+    }
+    
+    private String caseText(LegalCase c) {
+        return join(c.getTitle(), c.getCaseType(), c.getDisputePoint(), c.getContent());
+    }
+    
+    private String conceptText(LegalConcept c) {
+        return join(c.getName(), c.getName(), c.getDefinition());
+    }
+    
+    private String knowledgeText(KnowledgeBase k) {
+        return join(k.getQuestion(), k.getQuestion(), k.getTags(), k.getAnswer());
+    }
+    
+    private String join(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (part != null) {
+                sb.append(part).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+    
+    // 管理员写入时同步索引
+    
+    public void index(LegalArticle article) {
+        Long id = article.getId();
+        List<String> tokens = tokenize(articleText(article));
+        write(ix -> ix.articles.put(id, tokens));
+    }
+    
+    public void removeArticle(Long id) {
+        write(ix -> ix.articles.remove(id));
+    }
+    
+    public void index(LegalCase legalCase) {
+        Long id = legalCase.getId();
+        List<String> tokens = tokenize(caseText(legalCase));
+        write(ix -> ix.cases.put(id, tokens));
+    }
+    
+    public void removeCase(Long id) {
+        write(ix -> ix.cases.remove(id));
+    }
+    
+    public void index(LegalConcept concept) {
+        Long id = concept.getId();
+        List<String> tokens = tokenize(conceptText(concept));
+        write(ix -> ix.concepts.put(id, tokens));
+    }
+    
+    public void removeConcept(Long id) {
+        write(ix -> ix.concepts.remove(id));
+    }
+    
+    public void index(KnowledgeBase knowledge) {
+        Long id = knowledge.getId();
+        List<String> tokens = tokenize(knowledgeText(knowledge));
+        write(ix -> ix.knowledge.put(id, tokens));
+    }
+    
+    public void removeKnowledge(Long id) {
+        write(ix -> ix.knowledge.remove(id));
+    }
+    
+    /**
+     * 写入当前索引；正在重建时同时记录，待新索引加载完成后重放
+     */
+    private void write(Consumer<Indexes> mutation) {
+        synchronized (writeLock) {
+            mutation.accept(indexes);
+            if (replay != null) {
+                replay.add(mutation);
+            }
+        }
+    }
+    
+    // 检索
+    
+    public Page<LegalArticle> searchArticles(String keyword, Pageable pageable) {
+        return search(indexes.articles, keyword, pageable, legalArticleRepository::findAllById, LegalArticle::getId,
+                () -> legalArticleRepository.findByTitleContainingOrContentContaining(keyword, keyword, pageable));
+    }
+    
+    public Page<LegalCase> searchCases(String keyword, Pageable pageable) {
+        return search(indexes.cases, keyword, pageable, legalCaseRepository::findAllById, LegalCase::getId,
+                () -> legalCaseRepository.findByTitleContainingOrContentContaining(keyword, keyword, pageable));
+    }
+    
+    public Page<LegalConcept> searchConcepts(String keyword, Pageable pageable) {
+        return search(indexes.concepts, keyword, pageable, legalConceptRepository::findAllById, LegalConcept::getId,
+                () -> legalConceptRepository.findByNameContainingOrDefinitionContaining(keyword, keyword, pageable));
+    }
+    
+    public Page<KnowledgeBase> searchKnowledge(String keyword, Pageable pageable) {
+        return search(indexes.knowledge, keyword, pageable, knowledgeBaseRepository::findAllById, KnowledgeBase::getId,
+                () -> knowledgeBaseRepository.findByQuestionContainingOrAnswerContaining(keyword, keyword, pageable));
+    }
+    
+    /**
+     * 问答流水线：与问题最相关的法条
+     */
+    public List<LegalArticle> findArticles(String question, int limit) {
+        return search(indexes.articles, question, PageRequest.of(0, limit), legalArticleRepository::findAllById,
+                LegalArticle::getId, () -> new PageImpl<>(legalArticleRepository.searchByKeyword(question))).getContent();
+    }
+    
+    /**
+     * 问答流水线：与问题最相关的案例
+     */
+    public List<LegalCase> findCases(String question, int limit) {
+        return search(indexes.cases, question, PageRequest.of(0, limit), legalCaseRepository::findAllById, LegalCase::getId,
+                () -> new PageImpl<>(legalCaseRepository.searchByKeyword(question))).getContent();
+    }
+    
+    /**
+     * 问答流水线：与问题最相似的知识库问答
+     */
+    public List<KnowledgeBase> findKnowledge(String question, int limit) {
+        return search(indexes.knowledge, question, PageRequest.of(0, limit), knowledgeBaseRepository::findAllById,
+                KnowledgeBase::getId,
+                () -> new PageImpl<>(knowledgeBaseRepository.searchByKeywordOrderByScore(
+                        question, PageRequest.of(0, limit)))).getContent();
+    }
+    
+    private <T> Page<T> search(InvertedIndex index, String keyword, Pageable pageable,
+                               Function<List<Long>, List<T>> loader, Function<T, Long> idOf,
+                               Supplier<Page<T>> fallback) {
+        List<String> tokens = tokenize(keyword);
+        if (!enabled || !ready || tokens.isEmpty()) {
+            return fallback.get();
+        }
+        int distinct = new HashSet<>(tokens).size();
+        int minShouldMatch = Math.max(1, (int) Math.ceil(distinct * minMatchRatio));
+        int offset = (int) pageable.getOffset();
+        InvertedIndex.SearchResult result = index.search(tokens, offset + pageable.getPageSize(), minShouldMatch);
+        List<InvertedIndex.ScoredDoc> hits = result.getHits();
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < hits.size(); i++) {
+            ids.add(hits.get(i).getId());
+        }
+        return new PageImpl<>(loadInOrder(ids, loader, idOf), pageable, result.getTotal());
+    }
+    
+    /**
+     * 按主键批量加载，并保持检索得分顺序
+     */
+    private <T> List<T> loadInOrder(List<Long> ids, Function<List<Long>, List<T>> loader, Function<T, Long> idOf) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, T> byId = new HashMap<>();
+        for (T item : loader.apply(ids)) {
+            byId.put(idOf.apply(item), item);
+        }
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T item = byId.get(id);
+            if (item != null) {
+                ordered.add(item);
+            }
+        }
+        return ordered;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Indexes current = indexes;
+        stats.put("ready", ready);
+        stats.put("articles", indexStats(current.articles));
+        stats.put("cases", indexStats(current.cases));
+        stats.put("concepts", indexStats(current.concepts));
+        stats.put("knowledge", indexStats(current.knowledge));
+        return stats;
+    }
+    
+    private Map<String, Object> indexStats(InvertedIndex index) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("documents", index.size());
+        stats.put("terms", index.termCount());
+        stats.put("postingBytes", index.postingBytes());
+        return stats;
+    }
+    
+    private static class Indexes {
+        private final InvertedIndex articles = new InvertedIndex();
+        private final InvertedIndex cases = new InvertedIndex();
+        private final InvertedIndex concepts = new InvertedIndex();
+        private final InvertedIndex knowledge = new InvertedIndex();
+    }
+}
@@ -0,0 +1,96 @@
+package com.legal.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.legal.config.HibernateCacheConfig;
+import com.legal.entity.LegalArticle;
+import com.legal.entity.LegalCase;
+import com.legal.entity.LegalConcept;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 法条、案例、概念的Hibernate二级缓存管理：统计各区域命中情况，
+ * 并为绕过JPA的写入（如JDBC批量导入）提供显式失效
+ */
+@Slf4j
+@Service
+public class SecondLevelCacheService {
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private CacheManager hibernateCacheManager;
+    
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+    
+    /**
+     * 失效某类实体的全部缓存及查询缓存
+     */
+    public void evict(Class<?> entityClass) {
+        SessionFactory sessionFactory = sessionFactory();
+        sessionFactory.getCache().evictEntityData(entityClass);
+        sessionFactory.getCache().evictQueryRegions();
+        log.info("已失效二级缓存: {}", entityClass.getSimpleName());
+    }
+    
+    public void evictAll() {
+        sessionFactory().getCache().evictAllRegions();
+        log.info("已清空全部二级缓存");
+    }
+    
+    public Map<String, Object> getStats() {
+        Statistics statistics = sessionFactory().getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", statistics.isStatisticsEnabled());
+        stats.put("articles", regionStats(statistics, LegalArticle.class.getName()));
+        stats.put("cases", regionStats(statistics, LegalCase.class.getName()));
+        stats.put("concepts", regionStats(statistics, LegalConcept.class.getName()));
+        stats.put("queries", regionStats(statistics, HibernateCacheConfig.QUERY_REGION));
+        
+        Map<String, Object> total = new LinkedHashMap<>();
+        total.put("secondLevelHits", statistics.getSecondLevelCacheHitCount());
+        total.put("secondLevelMisses", statistics.getSecondLevelCacheMissCount());
+        total.put("queryHits", statistics.getQueryCacheHitCount());
+        total.put("queryMisses", statistics.getQueryCacheMissCount());
+        total.put("queryPuts", statistics.getQueryCachePutCount());
+        total.put("queryExecutions", statistics.getQueryExecutionCount());
+        stats.put("total", total);
+        return stats;
+    }
+    
+    /**
+     * JCache不提供条目数，从底层Caffeine缓存读取估算值
+     */
+    private long estimatedSize(String region) {
+        javax.cache.Cache<Object, Object> cache = hibernateCacheManager.getCache(region);
+        return cache == null ? 0 : cache.unwrap(Cache.class).estimatedSize();
+    }
+    
+    private Map<String, Object> regionStats(Statistics statistics, String region) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+        if (regionStatistics == null) {
+            return stats;
+        }
+        long hits = regionStatistics.getHitCount();
+        long misses = regionStatistics.getMissCount();
+        stats.put("size", estimatedSize(region));
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("puts", regionStatistics.getPutCount());
+        stats.put("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        return stats;
+    }
+}
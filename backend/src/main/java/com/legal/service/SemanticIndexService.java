@@ -0,0 +1,295 @@
+package com.legal.service;
+
+import com.legal.entity.KnowledgeBase;
+import com.legal.repository.KnowledgeBaseRepository;
+import com.legal.util.HnswIndex;
+import com.legal.util.TextVectorizer;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 知识库语义检索阶段：问题经本地向量化后写入HNSW索引，检索近义改写的相似问答，无需网络
+ */
+@Slf4j
+@Service
+public class SemanticIndexService implements KnowledgeRetriever {
+    
+    private static final double DELETED_RATIO = 0.2;
+    
+    @Autowired
+    private KnowledgeBaseRepository knowledgeBaseRepository;
+    
+    @Value("${qa.semantic.enabled:true}")
+    private Boolean enabled;
+    
+    @Value("${qa.semantic.dimension:256}")
+    private Integer dimension;
+    
+    @Value("${qa.semantic.m:16}")
+    private Integer m;
+    
+    @Value("${qa.semantic.ef-construction:100}")
+    private Integer efConstruction;
+    
+    @Value("${qa.semantic.ef-search:64}")
+    private Integer efSearch;
+    
+    @Value("${qa.semantic.min-similarity:0.5}")
+    private Double minSimilarity;
+    
+    @Value("${qa.search.batch-size:1000}")
+    private Integer batchSize;
+    
+    /** 向量化器与HNSW图来自同一次构建，作为一个整体替换 */
+    private volatile Snapshot snapshot;
+    
+    /** 管理员写入与重建结束时的替换互斥；重建期间的写入同时记入replay，替换前在新索引上重放 */
+    private final Object writeLock = new Object();
+    private List<Consumer<Snapshot>> replay;
+    
+    /** 已删除节点占比过高时置位，由定时任务在后台重建，不占用管理员请求线程与其事务 */
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    
+    @Override
+    public String getName() {
+        return "semantic";
+    }
+    
+    @Order(3)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+    
+    /**
+     * 定期重建：更新IDF，并清理已删除节点
+     */
+    @Scheduled(cron = "${qa.semantic.rebuild-cron:0 45 3 * * ?}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+    
+    /**
+     * 写入后判定碎片过多时在此重建
+     */
+    @Scheduled(fixedDelayString = "${qa.semantic.fragment-check-interval-ms:10000}")
+    public void rebuildIfRequested() {
+        if (rebuildRequested.get()) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * 全量重建，加载期间管理员的增删改在替换前按顺序重放到新索引（按新的向量化器重新向量化）
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            replay = new ArrayList<>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, String> questions = new LinkedHashMap<>();
+            long lastId = 0L;
+            while (true) {
+                List<KnowledgeBase> batch = knowledgeBaseRepository
+                        .findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, batchSize));
+                for (KnowledgeBase kb : batch) {
+                    questions.put(kb.getId(), text(kb));
+                }
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            
+            TextVectorizer newVectorizer = new TextVectorizer(dimension);
+            newVectorizer.fit(questions.values());
+            HnswIndex newIndex = new HnswIndex(dimension, m, efConstruction);
+            for (Map.Entry<Long, String> e : questions.entrySet()) {
+                newIndex.add(e.getKey(), newVectorizer.vectorize(e.getValue()));
+            }
+            Snapshot rebuilt = new Snapshot(newVectorizer, newIndex);
+            int replayed;
+            synchronized (writeLock) {
+                replayed = replay.size();
+                for (Consumer<Snapshot> mutation : replay) {
+                    mutation.accept(rebuilt);
+                }
+                snapshot = rebuilt;
+                // 新索引不含已删除节点，此前的重建请求已满足
+                rebuildRequested.set(false);
+            }
+            log.info("语义索引构建完成：{}条，重放写入{}，耗时{}ms", newIndex.size(), replayed,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("语义索引构建失败", e);
+        } finally {
+            synchronized (writeLock) {
+                replay = null;
+            }
+        }
+    }
+    
+    private String text(KnowledgeBase kb) {
+        return kb.getTags() == null ? kb.getQuestion() : kb.getQuestion() + " " + kb.getTags();
+    }
+    
+    // 管理员写入时同步索引
+    
+    public void index(KnowledgeBase knowledge) {
+        Long id = knowledge.getId();
+        String text = text(knowledge);
+        write(s -> s.index.add(id, s.vectorizer.vectorize(text)));
+    }
+    
+    public void remove(Long id) {
+        write(s -> s.index.remove(id));
+    }
+    
+    /**
+     * 写入当前索引；正在重建时同时记录，待新索引加载完成后重放
+     */
+    private void write(Consumer<Snapshot> mutation) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current != null) {
+                mutation.accept(current);
+                requestRebuildIfFragmented(current.index);
+            }
+            if (replay != null) {
+                replay.add(mutation);
+            }
+        }
+    }
+    
+    /**
+     * 已删除节点只做标记，占比过高会拖慢检索，此时请求后台整体重建（需持writeLock调用）
+     */
+    private void requestRebuildIfFragmented(HnswIndex current) {
+        int deleted = current.deletedCount();
+        if (deleted >= 1024 && deleted > current.size() * DELETED_RATIO && rebuildRequested.compareAndSet(false, true)) {
+            log.info("语义索引已删除节点{}个，等待后台重建", deleted);
+        }
+    }
+    
+    @Override
+    public List<KnowledgeBase> retrieve(String question, int limit) {
+        Snapshot current = snapshot;
+        if (!enabled || current == null || current.index.size() == 0) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (HnswIndex.Neighbour n : current.index.search(current.vectorizer.vectorize(question), limit, efSearch)) {
+            if (n.getScore() >= minSimilarity) {
+                ids.add(n.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, KnowledgeBase> byId = new HashMap<>();
+        for (KnowledgeBase kb : knowledgeBaseRepository.findAllById(ids)) {
+            byId.put(kb.getId(), kb);
+        }
+        List<KnowledgeBase> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (byId.containsKey(id)) {
+                result.add(byId.get(id));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 基准评估：以库内问题为查询，对比HNSW与暴力检索的recall@k及单次检索耗时
+     */
+    public Map<String, Object> benchmark(int k, int queries) {
+        Snapshot built = snapshot;
+        Map<String, Object> report = new LinkedHashMap<>();
+        if (built == null || built.index.size() == 0) {
+            report.put("error", "语义索引为空");
+            return report;
+        }
+        List<KnowledgeBase> sample = knowledgeBaseRepository
+                .findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, queries));
+        double recallSum = 0;
+        long[] annNanos = new long[sample.size()];
+        long[] exactNanos = new long[sample.size()];
+        HnswIndex current = built.index;
+        for (int i = 0; i < sample.size(); i++) {
+            float[] query = built.vectorizer.vectorize(text(sample.get(i)));
+            long t0 = System.nanoTime();
+            List<HnswIndex.Neighbour> approximate = current.search(query, k, efSearch);
+            long t1 = System.nanoTime();
+            List<HnswIndex.Neighbour> exact = current.exactSearch(query, k);
+            long t2 = System.nanoTime();
+            annNanos[i] = t1 - t0;
+            exactNanos[i] = t2 - t1;
+            
+            Set<Long> truth = new HashSet<>();
+            for (HnswIndex.Neighbour n : exact) {
+                truth.add(n.getId());
+            }
+            int hit = 0;
+            for (HnswIndex.Neighbour n : approximate) {
+                if (truth.contains(n.getId())) {
+                    hit++;
+                }
+            }
+            recallSum += truth.isEmpty() ? 1 : (double) hit / truth.size();
+        }
+        report.put("indexSize", current.size());
+        report.put("queries", sample.size());
+        report.put("k", k);
+        report.put("efSearch", efSearch);
+        report.put("recallAtK", sample.isEmpty() ? null : recallSum / sample.size());
+        report.put("hnswLatencyMicros", latencySummary(annNanos));
+        report.put("exactLatencyMicros", latencySummary(exactNanos));
+        return report;
+    }
+    
+    private Map<String, Object> latencySummary(long[] nanos) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        if (nanos.length == 0) {
+            return summary;
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        summary.put("p50", sorted[sorted.length / 2] / 1000.0);
+        summary.put("p99", sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1000.0);
+        summary.put("max", sorted[sorted.length - 1] / 1000.0);
+        return summary;
+    }
+    
+    public Map<String, Object> getStats() {
+        Snapshot built = snapshot;
+        HnswIndex current = built == null ? null : built.index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", current == null ? 0 : current.size());
+        stats.put("deleted", current == null ? 0 : current.deletedCount());
+        stats.put("dimension", dimension);
+        return stats;
+    }
+    
+    @AllArgsConstructor
+    private static class Snapshot {
+        private final TextVectorizer vectorizer;
+        private final HnswIndex index;
+    }
+}
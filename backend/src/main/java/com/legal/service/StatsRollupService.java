@@ -0,0 +1,602 @@
+package com.legal.service;
+
+import com.legal.entity.QuestionAnswer;
+import com.legal.util.HyperLogLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 问答统计预聚合：每条问答保存时在内存中按小时、天两种粒度累加计数，
+ * 维度为问题类型、可信度区间与反馈类型，并以HyperLogLog估算不重复用户数与会话数
+ * 定时合并写入汇总表，看板与时间序列查询只读汇总表，不再扫描 question_answers
+ */
+@Slf4j
+@Service
+public class StatsRollupService {
+    
+    public static final String HOUR = "hour";
+    public static final String DAY = "day";
+    
+    private static final String UNKNOWN = "unknown";
+    private static final String NO_FEEDBACK = "none";
+    
+    /** 2^12个寄存器，标准误差约1.6%，每个草图约4KB */
+    private static final int SKETCH_PRECISION = 12;
+    
+    private static final String UPSERT_COUNT_SQL = "INSERT INTO qa_stats_rollup (granularity, bucket_start, question_type, "
+            + "confidence_band, feedback_type, question_count) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE question_count = question_count + VALUES(question_count)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private StreamingExportService streamingExportService;
+    
+    @Autowired
+    private QuestionAnswerWriter questionAnswerWriter;
+    
+    @Value("${qa.stats.hour-retention-days:30}")
+    private Integer hourRetentionDays;
+    
+    @Value("${qa.stats.max-points:1000}")
+    private Integer maxPoints;
+    
+    /** 记录时持读锁并发累加，合并写入前持写锁换出当前缓冲 */
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    
+    private volatile Pending pending = new Pending();
+    
+    /** 正在写入数据库的缓冲，查询时同样计入，避免写入期间读到偏小的值 */
+    private volatile Pending flushing;
+    
+    /** 最近一次重建的截止时间，创建时间早于它的记录已由全量扫描计入 */
+    private volatile LocalDateTime scannedBefore;
+    
+    /** 重建期间属于扫描范围的增量：重建成功后丢弃，失败时并回缓冲 */
+    private volatile Pending scanned;
+    
+    /**
+     * 汇总表为空而已有问答记录时（首次部署），从历史数据回填
+     */
+    @Order(4)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            boolean empty = jdbcTemplate.queryForList("SELECT 1 FROM qa_stats_rollup LIMIT 1").isEmpty();
+            boolean hasData = !jdbcTemplate.queryForList("SELECT 1 FROM question_answers LIMIT 1").isEmpty();
+            if (empty && hasData) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("统计汇总回填失败", e);
+        }
+    }
+    
+    /**
+     * 记录一条新问答
+     */
+    public void recordQuestion(QuestionAnswer qa) {
+        LocalDateTime time = qa.getCreateTime() != null ? qa.getCreateTime() : LocalDateTime.now();
+        String type = dimension(qa.getQuestionType());
+        String band = confidenceBand(qa.getConfidenceScore());
+        String feedback = feedbackType(qa.getFeedbackType());
+        swapLock.readLock().lock();
+        try {
+            LocalDateTime cutoff = scannedBefore;
+            if (cutoff == null || !time.isBefore(cutoff)) {
+                pending.add(qa, time, type, band, feedback);
+                return;
+            }
+            // 截止时间之前创建的记录已由扫描计入：重建中暂存，成功后丢弃；不在重建中则是跨越整个重建才提交的记录，直接丢弃
+            Pending current = scanned;
+            if (current != null) {
+                current.add(qa, time, type, band, feedback);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 反馈类型变化：从原反馈类型的计数移到新反馈类型，总数不变
+     */
+    public void recordFeedback(QuestionAnswer qa, String previousFeedbackType) {
+        String previous = feedbackType(previousFeedbackType);
+        String current = feedbackType(qa.getFeedbackType());
+        if (previous.equals(current) || qa.getCreateTime() == null) {
+            return;
+        }
+        String type = dimension(qa.getQuestionType());
+        String band = confidenceBand(qa.getConfidenceScore());
+        swapLock.readLock().lock();
+        try {
+            Pending target = feedbackTarget(qa.getCreateTime());
+            for (String granularity : new String[]{HOUR, DAY}) {
+                LocalDateTime bucket = bucketStart(granularity, qa.getCreateTime());
+                target.count(new CounterKey(granularity, bucket, type, band, previous), -1);
+                target.count(new CounterKey(granularity, bucket, type, band, current), 1);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 反馈增量归属：只有重建进行中且记录在扫描范围内时暂存，重建结束后一律进入待写缓冲（需持读锁调用）
+     * 扫描读到的是当时的反馈类型，之后的变化需要照常累加，不能因截止时间而丢弃
+     */
+    private Pending feedbackTarget(LocalDateTime time) {
+        Pending current = scanned;
+        LocalDateTime cutoff = scannedBefore;
+        if (current != null && cutoff != null && time.isBefore(cutoff)) {
+            return current;
+        }
+        return pending;
+    }
+    
+    @Scheduled(fixedDelayString = "${qa.stats.flush-interval-ms:10000}")
+    public void scheduledFlush() {
+        flush();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    /**
+     * 换出当前缓冲并合并写入汇总表；写入失败时并回缓冲，下次重试
+     */
+    public synchronized void flush() {
+        Pending batch;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            flushing = batch;
+            pending = new Pending();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        try {
+            write(batch);
+        } catch (Exception e) {
+            log.error("统计汇总写入失败，稍后重试", e);
+            swapLock.readLock().lock();
+            try {
+                pending.mergeFrom(batch);
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        } finally {
+            flushing = null;
+        }
+    }
+    
+    private void write(Pending batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> rows = new ArrayList<>();
+            batch.counts.forEach((key, count) -> {
+                long value = count.sum();
+                if (value != 0) {
+                    rows.add(new Object[]{key.granularity, Timestamp.valueOf(key.bucket), key.questionType,
+                            key.confidenceBand, key.feedbackType, value});
+                }
+            });
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_COUNT_SQL, rows);
+            }
+            batch.sketches.forEach((key, sketch) -> writeSketch(key, sketch));
+        });
+    }
+    
+    /**
+     * 草图合并：不存在时直接插入，否则加行锁读出、合并后写回，多实例并发写入同一时间桶也不会丢失
+     */
+    private void writeSketch(BucketKey key, Sketch sketch) {
+        Timestamp bucket = Timestamp.valueOf(key.bucket);
+        int inserted = jdbcTemplate.update("INSERT IGNORE INTO qa_stats_sketch (granularity, bucket_start, user_sketch, "
+                + "session_sketch) VALUES (?, ?, ?, ?)", key.granularity, bucket, sketch.users.toBytes(), sketch.sessions.toBytes());
+        if (inserted > 0) {
+            return;
+        }
+        List<Map<String, Object>> existing = jdbcTemplate.queryForList("SELECT user_sketch, session_sketch FROM qa_stats_sketch "
+                + "WHERE granularity = ? AND bucket_start = ? FOR UPDATE", key.granularity, bucket);
+        HyperLogLog users = HyperLogLog.fromBytes((byte[]) existing.get(0).get("user_sketch"));
+        HyperLogLog sessions = HyperLogLog.fromBytes((byte[]) existing.get(0).get("session_sketch"));
+        users.merge(sketch.users);
+        sessions.merge(sketch.sessions);
+        jdbcTemplate.update("UPDATE qa_stats_sketch SET user_sketch = ?, session_sketch = ? WHERE granularity = ? AND bucket_start = ?",
+                users.toBytes(), sessions.toBytes(), key.granularity, bucket);
+    }
+    
+    /**
+     * 从 question_answers 全量重建汇总（只进游标逐行累加，内存占用与时间桶数量相关）
+     * 截止时间之前创建的记录由扫描计入，之后的增量照常留在缓冲中合并写入；
+     * 扫描前等待写入队列中截止时间之前的记录落库，清空与写回在同一事务内，看板不会读到空表
+     * 重建期间提交的反馈可能有少量偏差
+     */
+    public synchronized Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDateTime cutoff;
+        LocalDateTime previousCutoff;
+        swapLock.writeLock().lock();
+        try {
+            // 持写锁取截止时间：换出的缓冲中只有截止时间之前创建的记录
+            cutoff = LocalDateTime.now();
+            previousCutoff = scannedBefore;
+            scanned = pending;
+            pending = new Pending();
+            scannedBefore = cutoff;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        Pending rebuilt = new Pending();
+        long rows;
+        try {
+            if (!questionAnswerWriter.awaitCreatedBefore(cutoff)) {
+                throw new IllegalStateException("等待问答记录写入超时，统计汇总重建取消");
+            }
+            rows = streamingExportService.query("SELECT user_id, session_id, question_type, confidence_score, "
+                    + "feedback_type, create_time FROM question_answers WHERE create_time < ?",
+                    new Object[]{Timestamp.valueOf(cutoff)}, (rs, rowNum) -> {
+                        QuestionAnswer qa = new QuestionAnswer();
+                        long userId = rs.getLong("user_id");
+                        qa.setUserId(rs.wasNull() ? null : userId);
+                        qa.setSessionId(rs.getString("session_id"));
+                        double confidence = rs.getDouble("confidence_score");
+                        qa.setConfidenceScore(rs.wasNull() ? null : confidence);
+                        Timestamp createTime = rs.getTimestamp("create_time");
+                        rebuilt.add(qa, createTime.toLocalDateTime(), dimension(rs.getString("question_type")),
+                                confidenceBand(qa.getConfidenceScore()), feedbackType(rs.getString("feedback_type")));
+                    });
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM qa_stats_rollup");
+                jdbcTemplate.update("DELETE FROM qa_stats_sketch");
+                write(rebuilt);
+            });
+        } catch (RuntimeException e) {
+            // 汇总表未改动，扫描范围内的增量并回缓冲，恢复原截止时间
+            swapLock.writeLock().lock();
+            try {
+                pending.mergeFrom(scanned);
+                scannedBefore = previousCutoff;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            throw e;
+        } finally {
+            // 持写锁结束重建：之后的反馈增量都进入待写缓冲
+            swapLock.writeLock().lock();
+            try {
+                scanned = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rows);
+        result.put("counters", rebuilt.counts.size());
+        result.put("buckets", rebuilt.sketches.size());
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        log.info("统计汇总重建完成: {}", result);
+        return result;
+    }
+    
+    /**
+     * 清理超过保留期的小时粒度数据，天粒度长期保留
+     */
+    @Scheduled(cron = "${qa.stats.purge-cron:0 15 4 * * ?}")
+    public void purgeHourly() {
+        Timestamp before = Timestamp.valueOf(LocalDate.now().minusDays(hourRetentionDays).atStartOfDay());
+        int counters = jdbcTemplate.update("DELETE FROM qa_stats_rollup WHERE granularity = ? AND bucket_start < ?", HOUR, before);
+        int sketches = jdbcTemplate.update("DELETE FROM qa_stats_sketch WHERE granularity = ? AND bucket_start < ?", HOUR, before);
+        log.info("已清理过期小时统计: {}条计数, {}个草图", counters, sketches);
+    }
+    
+    /**
+     * 看板汇总：今日提问数与各问题类型的累计数
+     */
+    public Map<String, Object> getSummary() {
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        Map<String, Object> point = points(DAY, today, today).get(0);
+        
+        Map<String, Long> byType = new TreeMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList("SELECT question_type, SUM(question_count) AS total "
+                + "FROM qa_stats_rollup WHERE granularity = ? GROUP BY question_type", DAY)) {
+            byType.merge((String) row.get("question_type"), ((Number) row.get("total")).longValue(), Long::sum);
+        }
+        for (Pending buffer : buffers()) {
+            buffer.counts.forEach((key, count) -> {
+                if (DAY.equals(key.granularity)) {
+                    byType.merge(key.questionType, count.sum(), Long::sum);
+                }
+            });
+        }
+        List<Object[]> questionTypes = new ArrayList<>();
+        byType.forEach((type, count) -> questionTypes.add(new Object[]{type, count}));
+        
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("todayQuestions", point.get("total"));
+        summary.put("todayUsers", point.get("distinctUsers"));
+        summary.put("questionTypes", questionTypes);
+        return summary;
+    }
+    
+    /**
+     * [from, to] 内每个时间桶的计数与去重估计，空桶补零
+     * 查询量只与时间桶数量有关，与问答总数无关
+     */
+    private List<Map<String, Object>> points(String granularity, LocalDateTime from, LocalDateTime to) {
+        if (!HOUR.equals(granularity) && !DAY.equals(granularity)) {
+            throw new IllegalArgumentException("不支持的粒度: " + granularity);
+        }
+        LocalDateTime first = bucketStart(granularity, from);
+        LocalDateTime last = bucketStart(granularity, to);
+        ChronoUnit unit = HOUR.equals(granularity) ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        long points = unit.between(first, last) + 1;
+        if (points <= 0 || points > maxPoints) {
+            throw new IllegalArgumentException("时间范围无效或超过" + maxPoints + "个时间桶");
+        }
+        
+        Map<LocalDateTime, Point> series = new LinkedHashMap<>();
+        for (LocalDateTime bucket = first; !bucket.isAfter(last); bucket = bucket.plus(1, unit)) {
+            series.put(bucket, new Point());
+        }
+        Timestamp fromTs = Timestamp.valueOf(first);
+        Timestamp toTs = Timestamp.valueOf(last);
+        jdbcTemplate.query("SELECT bucket_start, question_type, confidence_band, feedback_type, question_count "
+                + "FROM qa_stats_rollup WHERE granularity = ? AND bucket_start BETWEEN ? AND ?", rs -> {
+            Point point = series.get(rs.getTimestamp("bucket_start").toLocalDateTime());
+            if (point != null) {
+                point.count(rs.getString("question_type"), rs.getString("confidence_band"),
+                        rs.getString("feedback_type"), rs.getLong("question_count"));
+            }
+        }, granularity, fromTs, toTs);
+        jdbcTemplate.query("SELECT bucket_start, user_sketch, session_sketch FROM qa_stats_sketch "
+                + "WHERE granularity = ? AND bucket_start BETWEEN ? AND ?", rs -> {
+            Point point = series.get(rs.getTimestamp("bucket_start").toLocalDateTime());
+            if (point != null) {
+                point.users.merge(HyperLogLog.fromBytes(rs.getBytes("user_sketch")));
+                point.sessions.merge(HyperLogLog.fromBytes(rs.getBytes("session_sketch")));
+            }
+        }, granularity, fromTs, toTs);
+        for (Pending buffer : buffers()) {
+            buffer.counts.forEach((key, count) -> {
+                Point point = key.granularity.equals(granularity) ? series.get(key.bucket) : null;
+                if (point != null) {
+                    point.count(key.questionType, key.confidenceBand, key.feedbackType, count.sum());
+                }
+            });
+            buffer.sketches.forEach((key, sketch) -> {
+                Point point = key.granularity.equals(granularity) ? series.get(key.bucket) : null;
+                if (point != null) {
+                    point.users.merge(sketch.users);
+                    point.sessions.merge(sketch.sessions);
+                }
+            });
+        }
+        
+        List<Map<String, Object>> result = new ArrayList<>(series.size());
+        series.forEach((bucket, point) -> result.add(point.toMap(bucket)));
+        return result;
+    }
+    
+    /**
+     * 时间序列，另附整个时间范围的去重估计（各时间桶草图合并后计数）
+     */
+    public Map<String, Object> getTimeSeries(String granularity, LocalDateTime from, LocalDateTime to) {
+        List<Map<String, Object>> points = points(granularity, from, to);
+        HyperLogLog users = new HyperLogLog(SKETCH_PRECISION);
+        HyperLogLog sessions = new HyperLogLog(SKETCH_PRECISION);
+        long total = 0;
+        for (Map<String, Object> point : points) {
+            total += (Long) point.get("total");
+            users.merge((HyperLogLog) point.remove("userSketch"));
+            sessions.merge((HyperLogLog) point.remove("sessionSketch"));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("granularity", granularity);
+        result.put("from", bucketStart(granularity, from));
+        result.put("to", bucketStart(granularity, to));
+        result.put("total", total);
+        result.put("distinctUsers", users.estimate());
+        result.put("distinctSessions", sessions.estimate());
+        result.put("points", points);
+        return result;
+    }
+    
+    private List<Pending> buffers() {
+        List<Pending> buffers = new ArrayList<>(3);
+        buffers.add(pending);
+        Pending current = flushing;
+        if (current != null) {
+            buffers.add(current);
+        }
+        // 重建提交前汇总表仍是旧数据，扫描范围内的增量同样计入
+        Pending rebuilding = scanned;
+        if (rebuilding != null) {
+            buffers.add(rebuilding);
+        }
+        return buffers;
+    }
+    
+    private static LocalDateTime bucketStart(String granularity, LocalDateTime time) {
+        return time.truncatedTo(HOUR.equals(granularity) ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+    }
+    
+    private static String dimension(String value) {
+        return value == null || value.isEmpty() ? UNKNOWN : value;
+    }
+    
+    private static String feedbackType(String value) {
+        return value == null || value.isEmpty() ? NO_FEEDBACK : value;
+    }
+    
+    private static String confidenceBand(Double score) {
+        if (score == null) {
+            return UNKNOWN;
+        }
+        if (score >= 0.8) {
+            return "high";
+        }
+        return score >= 0.6 ? "medium" : "low";
+    }
+    
+    /**
+     * 内存缓冲：计数增量与各时间桶的去重草图
+     */
+    private static class Pending {
+        private final ConcurrentHashMap<CounterKey, LongAdder> counts = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<BucketKey, Sketch> sketches = new ConcurrentHashMap<>();
+        
+        private void add(QuestionAnswer qa, LocalDateTime time, String type, String band, String feedback) {
+            for (String granularity : new String[]{HOUR, DAY}) {
+                LocalDateTime bucket = bucketStart(granularity, time);
+                count(new CounterKey(granularity, bucket, type, band, feedback), 1);
+                Sketch sketch = sketches.computeIfAbsent(new BucketKey(granularity, bucket), k -> new Sketch());
+                if (qa.getUserId() != null) {
+                    sketch.users.add(String.valueOf(qa.getUserId()));
+                }
+                sketch.sessions.add(qa.getSessionId());
+            }
+        }
+        
+        private void count(CounterKey key, long delta) {
+            counts.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+        
+        private void mergeFrom(Pending other) {
+            other.counts.forEach((key, count) -> count(key, count.sum()));
+            other.sketches.forEach((key, sketch) -> {
+                Sketch target = sketches.computeIfAbsent(key, k -> new Sketch());
+                target.users.merge(sketch.users);
+                target.sessions.merge(sketch.sessions);
+            });
+        }
+        
+        private boolean isEmpty() {
+            return counts.isEmpty() && sketches.isEmpty();
+        }
+    }
+    
+    private static class Sketch {
+        private final HyperLogLog users = new HyperLogLog(SKETCH_PRECISION);
+        private final HyperLogLog sessions = new HyperLogLog(SKETCH_PRECISION);
+    }
+    
+    private static class BucketKey {
+        private final String granularity;
+        private final LocalDateTime bucket;
+        
+        private BucketKey(String granularity, LocalDateTime bucket) {
+            this.granularity = granularity;
+            this.bucket = bucket;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return granularity.equals(other.granularity) && bucket.equals(other.bucket);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, bucket);
+        }
+    }
+    
+    private static class CounterKey {
+        private final String granularity;
+        private final LocalDateTime bucket;
+        private final String questionType;
+        private final String confidenceBand;
+        private final String feedbackType;
+        
+        private CounterKey(String granularity, LocalDateTime bucket, String questionType,
+                           String confidenceBand, String feedbackType) {
+            this.granularity = granularity;
+            this.bucket = bucket;
+            this.questionType = questionType;
+            this.confidenceBand = confidenceBand;
+            this.feedbackType = feedbackType;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CounterKey)) {
+                return false;
+            }
+            CounterKey other = (CounterKey) o;
+            return granularity.equals(other.granularity) && bucket.equals(other.bucket)
+                    && questionType.equals(other.questionType) && confidenceBand.equals(other.confidenceBand)
+                    && feedbackType.equals(other.feedbackType);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, bucket, questionType, confidenceBand, feedbackType);
+        }
+    }
+    
+    /**
+     * 单个时间桶的查询结果
+     */
+    private static class Point {
+        private long total;
+        private final Map<String, Long> questionTypes = new TreeMap<>();
+        private final Map<String, Long> confidenceBands = new TreeMap<>();
+        private final Map<String, Long> feedbackTypes = new TreeMap<>();
+        private final HyperLogLog users = new HyperLogLog(SKETCH_PRECISION);
+        private final HyperLogLog sessions = new HyperLogLog(SKETCH_PRECISION);
+        
+        private void count(String type, String band, String feedback, long value) {
+            total += value;
+            questionTypes.merge(type, value, Long::sum);
+            confidenceBands.merge(band, value, Long::sum);
+            feedbackTypes.merge(feedback, value, Long::sum);
+        }
+        
+        private Map<String, Object> toMap(LocalDateTime bucket) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("bucket", bucket);
+            map.put("total", total);
+            map.put("questionTypes", questionTypes);
+            map.put("confidenceBands", confidenceBands);
+            map.put("feedbackTypes", feedbackTypes);
+            map.put("distinctUsers", users.estimate());
+            map.put("distinctSessions", sessions.estimate());
+            map.put("userSketch", users);
+            map.put("sessionSketch", sessions);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.legal.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 流式导出：只进只读游标逐行读取，逐行序列化写出，内存占用与数据量无关
+ * MySQL以 fetchSize=Integer.MIN_VALUE 逐行流式读取，无需在连接串中全局开启 useCursorFetch；
+ * 其他数据库按配置的fetch size分批读取
+ */
+@Slf4j
+@Service
+public class StreamingExportService {
+    
+    private static final byte[] NEWLINE = {'\n'};
+    
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${qa.export.fetch-size:500}")
+    private Integer fetchSize;
+    
+    /**
+     * 以NDJSON格式（每行一个JSON对象）写出查询结果，返回行数
+     */
+    public <T> long writeNdjson(String sql, Object[] args, RowMapper<T> rowMapper, OutputStream out) {
+        return query(sql, args, (rs, rowNum) -> {
+            T row = rowMapper.mapRow(rs, rowNum);
+            try {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write(NEWLINE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    /**
+     * 以CSV格式（RFC 4180，首行为列名）写出查询结果，返回数据行数
+     */
+    public long writeCsv(String sql, Object[] args, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
+        long count = query(sql, args, (rs, rowNum) -> {
+            try {
+                int columns = rs.getMetaData().getColumnCount();
+                if (rowNum == 0) {
+                    for (int i = 1; i <= columns; i++) {
+                        writeCsvField(writer, rs.getMetaData().getColumnLabel(i), i == columns);
+                    }
+                }
+                for (int i = 1; i <= columns; i++) {
+                    writeCsvField(writer, rs.getString(i), i == columns);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+    
+    /**
+     * 含逗号、引号或换行的字段加引号，引号转义为两个引号；null写为空字段
+     */
+    private void writeCsvField(Writer writer, String value, boolean last) throws IOException {
+        if (value != null) {
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write(last ? "\r\n" : ",");
+    }
+    
+    /**
+     * 在只进游标上逐行回调；MySQL流式读取期间该连接不能执行其他语句，回调中不要访问数据库
+     */
+    public long query(String sql, Object[] args, RowCallback callback) {
+        long[] count = {0};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(isMySql(connection) ? Integer.MIN_VALUE : fetchSize);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, rs -> {
+            callback.accept(rs, (int) count[0]);
+            count[0]++;
+        });
+        return count[0];
+    }
+    
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+    
+    @FunctionalInterface
+    public interface RowCallback {
+        void accept(ResultSet rs, int rowNum) throws SQLException;
+    }
+}
@@ -0,0 +1,200 @@
+package com.legal.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD自适应并发限制：调用成功时并发上限每轮加一，遇到限流、超时或耗时超过阈值时按比例收缩
+ * 超过上限的调用进入有界等待队列，队列已满或等待超时立即拒绝
+ * 获取到的许可只能归还一次，重复调用 onSuccess/onDropped/onIgnore 不会再减少在途数
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    private static final double BACKOFF_RATIO = 0.9;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long latencyThresholdNanos;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    
+    private double limit;
+    private int inFlight;
+    private int queued;
+    
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile double avgRttMillis;
+    
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue,
+                                      long latencyThresholdMillis) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    }
+    
+    /**
+     * 获取调用许可，被拒绝时返回null
+     */
+    public Permit acquire(long maxWaitMillis) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                if (queued >= maxQueue) {
+                    rejected.incrementAndGet();
+                    return null;
+                }
+                queued++;
+                try {
+                    long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                    while (inFlight >= (int) limit) {
+                        if (remaining <= 0) {
+                            rejected.incrementAndGet();
+                            return null;
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected.incrementAndGet();
+                    return null;
+                } finally {
+                    queued--;
+                }
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        long now = System.nanoTime();
+        long waited = now - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        accepted.incrementAndGet();
+        return new Permit(now);
+    }
+    
+    /**
+     * 调用成功：耗时未超过阈值时加性增加上限，否则视为过载
+     */
+    public void onSuccess(Permit permit) {
+        if (!permit.release()) {
+            return;
+        }
+        long rtt = permit.rttNanos();
+        if (latencyThresholdNanos > 0 && rtt > latencyThresholdNanos) {
+            release(rtt, true);
+        } else {
+            release(rtt, false);
+        }
+    }
+    
+    /**
+     * 调用遇到限流、超时等过载信号：乘性减小上限
+     */
+    public void onDropped(Permit permit) {
+        if (permit.release()) {
+            release(permit.rttNanos(), true);
+        }
+    }
+    
+    /**
+     * 与负载无关的失败（如请求参数错误）：只归还许可
+     */
+    public void onIgnore(Permit permit) {
+        if (!permit.release()) {
+            return;
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void release(long rttNanos, boolean overload) {
+        lock.lock();
+        try {
+            avgRttMillis = avgRttMillis == 0 ? rttNanos / 1e6 : avgRttMillis * 0.9 + rttNanos / 1e6 * 0.1;
+            inFlight--;
+            if (overload) {
+                dropped.incrementAndGet();
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            } else if (inFlight + 1 >= (int) limit) {
+                // 只有上限被用满时才说明需要更多并发
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            if ((int) limit > inFlight) {
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("limit", (int) limit);
+            stats.put("inFlight", inFlight);
+            stats.put("queued", queued);
+        } finally {
+            lock.unlock();
+        }
+        long count = accepted.get();
+        stats.put("accepted", count);
+        stats.put("rejected", rejected.get());
+        stats.put("dropped", dropped.get());
+        stats.put("avgQueueWaitMs", count == 0 ? 0 : totalWaitNanos.get() / count / 1e6);
+        stats.put("maxQueueWaitMs", maxWaitNanos.get() / 1e6);
+        stats.put("avgRttMs", avgRttMillis);
+        return stats;
+    }
+    
+    /**
+     * 调用许可：记录开始时间，延迟按开始到 responded() 计算，未调用时按开始到归还计算
+     */
+    public static final class Permit {
+        private final long startNanos;
+        private volatile long respondedNanos = -1;
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+        
+        /**
+         * 标记收到响应（如流式调用的首个数据块），之后的耗时不计入延迟信号
+         */
+        public void responded() {
+            if (respondedNanos < 0) {
+                respondedNanos = System.nanoTime() - startNanos;
+            }
+        }
+        
+        private long rttNanos() {
+            long responded = respondedNanos;
+            return responded >= 0 ? responded : System.nanoTime() - startNanos;
+        }
+        
+        private boolean release() {
+            return released.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.legal.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick多模式匹配自动机
+ * 构建完成后只读，可被多个线程并发使用；对文本做一次线性扫描即可找出全部词典词
+ */
+public class AhoCorasick<V> {
+    
+    private final List<Map<Character, Integer>> children = new ArrayList<>();
+    private final List<Integer> fail = new ArrayList<>();
+    private final List<List<Integer>> outputs = new ArrayList<>();
+    private final List<String> patterns = new ArrayList<>();
+    private final List<V> values = new ArrayList<>();
+    
+    public AhoCorasick(Map<String, V> dictionary) {
+        newNode();
+        for (Map.Entry<String, V> entry : dictionary.entrySet()) {
+            insert(entry.getKey(), entry.getValue());
+        }
+        buildFailureLinks();
+    }
+    
+    public int size() {
+        return patterns.size();
+    }
+    
+    private int newNode() {
+        children.add(new HashMap<>(4));
+        fail.add(0);
+        outputs.add(Collections.emptyList());
+        return children.size() - 1;
+    }
+    
+    private void insert(String pattern, V value) {
+        if (pattern == null || pattern.isEmpty()) {
+            return;
+        }
+        int node = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            Integer next = children.get(node).get(c);
+            if (next == null) {
+                next = newNode();
+                children.get(node).put(c, next);
+            }
+            node = next;
+        }
+        if (outputs.get(node).isEmpty()) {
+            outputs.set(node, new ArrayList<>(1));
+        }
+        outputs.get(node).add(patterns.size());
+        patterns.add(pattern);
+        values.add(value);
+    }
+    
+    private void buildFailureLinks() {
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : children.get(0).values()) {
+            fail.set(child, 0);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> e : children.get(node).entrySet()) {
+                int child = e.getValue();
+                int f = fail.get(node);
+                while (f != 0 && !children.get(f).containsKey(e.getKey())) {
+                    f = fail.get(f);
+                }
+                Integer target = children.get(f).get(e.getKey());
+                fail.set(child, target != null && target != child ? target : 0);
+                // 合并失败链上的输出，匹配时无需再沿失败链回溯
+                List<Integer> inherited = outputs.get(fail.get(child));
+                if (!inherited.isEmpty()) {
+                    List<Integer> merged = new ArrayList<>(outputs.get(child));
+                    merged.addAll(inherited);
+                    outputs.set(child, merged);
+                }
+                queue.add(child);
+            }
+        }
+    }
+    
+    /**
+     * 扫描文本，返回全部命中（可能重叠）
+     */
+    public List<Match<V>> search(String text) {
+        List<Match<V>> matches = new ArrayList<>();
+        if (text == null) {
+            return matches;
+        }
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Integer next = children.get(node).get(c);
+            while (next == null && node != 0) {
+                node = fail.get(node);
+                next = children.get(node).get(c);
+            }
+            node = next == null ? 0 : next;
+            for (int id : outputs.get(node)) {
+                String pattern = patterns.get(id);
+                matches.add(new Match<>(i + 1 - pattern.length(), i + 1, pattern, values.get(id)));
+            }
+        }
+        return matches;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Match<V> {
+        private final int start;
+        private final int end;
+        private final String pattern;
+        private final V value;
+    }
+}
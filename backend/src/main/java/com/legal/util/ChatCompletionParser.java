@@ -0,0 +1,118 @@
+package com.legal.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 聊天补全响应的流式解析：边读边解析，只取 choices[0] 的内容、结束原因与 usage，其余字段直接跳过
+ * 不把响应体读成字符串，也不构建JSON对象树
+ */
+public class ChatCompletionParser {
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private ChatCompletionParser() {
+    }
+    
+    /**
+     * 非流式响应，内容取自 choices[0].message.content
+     */
+    public static Completion parse(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            return parse(parser, "message");
+        }
+    }
+    
+    /**
+     * 流式响应的一个数据块，内容取自 choices[0].delta.content
+     */
+    public static Completion parseChunk(String data) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            return parse(parser, "delta");
+        }
+    }
+    
+    private static Completion parse(JsonParser parser, String messageField) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "聊天补全响应不是JSON对象");
+        }
+        Completion completion = new Completion();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("choices".equals(name) && value == JsonToken.START_ARRAY) {
+                readChoices(parser, messageField, completion);
+            } else if ("usage".equals(name) && value == JsonToken.START_OBJECT) {
+                readUsage(parser, completion);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return completion;
+    }
+    
+    private static void readChoices(JsonParser parser, String messageField, Completion completion) throws IOException {
+        boolean first = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (!first || parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            first = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("finish_reason".equals(name)) {
+                    if (value == JsonToken.VALUE_STRING) {
+                        completion.finishReason = parser.getText();
+                    }
+                } else if (messageField.equals(name) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.getCurrentName();
+                        if (parser.nextToken() == JsonToken.VALUE_STRING && "content".equals(field)) {
+                            completion.content = parser.getText();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+    
+    private static void readUsage(JsonParser parser, Completion completion) throws IOException {
+        completion.usagePresent = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+                if ("prompt_tokens".equals(name)) {
+                    completion.promptTokens = parser.getLongValue();
+                } else if ("completion_tokens".equals(name)) {
+                    completion.completionTokens = parser.getLongValue();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+    
+    /**
+     * 解析结果；没有choices或内容不是字符串时content为null，尚未结束的流式数据块finishReason为null
+     */
+    @Getter
+    public static class Completion {
+        private String content;
+        private String finishReason;
+        private boolean usagePresent;
+        private long promptTokens;
+        private long completionTokens;
+    }
+}
@@ -0,0 +1,223 @@
+package com.legal.util;
+
+import com.alibaba.fastjson2.JSON;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 聊天补全请求体模板
+ * 模型、系统提示词等不变部分在构造时转义并编码为UTF-8字节，发送时与问题、上下文、对话历史一起直接写入连接的输出缓冲，
+ * 不构建JSON对象树，也不生成请求体字符串；长度预先计算，请求带Content-Length
+ * 对话摘要与知识上下文放在系统提示词中，窗口内的历史轮次作为user/assistant消息放在当前问题之前
+ */
+public class ChatRequestTemplate {
+    
+    private static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int SCRATCH_SIZE = 8192;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+    
+    private final ByteString systemOpen;
+    private final ByteString summaryOpen;
+    private final ByteString contextOpen;
+    private final ByteString sectionClose;
+    private final ByteString systemClose;
+    private final ByteString userOpen;
+    private final ByteString assistantOpen;
+    private final ByteString messageClose;
+    private final ByteString close;
+    private final ByteString streamClose;
+    
+    /**
+     * 系统提示词为 promptHead + [summaryHeader + 摘要 + sectionFooter] + [contextHeader + 上下文 + sectionFooter] + promptTail，
+     * 摘要或上下文为空时省略对应部分
+     */
+    public ChatRequestTemplate(String model, String promptHead, String summaryHeader, String contextHeader,
+                               String sectionFooter, String promptTail, double temperature, int maxTokens) {
+        this.systemOpen = ByteString.encodeUtf8("{\"model\":" + JSON.toJSONString(model)
+                + ",\"messages\":[{\"role\":\"system\",\"content\":\"" + escape(promptHead));
+        this.summaryOpen = ByteString.encodeUtf8(escape(summaryHeader));
+        this.contextOpen = ByteString.encodeUtf8(escape(contextHeader));
+        this.sectionClose = ByteString.encodeUtf8(escape(sectionFooter));
+        this.systemClose = ByteString.encodeUtf8(escape(promptTail) + "\"}");
+        this.userOpen = ByteString.encodeUtf8(",{\"role\":\"user\",\"content\":\"");
+        this.assistantOpen = ByteString.encodeUtf8("\"},{\"role\":\"assistant\",\"content\":\"");
+        this.messageClose = ByteString.encodeUtf8("\"}");
+        String options = "\"}],\"temperature\":" + temperature + ",\"max_tokens\":" + maxTokens;
+        this.close = ByteString.encodeUtf8(options + "}");
+        // 流式请求要求在最后一个数据块中返回usage
+        this.streamClose = ByteString.encodeUtf8(options
+                + ",\"stream\":true,\"stream_options\":{\"include_usage\":true}}");
+    }
+    
+    public RequestBody body(String question, String context, ConversationMemory.History history, boolean stream) {
+        return new Body(question, context, history, stream);
+    }
+    
+    private class Body extends RequestBody {
+        private final String question;
+        private final String context;
+        private final String summary;
+        private final List<ConversationMemory.Turn> turns;
+        private final ByteString end;
+        private final long length;
+        
+        private Body(String question, String context, ConversationMemory.History history, boolean stream) {
+            this.question = question != null ? question : "";
+            this.context = context != null && !context.isEmpty() ? context : null;
+            this.summary = !history.getSummary().isEmpty() ? history.getSummary() : null;
+            this.turns = history.getTurns();
+            this.end = stream ? streamClose : close;
+            long length = systemOpen.size() + systemClose.size() + userOpen.size() + escapedLength(this.question) + end.size();
+            if (summary != null) {
+                length += summaryOpen.size() + escapedLength(summary) + sectionClose.size();
+            }
+            if (this.context != null) {
+                length += contextOpen.size() + escapedLength(this.context) + sectionClose.size();
+            }
+            for (ConversationMemory.Turn turn : turns) {
+                length += userOpen.size() + escapedLength(turn.getQuestion())
+                        + assistantOpen.size() + escapedLength(turn.getAnswer()) + messageClose.size();
+            }
+            this.length = length;
+        }
+        
+        @Override
+        public MediaType contentType() {
+            return JSON_TYPE;
+        }
+        
+        @Override
+        public long contentLength() {
+            return length;
+        }
+        
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            sink.write(systemOpen);
+            if (summary != null) {
+                sink.write(summaryOpen);
+                writeEscaped(sink, summary);
+                sink.write(sectionClose);
+            }
+            if (context != null) {
+                sink.write(contextOpen);
+                writeEscaped(sink, context);
+                sink.write(sectionClose);
+            }
+            sink.write(systemClose);
+            for (ConversationMemory.Turn turn : turns) {
+                sink.write(userOpen);
+                writeEscaped(sink, turn.getQuestion());
+                sink.write(assistantOpen);
+                writeEscaped(sink, turn.getAnswer());
+                sink.write(messageClose);
+            }
+            sink.write(userOpen);
+            writeEscaped(sink, question);
+            sink.write(end);
+        }
+    }
+    
+    /**
+     * 按JSON字符串规则转义并编码为UTF-8，经线程内复用的缓冲分块写出
+     * 逐字符编码比okio的writeUtf8快，也不生成中间字节数组；不成对的代理字符与okio一致写为'?'
+     */
+    static void writeEscaped(BufferedSink sink, String text) throws IOException {
+        byte[] buf = SCRATCH.get();
+        int n = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (n > buf.length - 6) {
+                sink.write(buf, 0, n);
+                n = 0;
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buf[n++] = (byte) c;
+                    continue;
+                }
+                buf[n++] = '\\';
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        buf[n++] = (byte) c;
+                        break;
+                    case '\n':
+                        buf[n++] = 'n';
+                        break;
+                    case '\r':
+                        buf[n++] = 'r';
+                        break;
+                    case '\t':
+                        buf[n++] = 't';
+                        break;
+                    default:
+                        buf[n++] = 'u';
+                        buf[n++] = '0';
+                        buf[n++] = '0';
+                        buf[n++] = HEX[c >> 4];
+                        buf[n++] = HEX[c & 0xf];
+                }
+            } else if (c < 0x800) {
+                buf[n++] = (byte) (0xc0 | c >> 6);
+                buf[n++] = (byte) (0x80 | c & 0x3f);
+            } else if (!Character.isSurrogate(c)) {
+                buf[n++] = (byte) (0xe0 | c >> 12);
+                buf[n++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buf[n++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buf[n++] = (byte) (0xf0 | codePoint >> 18);
+                buf[n++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buf[n++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buf[n++] = (byte) (0x80 | codePoint & 0x3f);
+            } else {
+                buf[n++] = '?';
+            }
+        }
+        if (n > 0) {
+            sink.write(buf, 0, n);
+        }
+    }
+    
+    /**
+     * writeEscaped写出的字节数
+     */
+    static long escapedLength(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x20) {
+                length += c == '\n' || c == '\r' || c == '\t' ? 2 : 6;
+            } else if (c == '"' || c == '\\') {
+                length += 2;
+            } else if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length++;
+            }
+        }
+        return length;
+    }
+    
+    private static String escape(String text) {
+        String quoted = JSON.toJSONString(text);
+        return quoted.substring(1, quoted.length() - 1);
+    }
+}
@@ -0,0 +1,320 @@
+package com.legal.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * 按词元预算拼装提示词上下文
+ * 候选片段按“来源先验分 + 查询词覆盖率”排序后依次放入，与已放入内容高度重叠的片段跳过；
+ * 超过单段上限或剩余预算的长文本按句切分，保留命中查询词最多的句子并向两侧扩展相邻句子
+ * 词元数按DeepSeek公布的经验比例本地估算：中文字符约0.6个，其他字符约0.3个
+ */
+public class ContextPacker {
+    
+    private static final int SHINGLE_LENGTH = 5;
+    private static final int MIN_SNIPPET_TOKENS = 24;
+    private static final String ELLIPSIS = "……";
+    private static final String ITEM_END = "\n\n";
+    
+    private final int maxTokens;
+    private final int snippetMaxTokens;
+    private final double overlapThreshold;
+    private final Set<String> queryGrams = new HashSet<>();
+    private final List<String> queryTerms = new ArrayList<>();
+    private final List<Candidate> candidates = new ArrayList<>();
+    
+    /**
+     * terms为问题中识别出的实体等整词，与问题的字符二元组一起作为查询词
+     */
+    public ContextPacker(String question, Collection<String> terms,
+                         int maxTokens, int snippetMaxTokens, double overlapThreshold) {
+        this.maxTokens = maxTokens;
+        this.snippetMaxTokens = snippetMaxTokens;
+        this.overlapThreshold = overlapThreshold;
+        String normalized = QuestionNormalizer.normalize(question);
+        for (int i = 0; i + 1 < normalized.length(); i++) {
+            queryGrams.add(normalized.substring(i, i + 2));
+        }
+        for (String term : terms) {
+            String normalizedTerm = QuestionNormalizer.normalize(term);
+            if (normalizedTerm.length() > 1 && !queryTerms.contains(normalizedTerm)) {
+                queryTerms.add(normalizedTerm);
+            }
+        }
+    }
+    
+    /**
+     * 添加候选片段；section为分组标题，heading为不可截断的条目前缀，prior为来源先验分
+     */
+    public void add(String section, String heading, String body, double prior) {
+        if (body == null || body.isEmpty()) {
+            return;
+        }
+        double score = prior + coverage(QuestionNormalizer.normalize(heading + body));
+        candidates.add(new Candidate(candidates.size(), section, heading, body, score));
+    }
+    
+    /**
+     * 按分数从高到低放入预算，输出时各分组按首次添加的顺序排列
+     */
+    public Result pack() {
+        List<Candidate> ranked = new ArrayList<>(candidates);
+        ranked.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : Integer.compare(a.order, b.order));
+        
+        Map<String, List<String>> sections = new LinkedHashMap<>();
+        for (Candidate candidate : candidates) {
+            sections.putIfAbsent(candidate.section, new ArrayList<>());
+        }
+        Set<Integer> selectedShingles = new HashSet<>();
+        int remaining = maxTokens;
+        int selected = 0;
+        int truncated = 0;
+        int deduplicated = 0;
+        int dropped = 0;
+        for (Candidate candidate : ranked) {
+            List<String> items = sections.get(candidate.section);
+            int fixedCost = estimateTokens(candidate.heading) + estimateTokens(ITEM_END)
+                    + (items.isEmpty() ? estimateTokens(sectionHeader(candidate.section)) : 0);
+            int limit = Math.min(snippetMaxTokens, remaining - fixedCost);
+            if (limit < MIN_SNIPPET_TOKENS) {
+                dropped++;
+                continue;
+            }
+            String text = trim(candidate.body, limit);
+            Set<Integer> shingles = shingles(QuestionNormalizer.normalize(text));
+            if (overlap(shingles, selectedShingles) >= overlapThreshold) {
+                deduplicated++;
+                continue;
+            }
+            if (!text.equals(candidate.body)) {
+                truncated++;
+            }
+            selectedShingles.addAll(shingles);
+            items.add(candidate.heading + text + ITEM_END);
+            remaining -= fixedCost + estimateTokens(text);
+            selected++;
+        }
+        
+        StringBuilder context = new StringBuilder();
+        for (Map.Entry<String, List<String>> section : sections.entrySet()) {
+            if (!section.getValue().isEmpty()) {
+                context.append(sectionHeader(section.getKey()));
+                section.getValue().forEach(context::append);
+            }
+        }
+        String text = context.toString();
+        return new Result(text, maxTokens, estimateTokens(text), candidates.size(),
+                selected, truncated, deduplicated, dropped);
+    }
+    
+    /**
+     * 本地估算词元数
+     */
+    public static int estimateTokens(CharSequence text) {
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLowSurrogate(c)) {
+                continue;
+            }
+            if (isCjk(c)) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return (int) Math.ceil(cjk * 0.6 + other * 0.3);
+    }
+    
+    private static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS
+                || Character.isHighSurrogate(c);
+    }
+    
+    private static String sectionHeader(String section) {
+        return section + "：\n";
+    }
+    
+    /**
+     * 文本命中的查询词（二元组与整词）占全部查询词的比例
+     */
+    private double coverage(String normalized) {
+        int total = queryGrams.size() + queryTerms.size();
+        return total == 0 ? 0 : (double) matches(normalized) / total;
+    }
+    
+    private int matches(String normalized) {
+        int count = 0;
+        if (!queryGrams.isEmpty()) {
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i + 1 < normalized.length(); i++) {
+                String gram = normalized.substring(i, i + 2);
+                if (queryGrams.contains(gram) && seen.add(gram)) {
+                    count++;
+                }
+            }
+        }
+        for (String term : queryTerms) {
+            if (normalized.contains(term)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 截取不超过limit个词元的文本：保留命中查询词最多的句子，再向两侧扩展相邻句子，优先扩展命中更多的一侧
+     */
+    private String trim(String body, int limit) {
+        if (estimateTokens(body) <= limit) {
+            return body;
+        }
+        List<String> sentences = splitSentences(body);
+        int[] scores = new int[sentences.size()];
+        int best = 0;
+        for (int i = 0; i < sentences.size(); i++) {
+            scores[i] = matches(QuestionNormalizer.normalize(sentences.get(i)));
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int budget = limit - 2 * estimateTokens(ELLIPSIS);
+        int used = estimateTokens(sentences.get(best));
+        if (used > budget) {
+            return cut(sentences.get(best), budget) + ELLIPSIS;
+        }
+        int lo = best;
+        int hi = best;
+        boolean leftOpen = lo > 0;
+        boolean rightOpen = hi < sentences.size() - 1;
+        while (leftOpen || rightOpen) {
+            // 命中相同时优先向后扩展，法条的后句通常是前句的条件或后果
+            boolean right = rightOpen && (!leftOpen || scores[hi + 1] >= scores[lo - 1]);
+            int next = right ? hi + 1 : lo - 1;
+            int cost = estimateTokens(sentences.get(next));
+            if (used + cost > budget) {
+                if (right) {
+                    rightOpen = false;
+                } else {
+                    leftOpen = false;
+                }
+                continue;
+            }
+            used += cost;
+            if (right) {
+                hi = next;
+                rightOpen = hi < sentences.size() - 1;
+            } else {
+                lo = next;
+                leftOpen = lo > 0;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        if (lo > 0) {
+            sb.append(ELLIPSIS);
+        }
+        for (int i = lo; i <= hi; i++) {
+            sb.append(sentences.get(i));
+        }
+        if (hi < sentences.size() - 1) {
+            sb.append(ELLIPSIS);
+        }
+        return sb.toString().trim();
+    }
+    
+    /**
+     * 在句末标点与换行处切分，标点保留在句尾
+     */
+    private static List<String> splitSentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '。' || c == '！' || c == '？' || c == '；' || c == '!' || c == '?' || c == ';' || c == '\n') {
+                sentences.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            sentences.add(text.substring(start));
+        }
+        return sentences;
+    }
+    
+    /**
+     * 单句超出预算时按字符截断
+     */
+    private static String cut(String text, int limit) {
+        int end = 0;
+        double tokens = 0;
+        while (end < text.length()) {
+            double next = tokens + (isCjk(text.charAt(end)) ? 0.6 : 0.3);
+            if (next > limit) {
+                break;
+            }
+            tokens = next;
+            end++;
+        }
+        if (end > 0 && end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+    
+    private static Set<Integer> shingles(String normalized) {
+        Set<Integer> shingles = new HashSet<>();
+        for (int i = 0; i + SHINGLE_LENGTH <= normalized.length(); i++) {
+            shingles.add(normalized.substring(i, i + SHINGLE_LENGTH).hashCode());
+        }
+        return shingles;
+    }
+    
+    /**
+     * 候选片段的分片中已出现在已选内容里的比例
+     */
+    private static double overlap(Set<Integer> shingles, Set<Integer> selected) {
+        if (shingles.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (Integer shingle : shingles) {
+            if (selected.contains(shingle)) {
+                common++;
+            }
+        }
+        return (double) common / shingles.size();
+    }
+    
+    @AllArgsConstructor
+    private static class Candidate {
+        private final int order;
+        private final String section;
+        private final String heading;
+        private final String body;
+        private final double score;
+    }
+    
+    /**
+     * 拼装结果与预算使用情况
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final String text;
+        private final int budget;
+        private final int usedTokens;
+        private final int candidates;
+        private final int selected;
+        private final int truncated;
+        private final int deduplicated;
+        private final int dropped;
+    }
+}
@@ -0,0 +1,139 @@
+package com.legal.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 单个会话的对话记忆：最近若干轮原样保留，更早的轮次移出窗口时增量并入摘要
+ * 摘要为抽取式，每轮只保留问题与答案开头的几句；超出摘要预算时较早的轮次先压缩为只保留问题，再整体丢弃，
+ * 因此无论对话多长，窗口与摘要合计的词元数都有上限
+ */
+public class ConversationMemory {
+    
+    private static final String SENTENCE_ENDS = "。！？；!?;\n";
+    
+    private final int windowTurns;
+    private final int turnMaxTokens;
+    private final int gistMaxTokens;
+    private final int summaryMaxTokens;
+    private final Deque<Turn> window = new ArrayDeque<>();
+    private final Deque<Turn> summarized = new ArrayDeque<>();
+    private final Deque<String> earlierQuestions = new ArrayDeque<>();
+    private int summaryTokens;
+    
+    public ConversationMemory(int windowTurns, int turnMaxTokens, int gistMaxTokens, int summaryMaxTokens) {
+        this.windowTurns = windowTurns;
+        this.turnMaxTokens = turnMaxTokens;
+        this.gistMaxTokens = gistMaxTokens;
+        this.summaryMaxTokens = summaryMaxTokens;
+    }
+    
+    /**
+     * 追加一轮问答，窗口已满时最早的一轮并入摘要
+     */
+    public synchronized void append(String question, String answer) {
+        window.addLast(new Turn(leading(question, turnMaxTokens), leading(answer, turnMaxTokens)));
+        while (window.size() > windowTurns) {
+            Turn oldest = window.removeFirst();
+            Turn gist = new Turn(leading(oldest.getQuestion(), gistMaxTokens), leading(oldest.getAnswer(), gistMaxTokens));
+            summarized.addLast(gist);
+            summaryTokens += tokens(gist);
+            compact();
+        }
+    }
+    
+    /**
+     * 摘要超出预算：最早的轮次压缩为只保留问题，仍超出时丢弃最早的问题
+     */
+    private void compact() {
+        while (summaryTokens > summaryMaxTokens && summarized.size() > 1) {
+            Turn turn = summarized.removeFirst();
+            summaryTokens -= ContextPacker.estimateTokens(turn.getAnswer());
+            earlierQuestions.addLast(turn.getQuestion());
+        }
+        while (summaryTokens > summaryMaxTokens && !earlierQuestions.isEmpty()) {
+            summaryTokens -= ContextPacker.estimateTokens(earlierQuestions.removeFirst());
+        }
+    }
+    
+    public synchronized History snapshot() {
+        if (window.isEmpty()) {
+            return History.EMPTY;
+        }
+        StringBuilder summary = new StringBuilder();
+        if (!earlierQuestions.isEmpty()) {
+            summary.append("更早还问过：").append(String.join("；", earlierQuestions)).append('\n');
+        }
+        for (Turn turn : summarized) {
+            summary.append("问：").append(turn.getQuestion()).append(" 答：").append(turn.getAnswer()).append('\n');
+        }
+        return new History(summary.toString(), new ArrayList<>(window));
+    }
+    
+    private static int tokens(Turn turn) {
+        return ContextPacker.estimateTokens(turn.getQuestion()) + ContextPacker.estimateTokens(turn.getAnswer());
+    }
+    
+    /**
+     * 截取不超过maxTokens个词元的开头部分，尽量在句末切断
+     */
+    static String leading(String text, int maxTokens) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        if (ContextPacker.estimateTokens(trimmed) <= maxTokens) {
+            return trimmed;
+        }
+        int lastSentenceEnd = -1;
+        int end = 0;
+        double used = 0;
+        while (end < trimmed.length()) {
+            char c = trimmed.charAt(end);
+            double next = used + (c < 0x80 ? 0.3 : 0.6);
+            if (next > maxTokens) {
+                break;
+            }
+            used = next;
+            end++;
+            if (SENTENCE_ENDS.indexOf(c) >= 0) {
+                lastSentenceEnd = end;
+            }
+        }
+        if (lastSentenceEnd > 0) {
+            end = lastSentenceEnd;
+        } else if (end > 0 && Character.isHighSurrogate(trimmed.charAt(end - 1))) {
+            end--;
+        }
+        return trimmed.substring(0, end).trim() + "……";
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Turn {
+        private final String question;
+        private final String answer;
+    }
+    
+    /**
+     * 生成答案时使用的对话历史：摘要与窗口内的轮次
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class History {
+        public static final History EMPTY = new History("", Collections.emptyList());
+        
+        private final String summary;
+        private final List<Turn> turns;
+        
+        public boolean isEmpty() {
+            return turns.isEmpty();
+        }
+    }
+}
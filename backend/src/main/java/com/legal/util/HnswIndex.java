@@ -0,0 +1,325 @@
+package com.legal.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * HNSW近似最近邻索引（内积/余弦，输入向量需已归一化）
+ * 向量与邻接表均存放在基本类型数组中；删除只做标记，检索时跳过
+ */
+public class HnswIndex {
+    
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private float[] vectors;
+    private long[] ids;
+    /** links[node][level] = {count, n1, n2, ...} */
+    private int[][][] links;
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> idToNode = new HashMap<>();
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = new float[1024 * dimension];
+        this.ids = new long[1024];
+        this.links = new int[1024][][];
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idToNode.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = idToNode.remove(id);
+            if (node != null) {
+                deleted.set(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 插入或替换向量
+     */
+    public void add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            Integer old = idToNode.remove(id);
+            if (old != null) {
+                deleted.set(old);
+            }
+            int node = allocate(id, vector);
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            links[node] = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                links[node][l] = new int[(l == 0 ? maxM0 : m) + 1];
+            }
+            idToNode.put(id, node);
+            
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+            
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(vector, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                PriorityQueue<Candidate> found = searchLayer(vector, current, efConstruction, l);
+                List<Candidate> neighbours = closest(found, l == 0 ? maxM0 : m);
+                for (Candidate c : neighbours) {
+                    connect(node, c.node, l);
+                    connect(c.node, node, l);
+                }
+                current = neighbours.isEmpty() ? current : neighbours.get(0).node;
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private int allocate(long id, float[] vector) {
+        int node = size++;
+        if (node >= ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            links = Arrays.copyOf(links, capacity);
+            vectors = Arrays.copyOf(vectors, capacity * dimension);
+        }
+        ids[node] = id;
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        return node;
+    }
+    
+    /**
+     * 添加一条有向边；邻居已满时淘汰与该节点最不相似的一个
+     */
+    private void connect(int from, int to, int level) {
+        int[] list = links[from][level];
+        int capacity = list.length - 1;
+        if (list[0] < capacity) {
+            list[++list[0]] = to;
+            return;
+        }
+        int worst = -1;
+        float worstScore = similarity(from, to);
+        for (int i = 1; i <= list[0]; i++) {
+            float score = similarity(from, list[i]);
+            if (score < worstScore) {
+                worstScore = score;
+                worst = i;
+            }
+        }
+        if (worst > 0) {
+            list[worst] = to;
+        }
+    }
+    
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float score = similarity(query, list[i]);
+                if (score > best) {
+                    best = score;
+                    current = list[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * 单层beam搜索，返回以相似度为序的小顶堆（堆顶最差）
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>((a, b) -> Float.compare(b.score, a.score));
+        PriorityQueue<Candidate> results = new PriorityQueue<>((a, b) -> Float.compare(a.score, b.score));
+        Candidate first = new Candidate(start, similarity(query, start));
+        candidates.add(first);
+        results.add(first);
+        visited.set(start);
+        while (!candidates.isEmpty()) {
+            Candidate c = candidates.poll();
+            if (results.size() >= ef && c.score < results.peek().score) {
+                break;
+            }
+            int[][] nodeLinks = links[c.node];
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            int[] list = nodeLinks[level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbour = list[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = similarity(query, neighbour);
+                if (results.size() < ef || score > results.peek().score) {
+                    Candidate next = new Candidate(neighbour, score);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+    
+    private List<Candidate> closest(PriorityQueue<Candidate> heap, int limit) {
+        List<Candidate> all = new ArrayList<>(heap);
+        all.sort((a, b) -> Float.compare(b.score, a.score));
+        return all.size() > limit ? all.subList(0, limit) : all;
+    }
+    
+    /**
+     * 检索最相似的k个向量，ef越大召回越高、耗时越长
+     */
+    public List<Neighbour> search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return Collections.emptyList();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(query, current, l);
+            }
+            // 多取已删除节点的数量，保证过滤后仍有k个结果
+            PriorityQueue<Candidate> found = searchLayer(query, current, Math.min(size, Math.max(ef, k) + deleted.cardinality()), 0);
+            List<Neighbour> result = new ArrayList<>(k);
+            for (Candidate c : closest(found, found.size())) {
+                if (deleted.get(c.node)) {
+                    continue;
+                }
+                result.add(new Neighbour(ids[c.node], c.score));
+                if (result.size() == k) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 暴力检索，用于评估召回率
+     */
+    public List<Neighbour> exactSearch(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Candidate> top = new PriorityQueue<>((a, b) -> Float.compare(a.score, b.score));
+            for (int node = 0; node < size; node++) {
+                if (deleted.get(node)) {
+                    continue;
+                }
+                top.add(new Candidate(node, similarity(query, node)));
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+            List<Neighbour> result = new ArrayList<>(top.size());
+            for (Candidate c : closest(top, k)) {
+                result.add(new Neighbour(ids[c.node], c.score));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public float[] vectorOf(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = idToNode.get(id);
+            return node == null ? null : Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private float similarity(float[] query, int node) {
+        int offset = node * dimension;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * vectors[offset + i];
+        }
+        return dot;
+    }
+    
+    private float similarity(int a, int b) {
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += vectors[offsetA + i] * vectors[offsetB + i];
+        }
+        return dot;
+    }
+    
+    private static class Candidate {
+        private final int node;
+        private final float score;
+        
+        private Candidate(int node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Neighbour {
+        private final long id;
+        private final float score;
+    }
+}
@@ -0,0 +1,132 @@
+package com.legal.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog基数估计：以固定大小的寄存器数组估算不重复元素个数
+ * 精度p对应 2^p 个寄存器，标准误差约为 1.04/sqrt(2^p)；同精度的草图可合并，合并结果等同于对并集计数
+ */
+public class HyperLogLog {
+    
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 16;
+    
+    private final int precision;
+    private final byte[] registers;
+    
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("精度应在" + MIN_PRECISION + "到" + MAX_PRECISION + "之间: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+    
+    /**
+     * 从 toBytes 的结果还原，首字节为精度
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog(bytes[0]);
+        if (bytes.length != sketch.registers.length + 1) {
+            throw new IllegalArgumentException("草图长度与精度不符");
+        }
+        System.arraycopy(bytes, 1, sketch.registers, 0, sketch.registers.length);
+        return sketch;
+    }
+    
+    public synchronized byte[] toBytes() {
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte) precision;
+        System.arraycopy(registers, 0, bytes, 1, registers.length);
+        return bytes;
+    }
+    
+    public void add(String value) {
+        if (value != null) {
+            addHash(hash(value));
+        }
+    }
+    
+    /**
+     * 高p位选寄存器，其余位的前导零个数加一作为秩，寄存器保留最大秩
+     */
+    public synchronized void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        long rest = hash << precision;
+        int rank = rest == 0 ? 64 - precision + 1 : Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+    
+    public synchronized void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("精度不同的草图不能合并");
+        }
+        byte[] source = other.snapshot();
+        for (int i = 0; i < registers.length; i++) {
+            if (source[i] > registers[i]) {
+                registers[i] = source[i];
+            }
+        }
+    }
+    
+    /**
+     * 调和平均估计；估计值较小且存在空寄存器时改用线性计数
+     */
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    public int getPrecision() {
+        return precision;
+    }
+    
+    private synchronized byte[] snapshot() {
+        return Arrays.copyOf(registers, registers.length);
+    }
+    
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+    
+    /**
+     * 64位FNV-1a，再经MurmurHash3的fmix64混合使高位分布均匀
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,310 @@
+package com.legal.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存倒排索引，BM25打分
+ * 每个文档版本分配递增的内部序号，倒排表按“序号差值+词频”以变长整数压缩追加；
+ * 删除或更新只标记旧序号失效（文档频率在压缩前会略有高估），失效比例过高时按原顺序重排序号并压缩倒排表
+ */
+public class InvertedIndex {
+    
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double COMPACT_RATIO = 0.2;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Map<String, PostingList> postings = new HashMap<>();
+    private long[] ordinalToId = new long[1024];
+    private int[] docLength = new int[1024];
+    private BitSet deleted = new BitSet();
+    private Map<Long, Integer> idToOrdinal = new HashMap<>();
+    private int nextOrdinal;
+    private long totalLength;
+    
+    /**
+     * 新增或替换文档
+     */
+    public void put(long id, List<String> tokens) {
+        Map<String, Integer> tf = new HashMap<>();
+        for (String token : tokens) {
+            tf.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            append(id, tf, tokens.size());
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings = new HashMap<>();
+            ordinalToId = new long[1024];
+            docLength = new int[1024];
+            deleted = new BitSet();
+            idToOrdinal = new HashMap<>();
+            nextOrdinal = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void append(long id, Map<String, Integer> tf, int length) {
+        int ordinal = nextOrdinal++;
+        if (ordinal >= ordinalToId.length) {
+            ordinalToId = Arrays.copyOf(ordinalToId, ordinalToId.length * 2);
+            docLength = Arrays.copyOf(docLength, docLength.length * 2);
+        }
+        ordinalToId[ordinal] = id;
+        docLength[ordinal] = length;
+        idToOrdinal.put(id, ordinal);
+        totalLength += length;
+        for (Map.Entry<String, Integer> e : tf.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new PostingList()).add(ordinal, e.getValue());
+        }
+    }
+    
+    private void removeInternal(long id) {
+        Integer ordinal = idToOrdinal.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        deleted.set(ordinal);
+        totalLength -= docLength[ordinal];
+    }
+    
+    /**
+     * 失效序号超过一定比例时，按原顺序为存活文档重排序号并重写倒排表
+     */
+    private void maybeCompact() {
+        int dead = deleted.cardinality();
+        if (dead < 1024 || dead < nextOrdinal * COMPACT_RATIO) {
+            return;
+        }
+        int[] remap = new int[nextOrdinal];
+        int live = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            remap[ordinal] = deleted.get(ordinal) ? -1 : live++;
+        }
+        long[] newIds = new long[Math.max(1024, live)];
+        int[] newLengths = new int[newIds.length];
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (remap[ordinal] >= 0) {
+                newIds[remap[ordinal]] = ordinalToId[ordinal];
+                newLengths[remap[ordinal]] = docLength[ordinal];
+            }
+        }
+        Map<String, PostingList> newPostings = new HashMap<>(postings.size());
+        for (Map.Entry<String, PostingList> e : postings.entrySet()) {
+            PostingList compacted = new PostingList();
+            e.getValue().forEach((ordinal, tf) -> {
+                if (remap[ordinal] >= 0) {
+                    compacted.add(remap[ordinal], tf);
+                }
+            });
+            if (compacted.docFreq > 0) {
+                compacted.trim();
+                newPostings.put(e.getKey(), compacted);
+            }
+        }
+        for (Map.Entry<Long, Integer> e : idToOrdinal.entrySet()) {
+            e.setValue(remap[e.getValue()]);
+        }
+        postings = newPostings;
+        ordinalToId = newIds;
+        docLength = newLengths;
+        deleted = new BitSet();
+        nextOrdinal = live;
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idToOrdinal.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * BM25检索，返回按得分降序的前limit个文档，total为命中文档总数
+     * 文档至少要命中minShouldMatch个不同的查询词才计入结果
+     */
+    public SearchResult search(List<String> queryTokens, int limit, int minShouldMatch) {
+        lock.readLock().lock();
+        try {
+            int liveDocs = idToOrdinal.size();
+            if (liveDocs == 0 || queryTokens.isEmpty()) {
+                return new SearchResult(Collections.emptyList(), 0);
+            }
+            double avgLength = (double) totalLength / liveDocs;
+            Map<String, Integer> queryTf = new HashMap<>();
+            for (String token : queryTokens) {
+                queryTf.merge(token, 1, Integer::sum);
+            }
+            
+            // 每个文档累计 {得分, 命中查询词数}
+            Map<Integer, double[]> scores = new HashMap<>();
+            for (Map.Entry<String, Integer> q : queryTf.entrySet()) {
+                PostingList list = postings.get(q.getKey());
+                if (list == null || list.docFreq <= 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (liveDocs - Math.min(list.docFreq, liveDocs) + 0.5) / (list.docFreq + 0.5));
+                int weight = q.getValue();
+                list.forEach((ordinal, tf) -> {
+                    if (deleted.get(ordinal)) {
+                        return;
+                    }
+                    double norm = tf + K1 * (1 - B + B * docLength[ordinal] / avgLength);
+                    double[] acc = scores.computeIfAbsent(ordinal, k -> new double[2]);
+                    acc[0] += weight * idf * tf * (K1 + 1) / norm;
+                    acc[1]++;
+                });
+            }
+            
+            PriorityQueue<ScoredDoc> top = new PriorityQueue<>(
+                    Math.max(1, limit), Comparator.comparingDouble(ScoredDoc::getScore));
+            int total = 0;
+            for (Map.Entry<Integer, double[]> e : scores.entrySet()) {
+                if (e.getValue()[1] < minShouldMatch) {
+                    continue;
+                }
+                total++;
+                top.offer(new ScoredDoc(ordinalToId[e.getKey()], e.getValue()[0]));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<ScoredDoc> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                hits.add(top.poll());
+            }
+            Collections.reverse(hits);
+            return new SearchResult(hits, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 估算倒排表占用字节数
+     */
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList list : postings.values()) {
+                bytes += list.data.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 压缩倒排表：依次存放 varint(序号差值)、varint(词频)
+     */
+    private static class PostingList {
+        private byte[] data = new byte[8];
+        private int length;
+        private int lastOrdinal = -1;
+        private int docFreq;
+        
+        void add(int ordinal, int tf) {
+            writeVarInt(lastOrdinal < 0 ? ordinal : ordinal - lastOrdinal);
+            writeVarInt(tf);
+            lastOrdinal = ordinal;
+            docFreq++;
+        }
+        
+        void trim() {
+            data = Arrays.copyOf(data, length);
+        }
+        
+        private void writeVarInt(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+        
+        void forEach(PostingConsumer consumer) {
+            int pos = 0;
+            int ordinal = -1;
+            while (pos < length) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                int tf = 0;
+                shift = 0;
+                do {
+                    b = data[pos++];
+                    tf |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                ordinal = ordinal < 0 ? gap : ordinal + gap;
+                consumer.accept(ordinal, tf);
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface PostingConsumer {
+        void accept(int ordinal, int tf);
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class ScoredDoc {
+        private final long id;
+        private final double score;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class SearchResult {
+        private final List<ScoredDoc> hits;
+        private final int total;
+    }
+}
@@ -1,14 +1,24 @@
 package com.legal.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.legal.dto.JwtPrincipal;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
@@ -19,6 +29,37 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
     
+    @Value("${jwt.cache-max-size:10000}")
+    private Long cacheMaxSize;
+    
+    /** 已验证Token缓存，键为Token的SHA-256摘要，条目在Token过期时失效 */
+    private Cache<String, JwtPrincipal> verifiedTokens;
+    
+    @PostConstruct
+    public void init() {
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, JwtPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+                        long remaining = principal.getExpiresAt() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remaining, 0));
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, principal, currentTime);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+    
     public String generateToken(String username, Long userId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("username", username);
@@ -46,22 +87,59 @@ public class JwtUtil {
                 .getBody();
     }
     
+    /**
+     * 验证Token并取出用户信息，签名错误或已过期时返回null
+     * 验证通过的结果按摘要缓存，同一Token在有效期内只做一次HS512校验
+     */
+    public JwtPrincipal verify(String token) {
+        String key = digest(token);
+        JwtPrincipal cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            Claims claims = getClaimsFromToken(token);
+            if (claims.getExpiration() == null || claims.get("userId") == null) {
+                return null;
+            }
+            JwtPrincipal principal = new JwtPrincipal(Long.valueOf(claims.get("userId").toString()),
+                    claims.getSubject(), claims.getExpiration().getTime());
+            verifiedTokens.put(key, principal);
+            return principal;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
     public String getUsernameFromToken(String token) {
-        return getClaimsFromToken(token).getSubject();
+        JwtPrincipal principal = verify(token);
+        return principal == null ? null : principal.getUsername();
     }
     
     public Long getUserIdFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return Long.valueOf(claims.get("userId").toString());
+        JwtPrincipal principal = verify(token);
+        return principal == null ? null : principal.getUserId();
     }
     
     public Boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+    
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", verifiedTokens.estimatedSize());
+        stats.put("hitRate", verifiedTokens.stats().hitRate());
+        stats.put("hits", verifiedTokens.stats().hitCount());
+        stats.put("misses", verifiedTokens.stats().missCount());
+        return stats;
+    }
+    
+    private static String digest(String token) {
         try {
-            Claims claims = getClaimsFromToken(token);
-            return !claims.getExpiration().before(new Date());
-        } catch (Exception e) {
-            return false;
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 }
-
@@ -0,0 +1,58 @@
+package com.legal.util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 按 (create_time, id) 倒序分页的游标，格式为 "创建时间_id"
+ * id 作为同一时间戳下的决胜字段，保证翻页时不重复、不遗漏
+ */
+public class KeysetCursor {
+    
+    private static final char SEPARATOR = '_';
+    
+    private final LocalDateTime time;
+    private final Long id;
+    
+    private KeysetCursor(LocalDateTime time, Long id) {
+        this.time = time;
+        this.id = id;
+    }
+    
+    public LocalDateTime getTime() {
+        return time;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    /**
+     * 以上一页最后一条记录生成游标，创建时间为空时无法继续翻页，返回null
+     */
+    public static String encode(LocalDateTime time, Long id) {
+        if (time == null || id == null) {
+            return null;
+        }
+        return time.toString() + SEPARATOR + id;
+    }
+    
+    /**
+     * 解析游标，空串返回null；格式错误抛出IllegalArgumentException
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        int index = cursor.lastIndexOf(SEPARATOR);
+        if (index <= 0 || index == cursor.length() - 1) {
+            throw new IllegalArgumentException("无效的游标: " + cursor);
+        }
+        try {
+            return new KeysetCursor(LocalDateTime.parse(cursor.substring(0, index)),
+                    Long.parseLong(cursor.substring(index + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("无效的游标: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.legal.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次DeepSeek HTTP调用，字节数为实际写出的请求体与读入的响应体大小
+ */
+@Name("com.legal.LlmCall")
+@Label("DeepSeek Call")
+@Category({"Legal QA", "LLM"})
+@Description("DeepSeek HTTP调用")
+@StackTrace(false)
+public class LlmCallEvent extends QaEvent {
+    
+    @Label("Purpose")
+    public String purpose;
+    
+    @Label("Stream")
+    public boolean stream;
+    
+    @Label("Status")
+    @Description("HTTP状态码，网络异常时为0")
+    public int status;
+    
+    @Label("Bytes Out")
+    @DataAmount
+    public long bytesOut;
+    
+    @Label("Bytes In")
+    @DataAmount
+    public long bytesIn;
+    
+    public LlmCallEvent(String purpose, boolean stream) {
+        this.purpose = purpose;
+        this.stream = stream;
+    }
+}
@@ -0,0 +1,19 @@
+package com.legal.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * 问答流水线JFR事件的公共字段，事件在执行它的线程上提交，不记录调用栈
+ * 问题类型在分类完成后才填写，此前结束的事件为空
+ */
+@Category({"Legal QA"})
+public abstract class QaEvent extends Event {
+    
+    @Label("Session Id")
+    public String sessionId;
+    
+    @Label("Question Type")
+    public String questionType;
+}
@@ -0,0 +1,25 @@
+package com.legal.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * processQuestion 的一个阶段，stage为total时覆盖整个问题的处理
+ */
+@Name("com.legal.QaStage")
+@Label("QA Pipeline Stage")
+@Category({"Legal QA", "Pipeline"})
+@Description("问答流水线阶段")
+@StackTrace(false)
+public class QaStageEvent extends QaEvent {
+    
+    @Label("Stage")
+    public String stage;
+    
+    public QaStageEvent(String stage) {
+        this.stage = stage;
+    }
+}
@@ -0,0 +1,44 @@
+package com.legal.util;
+
+import java.text.Normalizer;
+
+/**
+ * 问题归一化工具
+ * 全角转半角、英文转小写，并去除空白与标点，使措辞相同的问题得到同一个键
+ */
+public class QuestionNormalizer {
+    
+    private QuestionNormalizer() {
+    }
+    
+    public static String normalize(String question) {
+        if (question == null) {
+            return "";
+        }
+        String text = Normalizer.normalize(question, Normalizer.Form.NFKC).toLowerCase();
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || isPunctuation(c)) {
+                continue;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+    
+    private static boolean isPunctuation(char c) {
+        switch (Character.getType(c)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
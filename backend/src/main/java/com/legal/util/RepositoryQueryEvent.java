@@ -0,0 +1,33 @@
+package com.legal.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 问答流水线中的一次仓库查询
+ */
+@Name("com.legal.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Legal QA", "Repository"})
+@Description("问答检索路径中的仓库方法调用")
+@StackTrace(false)
+public class RepositoryQueryEvent extends QaEvent {
+    
+    @Label("Repository")
+    public String repository;
+    
+    @Label("Method")
+    public String method;
+    
+    @Label("Rows")
+    @Description("返回的实体条数，非集合结果为-1")
+    public int rows = -1;
+    
+    public RepositoryQueryEvent(String repository, String method) {
+        this.repository = repository;
+        this.method = method;
+    }
+}
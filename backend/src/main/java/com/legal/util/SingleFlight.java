@@ -0,0 +1,75 @@
+package com.legal.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并：同一个键同一时刻只执行一次，期间到达的调用等待并共享其结果
+ * 调用结束后立即移除，不缓存结果；等待方超时只放弃自己的等待，不影响正在执行的调用
+ */
+public class SingleFlight<K, V> {
+    
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    
+    /**
+     * 执行或加入同键的调用；作为等待方超过timeoutMs仍未得到结果时抛出TimeoutException
+     */
+    public V execute(K key, Supplier<V> loader, long timeoutMs) throws TimeoutException {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing == null) {
+            executions.increment();
+            try {
+                V value = loader.get();
+                created.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, created);
+            }
+        }
+        
+        shared.increment();
+        waiting.incrementAndGet();
+        try {
+            return existing.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待合并请求时被中断", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("waiting", waiting.get());
+        stats.put("executions", executions.sum());
+        stats.put("savedCalls", shared.sum());
+        stats.put("followerTimeouts", timeouts.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,102 @@
+package com.legal.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 文本向量化：字符1-3元组哈希到固定桶，按TF-IDF加权后做符号随机投影得到稠密向量
+ * 投影矩阵不落地，由（桶号, 维度组）的哈希按位生成±1，无需网络与模型文件
+ */
+public class TextVectorizer {
+    
+    private static final int BUCKET_BITS = 18;
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+    
+    private final int dimension;
+    private final float[] idf = new float[BUCKETS];
+    
+    public TextVectorizer(int dimension) {
+        if (dimension % 64 != 0) {
+            throw new IllegalArgumentException("向量维度必须是64的倍数");
+        }
+        this.dimension = dimension;
+        Arrays.fill(idf, 1.0f);
+    }
+    
+    public int getDimension() {
+        return dimension;
+    }
+    
+    /**
+     * 由语料计算各桶的IDF
+     */
+    public void fit(Iterable<String> corpus) {
+        int[] df = new int[BUCKETS];
+        int docs = 0;
+        for (String text : corpus) {
+            docs++;
+            for (int bucket : termFrequencies(text).keySet()) {
+                df[bucket]++;
+            }
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            idf[i] = (float) Math.log((docs + 1.0) / (df[i] + 1.0)) + 1.0f;
+        }
+    }
+    
+    /**
+     * 生成L2归一化的向量，余弦相似度即点积
+     */
+    public float[] vectorize(String text) {
+        float[] vector = new float[dimension];
+        for (Map.Entry<Integer, Integer> e : termFrequencies(text).entrySet()) {
+            int bucket = e.getKey();
+            float weight = (float) (1 + Math.log(e.getValue())) * idf[bucket];
+            for (int group = 0; group < dimension / 64; group++) {
+                long signs = mix(bucket * 0x9E3779B97F4A7C15L + group);
+                int base = group * 64;
+                for (int bit = 0; bit < 64; bit++) {
+                    vector[base + bit] += ((signs >>> bit) & 1L) == 0 ? weight : -weight;
+                }
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+    
+    private Map<Integer, Integer> termFrequencies(String text) {
+        String normalized = QuestionNormalizer.normalize(text);
+        Map<Integer, Integer> tf = new HashMap<>();
+        for (int n = 1; n <= 3; n++) {
+            for (int i = 0; i + n <= normalized.length(); i++) {
+                int hash = normalized.substring(i, i + n).hashCode() * 31 + n;
+                tf.merge(hash & (BUCKETS - 1), 1, Integer::sum);
+            }
+        }
+        return tf;
+    }
+    
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inv;
+        }
+    }
+    
+    /**
+     * SplitMix64
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -20,6 +20,7 @@ CREATE TABLE IF NOT EXISTS question_answers (
     question TEXT NOT NULL,
     answer TEXT,
     question_type VARCHAR(50) COMMENT '法条查询、概念定义、程序咨询、案例分析',
+    question_type_source VARCHAR(16) COMMENT '分类来源：llm、local、cache，只有llm作为本地分类器的训练样本',
     confidence_score DOUBLE COMMENT '可信度评分 0-1',
     entities TEXT COMMENT 'JSON格式存储识别的实体',
     related_laws TEXT COMMENT '相关法条',
@@ -30,9 +31,39 @@ CREATE TABLE IF NOT EXISTS question_answers (
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     INDEX idx_user_id (user_id),
     INDEX idx_session_id (session_id),
-    INDEX idx_create_time (create_time)
+    INDEX idx_create_time (create_time),
+    INDEX idx_user_create_time (user_id, create_time, id),
+    INDEX idx_create_time_id (create_time, id),
+    INDEX idx_session_create_time (session_id, create_time, id),
+    INDEX idx_type_source_id (question_type_source, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 主键号段表（问答记录异步写入时预分配主键）
+CREATE TABLE IF NOT EXISTS id_allocator (
+    name VARCHAR(64) PRIMARY KEY,
+    next_id BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+-- 问答统计汇总表（按小时、天预聚合的计数）
+CREATE TABLE IF NOT EXISTS qa_stats_rollup (
+    granularity VARCHAR(8) NOT NULL COMMENT 'hour/day',
+    bucket_start DATETIME NOT NULL,
+    question_type VARCHAR(50) NOT NULL,
+    confidence_band VARCHAR(16) NOT NULL COMMENT 'high/medium/low/unknown',
+    feedback_type VARCHAR(20) NOT NULL COMMENT '未反馈为none',
+    question_count BIGINT NOT NULL,
+    PRIMARY KEY (granularity, bucket_start, question_type, confidence_band, feedback_type)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 问答统计去重草图（HyperLogLog，估算各时间桶的不重复用户数与会话数）
+CREATE TABLE IF NOT EXISTS qa_stats_sketch (
+    granularity VARCHAR(8) NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    user_sketch BLOB NOT NULL,
+    session_sketch BLOB NOT NULL,
+    PRIMARY KEY (granularity, bucket_start)
+) ENGINE=InnoDB;
+
 -- 法条表
 CREATE TABLE IF NOT EXISTS legal_articles (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -93,8 +124,11 @@ CREATE TABLE IF NOT EXISTS knowledge_base (
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_question_type (question_type),
-    INDEX idx_law_type (law_type)
+    INDEX idx_law_type (law_type),
+    INDEX idx_kb_create_time_id (create_time, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+-- 已有库升级（原索引名与 question_answers 重复，H2等按库唯一索引名的数据库无法创建）：
+-- ALTER TABLE knowledge_base RENAME INDEX idx_create_time_id TO idx_kb_create_time_id;
 
 -- 插入示例数据
 INSERT INTO users (username, password, nickname, user_type) VALUES
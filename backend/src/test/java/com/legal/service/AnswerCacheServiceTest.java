@@ -0,0 +1,85 @@
+package com.legal.service;
+
+import com.legal.entity.LegalArticle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerCacheServiceTest {
+    
+    private final AnswerCacheService service = new AnswerCacheService();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxSize", 100L);
+        ReflectionTestUtils.setField(service, "ttlMinutes", 60L);
+        service.init();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    private static AnswerCacheService.CachedAnswer answer(String text) {
+        AnswerCacheService.CachedAnswer answer = new AnswerCacheService.CachedAnswer();
+        answer.setQuestion("押金不退怎么办");
+        answer.setAnswer(text);
+        return answer;
+    }
+    
+    @Test
+    void answerGeneratedBeforeInvalidationIsNotCached() {
+        long generation = service.generation();
+        service.onKnowledgeChanged();
+        service.putAnswer("k", answer("旧答案"), generation);
+        assertNull(service.getAnswer("k"));
+        
+        service.putAnswer("k", answer("新答案"), service.generation());
+        assertEquals("新答案", service.getAnswer("k").getAnswer());
+    }
+    
+    @Test
+    void invalidationWaitsForCommit() {
+        service.putAnswer("k", answer("旧答案"), service.generation());
+        TransactionSynchronizationManager.initSynchronization();
+        long generation = service.generation();
+        service.onKnowledgeChanged();
+        // 提交前：缓存不变，此时开始的请求读到的仍是未提交前的数据
+        assertNotNull(service.getAnswer("k"));
+        assertEquals(generation, service.generation());
+        
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertNull(service.getAnswer("k"));
+        service.putAnswer("k", answer("提交前开始生成的答案"), generation);
+        assertNull(service.getAnswer("k"));
+    }
+    
+    @Test
+    void articleInvalidationUsesFieldsCapturedAtCallTime() {
+        AnswerCacheService.CachedAnswer cached = answer("旧答案");
+        cached.getLawTerms().add("民法典");
+        service.putAnswer("k", cached, service.generation());
+        
+        TransactionSynchronizationManager.initSynchronization();
+        LegalArticle article = new LegalArticle();
+        article.setId(1L);
+        article.setTitle("中华人民共和国民法典");
+        service.onArticleChanged(article);
+        // 同一实体在提交前被修改
+        article.setTitle("中华人民共和国刑法");
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertNull(service.getAnswer("k"));
+    }
+}
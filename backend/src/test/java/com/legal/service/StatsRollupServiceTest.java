@@ -0,0 +1,114 @@
+package com.legal.service;
+
+import com.legal.entity.QuestionAnswer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StatsRollupServiceTest {
+    
+    private final StatsRollupService service = new StatsRollupService();
+    private final StreamingExportService streamingExportService = mock(StreamingExportService.class);
+    private final LocalDateTime createTime = LocalDateTime.now().minusDays(1);
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        QuestionAnswerWriter writer = mock(QuestionAnswerWriter.class);
+        when(writer.awaitCreatedBefore(any())).thenReturn(true);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "streamingExportService", streamingExportService);
+        ReflectionTestUtils.setField(service, "questionAnswerWriter", writer);
+        ReflectionTestUtils.setField(service, "maxPoints", 1000);
+    }
+    
+    private QuestionAnswer question(LocalDateTime time, String feedbackType) {
+        QuestionAnswer qa = new QuestionAnswer();
+        qa.setUserId(1L);
+        qa.setSessionId("s1");
+        qa.setQuestionType("合同纠纷");
+        qa.setConfidenceScore(0.9);
+        qa.setFeedbackType(feedbackType);
+        qa.setCreateTime(time);
+        return qa;
+    }
+    
+    /** 只含内存缓冲部分（汇总表为模拟对象，读不到任何行） */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> bufferedDay(LocalDateTime time) {
+        List<Map<String, Object>> points = (List<Map<String, Object>>) service.getTimeSeries(StatsRollupService.DAY, time, time).get("points");
+        return points.get(0);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private long feedbackCount(LocalDateTime time, String feedbackType) {
+        Long count = ((Map<String, Long>) bufferedDay(time).get("feedbackTypes")).get(feedbackType);
+        return count == null ? 0 : count;
+    }
+    
+    @Test
+    void feedbackOnOlderQuestionIsCountedAfterRebuild() {
+        service.rebuild();
+        QuestionAnswer qa = question(createTime, "helpful");
+        service.recordFeedback(qa, null);
+        assertEquals(1, feedbackCount(createTime, "helpful"));
+        assertEquals(-1, feedbackCount(createTime, "none"));
+        
+        // 再次重建：之前的增量由扫描计入而丢弃，之后的变化依然累加
+        service.rebuild();
+        assertEquals(0, feedbackCount(createTime, "helpful"));
+        qa.setFeedbackType("unhelpful");
+        service.recordFeedback(qa, "helpful");
+        assertEquals(1, feedbackCount(createTime, "unhelpful"));
+        assertEquals(-1, feedbackCount(createTime, "helpful"));
+    }
+    
+    @Test
+    void questionCreatedBeforeCutoffIsNotCountedTwice() {
+        service.rebuild();
+        service.recordQuestion(question(createTime, null));
+        assertEquals(0L, bufferedDay(createTime).get("total"));
+        
+        LocalDateTime now = LocalDateTime.now().plusSeconds(1);
+        service.recordQuestion(question(now, null));
+        assertEquals(1L, bufferedDay(now).get("total"));
+    }
+    
+    @Test
+    void feedbackDuringRebuildIsDiscardedOnSuccessAndKeptOnFailure() {
+        QuestionAnswer qa = question(createTime, "helpful");
+        // 扫描过程中提交的反馈：扫描结果已包含，成功后丢弃
+        when(streamingExportService.query(anyString(), any(Object[].class), any())).thenAnswer(invocation -> {
+            service.recordFeedback(qa, null);
+            return 0L;
+        });
+        service.rebuild();
+        assertEquals(0, feedbackCount(createTime, "helpful"));
+        
+        // 重建失败时汇总表未改动，增量并回缓冲
+        when(streamingExportService.query(anyString(), any(Object[].class), any())).thenAnswer(invocation -> {
+            service.recordFeedback(qa, null);
+            throw new IllegalStateException("scan failed");
+        });
+        assertThrows(IllegalStateException.class, service::rebuild);
+        assertEquals(1, feedbackCount(createTime, "helpful"));
+    }
+}
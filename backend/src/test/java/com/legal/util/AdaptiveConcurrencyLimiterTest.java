@@ -0,0 +1,127 @@
+package com.legal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+    
+    private static int limit(AdaptiveConcurrencyLimiter limiter) {
+        return (Integer) limiter.getStats().get("limit");
+    }
+    
+    private static int inFlight(AdaptiveConcurrencyLimiter limiter) {
+        return (Integer) limiter.getStats().get("inFlight");
+    }
+    
+    @Test
+    void rejectsWhenLimitReachedAndQueueFull() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0, 0);
+        assertNotNull(limiter.acquire(0));
+        assertNotNull(limiter.acquire(0));
+        assertNull(limiter.acquire(100));
+        assertEquals(2, inFlight(limiter));
+        assertEquals(1L, limiter.getStats().get("rejected"));
+    }
+    
+    @Test
+    void additiveIncreaseOnlyWhenSaturated() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0, 0);
+        // 未用满上限时成功不增加上限
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess(limiter.acquire(0));
+        }
+        assertEquals(2, limit(limiter));
+        
+        // 用满上限时每次成功增加 1/limit：2 -> 2.5 -> 2.9 -> 3.24
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(0);
+        for (int i = 0; i < 3; i++) {
+            limiter.onSuccess(limiter.acquire(0));
+        }
+        assertEquals(3, limit(limiter));
+        limiter.onSuccess(held);
+        assertEquals(0, inFlight(limiter));
+    }
+    
+    @Test
+    void multiplicativeDecreaseOnDropDownToMinimum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 4, 20, 0, 0);
+        limiter.onDropped(limiter.acquire(0));
+        assertEquals(9, limit(limiter));
+        for (int i = 0; i < 50; i++) {
+            limiter.onDropped(limiter.acquire(0));
+        }
+        assertEquals(4, limit(limiter));
+        assertEquals(51L, limiter.getStats().get("dropped"));
+    }
+    
+    @Test
+    void slowSuccessCountsAsOverloadUnlessResponded() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 20, 0, 5);
+        AdaptiveConcurrencyLimiter.Permit slow = limiter.acquire(0);
+        Thread.sleep(20);
+        limiter.onSuccess(slow);
+        assertEquals(9, limit(limiter));
+        
+        // 首个数据块及时到达：之后的耗时不计入延迟信号
+        AdaptiveConcurrencyLimiter.Permit streamed = limiter.acquire(0);
+        streamed.responded();
+        Thread.sleep(20);
+        limiter.onSuccess(streamed);
+        assertEquals(9, limit(limiter));
+        assertEquals(1L, limiter.getStats().get("dropped"));
+    }
+    
+    @Test
+    void permitIsReleasedOnlyOnce() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 0, 0);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(0);
+        limiter.onSuccess(permit);
+        limiter.onDropped(permit);
+        limiter.onIgnore(permit);
+        // 只有第一次归还生效：用满时成功使上限 1 -> 2，之后的 onDropped 不再收缩
+        assertEquals(0, inFlight(limiter));
+        assertEquals(2, limit(limiter));
+        assertNotNull(limiter.acquire(0));
+        assertNotNull(limiter.acquire(0));
+        assertNull(limiter.acquire(0));
+    }
+    
+    @Test
+    void queuedCallerProceedsWhenPermitReleased() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1, 0);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<AdaptiveConcurrencyLimiter.Permit> waiter = executor.submit(() -> limiter.acquire(5000));
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((Integer) limiter.getStats().get("queued") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, limiter.getStats().get("queued"));
+            // 等待队列已满
+            assertNull(limiter.acquire(0));
+            
+            limiter.onIgnore(held);
+            AdaptiveConcurrencyLimiter.Permit granted = waiter.get(5, TimeUnit.SECONDS);
+            assertNotNull(granted);
+            assertEquals(1, inFlight(limiter));
+            limiter.onSuccess(granted);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, inFlight(limiter));
+    }
+    
+    @Test
+    void queuedCallerTimesOut() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10, 0);
+        limiter.acquire(0);
+        long start = System.nanoTime();
+        assertNull(limiter.acquire(50));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, limiter.getStats().get("queued"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.legal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickTest {
+    
+    private static AhoCorasick<String> automaton(String... patterns) {
+        Map<String, String> dictionary = new LinkedHashMap<>();
+        for (String pattern : patterns) {
+            dictionary.put(pattern, pattern.toUpperCase());
+        }
+        return new AhoCorasick<>(dictionary);
+    }
+    
+    private static Set<String> matches(AhoCorasick<?> automaton, String text) {
+        Set<String> result = new TreeSet<>();
+        for (AhoCorasick.Match<?> match : automaton.search(text)) {
+            assertEquals(match.getPattern(), text.substring(match.getStart(), match.getEnd()));
+            result.add(match.getStart() + ":" + match.getPattern());
+        }
+        return result;
+    }
+    
+    private static Set<String> bruteForce(Collection<String> patterns, String text) {
+        Set<String> result = new TreeSet<>();
+        for (String pattern : patterns) {
+            for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+                result.add(i + ":" + pattern);
+            }
+        }
+        return result;
+    }
+    
+    @Test
+    void findsOverlappingAndSuffixPatterns() {
+        AhoCorasick<String> automaton = automaton("he", "she", "his", "hers");
+        assertEquals(new TreeSet<>(Arrays.asList("1:she", "2:he", "2:hers")), matches(automaton, "ushers"));
+        
+        AhoCorasick.Match<String> first = automaton.search("she").get(0);
+        assertEquals("she", first.getPattern());
+        assertEquals("SHE", first.getValue());
+        assertEquals(0, first.getStart());
+        assertEquals(3, first.getEnd());
+    }
+    
+    @Test
+    void followsFailureLinksAcrossBranches() {
+        // 在 abcd 处遇到 e 时沿失败链转到 cd，继续匹配出 cde
+        AhoCorasick<String> automaton = automaton("abcd", "bcx", "cde");
+        assertEquals(new TreeSet<>(Arrays.asList("0:abcd", "2:cde")), matches(automaton, "abcde"));
+        // 失败后回到根节点再重新匹配
+        assertEquals(new TreeSet<>(Arrays.asList("3:bcx")), matches(automaton, "abcbcx"));
+    }
+    
+    @Test
+    void inheritsOutputsAlongFailureChain() {
+        AhoCorasick<String> automaton = automaton("民法典", "法典", "典", "中华人民共和国民法典");
+        assertEquals(new TreeSet<>(Arrays.asList("0:中华人民共和国民法典", "7:民法典", "8:法典", "9:典")),
+                matches(automaton, "中华人民共和国民法典"));
+    }
+    
+    @Test
+    void matchesBruteForceOnRandomText() {
+        Random random = new Random(3);
+        Set<String> patterns = new LinkedHashSet<>();
+        while (patterns.size() < 40) {
+            patterns.add(randomString(random, 1 + random.nextInt(4)));
+        }
+        AhoCorasick<String> automaton = automaton(patterns.toArray(new String[0]));
+        assertEquals(patterns.size(), automaton.size());
+        for (int round = 0; round < 50; round++) {
+            String text = randomString(random, 200);
+            assertEquals(bruteForce(patterns, text), matches(automaton, text));
+        }
+    }
+    
+    @Test
+    void ignoresEmptyPatternsAndNullText() {
+        AhoCorasick<String> automaton = automaton("", "法");
+        assertEquals(1, automaton.size());
+        assertTrue(automaton.search(null).isEmpty());
+        assertTrue(automaton.search("").isEmpty());
+        assertEquals(2, automaton.search("法法").size());
+    }
+    
+    private static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
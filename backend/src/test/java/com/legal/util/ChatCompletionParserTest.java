@@ -0,0 +1,82 @@
+package com.legal.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatCompletionParserTest {
+    
+    private static ChatCompletionParser.Completion parse(String json) throws IOException {
+        return ChatCompletionParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    @Test
+    void parsesNonStreamingResponse() throws IOException {
+        ChatCompletionParser.Completion completion = parse("{\"id\":\"abc\",\"object\":\"chat.completion\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"根据《民法典》……\\n\"},"
+                + "\"logprobs\":null,\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":45,\"total_tokens\":165,"
+                + "\"prompt_tokens_details\":{\"cached_tokens\":64}},\"system_fingerprint\":\"fp\"}");
+        assertEquals("根据《民法典》……\n", completion.getContent());
+        assertEquals("stop", completion.getFinishReason());
+        assertTrue(completion.isUsagePresent());
+        assertEquals(120, completion.getPromptTokens());
+        assertEquals(45, completion.getCompletionTokens());
+    }
+    
+    @Test
+    void parsesStreamChunks() throws IOException {
+        ChatCompletionParser.Completion delta = ChatCompletionParser.parseChunk("{\"choices\":[{\"index\":0,"
+                + "\"delta\":{\"content\":\"押金\"},\"finish_reason\":null}]}");
+        assertEquals("押金", delta.getContent());
+        assertNull(delta.getFinishReason());
+        assertFalse(delta.isUsagePresent());
+        
+        ChatCompletionParser.Completion last = ChatCompletionParser.parseChunk("{\"choices\":[{\"index\":0,"
+                + "\"delta\":{},\"finish_reason\":\"length\"}]}");
+        assertNull(last.getContent());
+        assertEquals("length", last.getFinishReason());
+        
+        // include_usage 时最后一个数据块只有usage，choices为空
+        ChatCompletionParser.Completion usage = ChatCompletionParser.parseChunk("{\"choices\":[],"
+                + "\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":3}}");
+        assertNull(usage.getContent());
+        assertNull(usage.getFinishReason());
+        assertTrue(usage.isUsagePresent());
+        assertEquals(10, usage.getPromptTokens());
+        assertEquals(3, usage.getCompletionTokens());
+    }
+    
+    @Test
+    void readsOnlyFirstChoiceAndIgnoresOtherField() throws IOException {
+        ChatCompletionParser.Completion completion = parse("{\"choices\":["
+                + "{\"message\":{\"content\":\"first\",\"tool_calls\":[{\"id\":\"x\"}]},\"finish_reason\":\"stop\"},"
+                + "{\"message\":{\"content\":\"second\"},\"finish_reason\":\"length\"}]}");
+        assertEquals("first", completion.getContent());
+        assertEquals("stop", completion.getFinishReason());
+        
+        // 流式解析不读取 message，非流式解析不读取 delta
+        assertNull(ChatCompletionParser.parseChunk("{\"choices\":[{\"message\":{\"content\":\"x\"}}]}").getContent());
+        assertNull(parse("{\"choices\":[{\"delta\":{\"content\":\"x\"}}]}").getContent());
+    }
+    
+    @Test
+    void nonStringContentIsNull() throws IOException {
+        ChatCompletionParser.Completion completion = parse("{\"choices\":[{\"message\":{\"content\":null}}]}");
+        assertNull(completion.getContent());
+        assertNull(parse("{\"choices\":[{\"message\":{\"content\":[{\"type\":\"text\"}]}}]}").getContent());
+        assertNull(parse("{}").getContent());
+    }
+    
+    @Test
+    void rejectsNonObjectResponse() {
+        assertThrows(JsonParseException.class, () -> parse("[]"));
+        assertThrows(JsonParseException.class, () -> ChatCompletionParser.parseChunk("\"text\""));
+        assertThrows(IOException.class, () -> parse("{\"choices\":[{\"message\":"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.legal.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatRequestTemplateTest {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private static final String[] SAMPLES = {
+            "",
+            "plain ascii",
+            "引号\"与反斜杠\\",
+            "换行\n回车\r制表\t",
+            "控制字符\u0000\u0001\b\f\u001f",
+            "双字节é ß ñ",
+            "《民法典》第五百七十七条",
+            "四字节😀𠀀",
+            "孤立高代理\uD83D结尾",
+            "孤立低代理\uDE00",
+            "末尾高代理\uD83D",
+            "\u007f\u0080߿ࠀ￿"
+    };
+    
+    private static ChatRequestTemplate template() {
+        return new ChatRequestTemplate("deepseek-chat", "你是\"法律\"助手。\n", "对话摘要：\n", "参考资料：\n",
+                "\n", "请回答。", 0.3, 2000);
+    }
+    
+    private static byte[] written(String text) throws IOException {
+        Buffer buffer = new Buffer();
+        ChatRequestTemplate.writeEscaped(buffer, text);
+        return buffer.readByteArray();
+    }
+    
+    private static byte[] body(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return buffer.readByteArray();
+    }
+    
+    @Test
+    void escapedLengthMatchesWrittenBytes() throws IOException {
+        for (String sample : SAMPLES) {
+            assertEquals(written(sample).length, ChatRequestTemplate.escapedLength(sample), sample);
+        }
+        // 超过线程内缓冲大小，跨块写出
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            large.append(SAMPLES[i % SAMPLES.length]);
+        }
+        String text = large.toString();
+        assertEquals(written(text).length, ChatRequestTemplate.escapedLength(text));
+    }
+    
+    @Test
+    void writeEscapedProducesValidJsonString() throws IOException {
+        for (String sample : SAMPLES) {
+            String json = "\"" + new String(written(sample), StandardCharsets.UTF_8) + "\"";
+            String decoded = MAPPER.readValue(json, String.class);
+            // 不成对的代理字符写为'?'，其余字符原样还原
+            String expected = sample.replaceAll("[\\uD800-\\uDBFF](?![\\uDC00-\\uDFFF])|(?<![\\uD800-\\uDBFF])[\\uDC00-\\uDFFF]", "?");
+            assertEquals(expected, decoded);
+        }
+    }
+    
+    @Test
+    void bodyLengthMatchesAndJsonIsWellFormed() throws IOException {
+        ConversationMemory.History history = new ConversationMemory.History("问：之前的问题 答：之前的答案\n",
+                Arrays.asList(new ConversationMemory.Turn("第一问\"", "第一答\\"),
+                        new ConversationMemory.Turn("第二问😀", "第二答\n")));
+        RequestBody body = template().body("押金不退怎么办？", "《民法典》第七百零三条……", history, false);
+        byte[] bytes = body(body);
+        assertEquals(bytes.length, body.contentLength());
+        
+        JsonNode root = MAPPER.readTree(bytes);
+        assertEquals("deepseek-chat", root.get("model").asText());
+        assertEquals(2000, root.get("max_tokens").asInt());
+        assertNull(root.get("stream"));
+        JsonNode messages = root.get("messages");
+        assertEquals(6, messages.size());
+        assertEquals("你是\"法律\"助手。\n对话摘要：\n问：之前的问题 答：之前的答案\n\n参考资料：\n《民法典》第七百零三条……\n请回答。",
+                messages.get(0).get("content").asText());
+        assertEquals("user", messages.get(1).get("role").asText());
+        assertEquals("第一问\"", messages.get(1).get("content").asText());
+        assertEquals("assistant", messages.get(2).get("role").asText());
+        assertEquals("第一答\\", messages.get(2).get("content").asText());
+        assertEquals("第二问😀", messages.get(3).get("content").asText());
+        assertEquals("第二答\n", messages.get(4).get("content").asText());
+        assertEquals("user", messages.get(5).get("role").asText());
+        assertEquals("押金不退怎么办？", messages.get(5).get("content").asText());
+    }
+    
+    @Test
+    void streamBodyOmitsEmptySectionsAndRequestsUsage() throws IOException {
+        RequestBody body = template().body(null, "", ConversationMemory.History.EMPTY, true);
+        byte[] bytes = body(body);
+        assertEquals(bytes.length, body.contentLength());
+        
+        JsonNode root = MAPPER.readTree(bytes);
+        assertTrue(root.get("stream").asBoolean());
+        assertTrue(root.get("stream_options").get("include_usage").asBoolean());
+        JsonNode messages = root.get("messages");
+        assertEquals(2, messages.size());
+        assertEquals("你是\"法律\"助手。\n请回答。", messages.get(0).get("content").asText());
+        assertEquals("", messages.get(1).get("content").asText());
+    }
+    
+    @Test
+    void emptyHistoryAddsNoTurns() throws IOException {
+        ConversationMemory.History history = new ConversationMemory.History("", Collections.emptyList());
+        JsonNode root = MAPPER.readTree(body(template().body("问题", null, history, false)));
+        assertEquals(2, root.get("messages").size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.legal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextPackerTest {
+    
+    private static final String QUESTION = "房屋租赁合同到期后押金不退怎么办";
+    
+    private static String filler(int sentences, String sentence) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            sb.append(sentence);
+        }
+        return sb.toString();
+    }
+    
+    @Test
+    void estimatesTokensByCharacterClass() {
+        assertEquals(0, ContextPacker.estimateTokens(""));
+        assertEquals(2, ContextPacker.estimateTokens("合同"));
+        assertEquals(1, ContextPacker.estimateTokens("abc"));
+        assertEquals(5, ContextPacker.estimateTokens("民法典第577条。"));
+        // 代理对按一个字符计
+        assertEquals(1, ContextPacker.estimateTokens("𠀀"));
+    }
+    
+    @Test
+    void packsWithinBudgetByScore() {
+        ContextPacker packer = new ContextPacker(QUESTION, Collections.singletonList("押金"), 80, 80, 0.6);
+        packer.add("相关法条", "《民法典》第七百零三条：", "租赁合同是出租人将租赁物交付承租人使用、收益，承租人支付租金的合同。", 0.2);
+        packer.add("相关问答", "Q: 押金不退怎么办\nA: ", "房屋租赁合同到期后出租人无正当理由不退押金的，承租人可以协商或起诉要求返还押金。", 0.5);
+        packer.add("相关法条", "《刑法》第二百三十二条：", "故意杀人的，处死刑、无期徒刑或者十年以上有期徒刑。", 0.0);
+        
+        ContextPacker.Result result = packer.pack();
+        assertTrue(result.getUsedTokens() <= result.getBudget(), result.getUsedTokens() + " > " + result.getBudget());
+        assertEquals(3, result.getCandidates());
+        // 预算只够两条，与问题无关的条目被放弃
+        assertEquals(2, result.getSelected());
+        assertEquals(1, result.getDropped());
+        String text = result.getText();
+        assertTrue(text.contains("返还押金"));
+        assertTrue(text.contains("第七百零三条"));
+        assertFalse(text.contains("故意杀人"));
+        // 分组按首次添加的顺序输出
+        assertTrue(text.indexOf("相关法条：") < text.indexOf("相关问答："));
+        assertEquals(ContextPacker.estimateTokens(text), result.getUsedTokens());
+    }
+    
+    @Test
+    void skipsNearDuplicateSnippets() {
+        String body = "房屋租赁合同到期后，出租人应当返还押金，但承租人有欠租或损坏房屋的除外。";
+        ContextPacker packer = new ContextPacker(QUESTION, Collections.emptyList(), 1000, 200, 0.6);
+        packer.add("相关问答", "Q: 押金\nA: ", body, 0.5);
+        packer.add("相关问答", "Q: 租房押金\nA: ", body, 0.4);
+        ContextPacker.Result result = packer.pack();
+        assertEquals(1, result.getSelected());
+        assertEquals(1, result.getDeduplicated());
+        assertTrue(result.getText().contains("Q: 押金\n"));
+    }
+    
+    @Test
+    void trimsLongSnippetAroundMatchingSentence() {
+        String body = filler(20, "本条规定与本案无关的一般事项。")
+                + "租赁期限届满，出租人应当返还押金。"
+                + filler(20, "其他条款另行约定。");
+        ContextPacker packer = new ContextPacker(QUESTION, Collections.singletonList("押金"), 1000, 60, 0.6);
+        packer.add("相关法条", "第一条：", body, 0.3);
+        ContextPacker.Result result = packer.pack();
+        assertEquals(1, result.getSelected());
+        assertEquals(1, result.getTruncated());
+        String text = result.getText();
+        assertTrue(text.contains("出租人应当返还押金。"));
+        assertTrue(text.startsWith("相关法条：\n第一条：……"));
+        assertTrue(text.trim().endsWith("……"));
+        int snippetTokens = ContextPacker.estimateTokens(text.substring(text.indexOf("第一条：") + "第一条：".length()).trim());
+        assertTrue(snippetTokens <= 60, "snippet tokens " + snippetTokens);
+    }
+    
+    @Test
+    void dropsCandidatesOnceBudgetIsExhausted() {
+        ContextPacker packer = new ContextPacker(QUESTION, Collections.emptyList(), 100, 100, 0.9);
+        for (int i = 0; i < 10; i++) {
+            packer.add("相关问答", "Q" + i + ": ", "第" + i + "条答案：房屋租赁押金应当在合同到期后返还，编号" + i + "。", 0.5 - i * 0.01);
+        }
+        ContextPacker.Result result = packer.pack();
+        assertTrue(result.getUsedTokens() <= 100);
+        assertTrue(result.getSelected() > 0);
+        assertTrue(result.getDropped() > 0);
+        assertEquals(10, result.getSelected() + result.getDropped() + result.getDeduplicated());
+        // 先验分高的先放入
+        assertTrue(result.getText().contains("Q0: "));
+    }
+    
+    @Test
+    void emptyPackerReturnsEmptyContext() {
+        ContextPacker packer = new ContextPacker(QUESTION, Collections.emptyList(), 100, 50, 0.6);
+        packer.add("相关问答", "Q: ", "", 0.5);
+        packer.add("相关问答", "Q: ", null, 0.5);
+        ContextPacker.Result result = packer.pack();
+        assertEquals("", result.getText());
+        assertEquals(0, result.getCandidates());
+        assertEquals(0, result.getUsedTokens());
+    }
+}
@@ -0,0 +1,100 @@
+package com.legal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+    
+    private static final int DIMENSION = 16;
+    
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+    
+    private static Set<Long> ids(List<HnswIndex.Neighbour> neighbours) {
+        return neighbours.stream().map(HnswIndex.Neighbour::getId).collect(Collectors.toSet());
+    }
+    
+    @Test
+    void recallAgainstExactSearch() {
+        Random random = new Random(7);
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100);
+        for (long id = 0; id < 3000; id++) {
+            index.add(id, randomUnitVector(random));
+        }
+        int k = 10;
+        int found = 0;
+        int queries = 200;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector(random);
+            Set<Long> expected = ids(index.exactSearch(query, k));
+            Set<Long> actual = ids(index.search(query, k, 64));
+            actual.retainAll(expected);
+            found += actual.size();
+        }
+        double recall = (double) found / (queries * k);
+        assertTrue(recall >= 0.95, "recall@10 = " + recall);
+    }
+    
+    @Test
+    void resultsAreSortedAndStoredVectorIsFoundFirst() {
+        Random random = new Random(11);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (long id = 0; id < 500; id++) {
+            index.add(id, randomUnitVector(random));
+        }
+        float[] query = index.vectorOf(123);
+        List<HnswIndex.Neighbour> result = index.search(query, 5, 32);
+        assertEquals(5, result.size());
+        assertEquals(123L, result.get(0).getId());
+        assertEquals(1.0f, result.get(0).getScore(), 1e-5);
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.get(i - 1).getScore() >= result.get(i).getScore());
+        }
+    }
+    
+    @Test
+    void removeAndReplaceAreReflectedInSearch() {
+        Random random = new Random(13);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (long id = 0; id < 300; id++) {
+            index.add(id, randomUnitVector(random));
+        }
+        float[] removed = index.vectorOf(42);
+        index.remove(42);
+        assertEquals(299, index.size());
+        assertEquals(1, index.deletedCount());
+        assertNull(index.vectorOf(42));
+        List<HnswIndex.Neighbour> result = index.search(removed, 10, 32);
+        assertEquals(10, result.size());
+        assertFalse(ids(result).contains(42L));
+        
+        // 替换向量：旧节点标记删除，按新向量可检索到
+        float[] replacement = randomUnitVector(random);
+        index.add(7, replacement);
+        assertEquals(299, index.size());
+        assertEquals(2, index.deletedCount());
+        assertEquals(7L, index.search(replacement, 1, 32).get(0).getId());
+    }
+    
+    @Test
+    void emptyIndexReturnsNothing() {
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        assertTrue(index.search(randomUnitVector(new Random(1)), 5, 32).isEmpty());
+        assertEquals(0, index.size());
+    }
+}
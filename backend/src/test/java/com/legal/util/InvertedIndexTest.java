@@ -0,0 +1,117 @@
+package com.legal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+    
+    private static List<String> tokens(String... tokens) {
+        return Arrays.asList(tokens);
+    }
+    
+    private static List<Long> ids(InvertedIndex.SearchResult result) {
+        return result.getHits().stream().map(InvertedIndex.ScoredDoc::getId).collect(Collectors.toList());
+    }
+    
+    @Test
+    void ranksByBm25AndAppliesMinShouldMatch() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, tokens("合同", "违约", "赔偿"));
+        index.put(2, tokens("合同", "合同", "解除"));
+        index.put(3, tokens("劳动", "仲裁"));
+        
+        InvertedIndex.SearchResult result = index.search(tokens("合同"), 10, 1);
+        assertEquals(2, result.getTotal());
+        // 词频更高的文档得分更高
+        assertEquals(Arrays.asList(2L, 1L), ids(result));
+        
+        InvertedIndex.SearchResult both = index.search(tokens("合同", "违约"), 10, 2);
+        assertEquals(Collections.singletonList(1L), ids(both));
+        assertEquals(1, both.getTotal());
+        
+        assertEquals(0, index.search(tokens("不存在"), 10, 1).getTotal());
+    }
+    
+    @Test
+    void limitKeepsTopHitsButCountsAll() {
+        InvertedIndex index = new InvertedIndex();
+        for (long id = 1; id <= 20; id++) {
+            List<String> doc = new ArrayList<>(Collections.nCopies((int) id, "词"));
+            doc.add("填充");
+            index.put(id, doc);
+        }
+        InvertedIndex.SearchResult result = index.search(tokens("词"), 3, 1);
+        assertEquals(20, result.getTotal());
+        assertEquals(Arrays.asList(20L, 19L, 18L), ids(result));
+    }
+    
+    @Test
+    void varintPostingsRoundTripLargeGapsAndFrequencies() {
+        InvertedIndex index = new InvertedIndex();
+        // 序号差值跨越1、2、3字节变长整数的边界
+        Set<Long> rare = new HashSet<>(Arrays.asList(0L, 127L, 128L, 16383L, 16384L, 20000L));
+        for (long id = 0; id <= 20000; id++) {
+            index.put(id, rare.contains(id) ? tokens("常见", "罕见") : tokens("常见"));
+        }
+        InvertedIndex.SearchResult result = index.search(tokens("罕见"), 100, 1);
+        assertEquals(rare.size(), result.getTotal());
+        assertEquals(rare, new HashSet<>(ids(result)));
+        
+        // 词频超过一个字节能表示的范围，后续倒排项仍能正确解码
+        InvertedIndex tf = new InvertedIndex();
+        tf.put(1, new ArrayList<>(Collections.nCopies(300, "高频")));
+        tf.put(2, new ArrayList<>(Collections.nCopies(20000, "高频")));
+        tf.put(3, tokens("高频"));
+        InvertedIndex.SearchResult hits = tf.search(tokens("高频"), 10, 1);
+        assertEquals(3, hits.getTotal());
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L)), new HashSet<>(ids(hits)));
+    }
+    
+    @Test
+    void putReplacesAndRemoveHidesDocument() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, tokens("旧内容"));
+        index.put(1, tokens("新内容"));
+        assertEquals(1, index.size());
+        assertEquals(0, index.search(tokens("旧内容"), 10, 1).getTotal());
+        assertEquals(Collections.singletonList(1L), ids(index.search(tokens("新内容"), 10, 1)));
+        
+        index.remove(1);
+        assertEquals(0, index.size());
+        assertEquals(0, index.search(tokens("新内容"), 10, 1).getTotal());
+    }
+    
+    @Test
+    void compactionKeepsLiveDocuments() {
+        InvertedIndex index = new InvertedIndex();
+        for (long id = 0; id < 3000; id++) {
+            index.put(id, id % 3 == 0 ? tokens("保留", "标记") : tokens("删除", "标记"));
+        }
+        for (long id = 0; id < 3000; id++) {
+            if (id % 3 != 0) {
+                index.remove(id);
+            }
+        }
+        // 删除过程中失效序号超过阈值时已压缩，重排序号后检索结果不变
+        assertEquals(1000, index.size());
+        InvertedIndex.SearchResult result = index.search(tokens("标记"), 5000, 1);
+        assertEquals(1000, result.getTotal());
+        assertTrue(ids(result).stream().allMatch(id -> id % 3 == 0));
+        
+        index.put(3001, tokens("保留"));
+        assertEquals(1001, index.search(tokens("保留"), 5000, 1).getTotal());
+    }
+    
+    @Test
+    void clearEmptiesIndex() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, tokens("内容"));
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(0, index.search(tokens("内容"), 10, 1).getTotal());
+    }
+}